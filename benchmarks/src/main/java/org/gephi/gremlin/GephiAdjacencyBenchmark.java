@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of expanding the adjacency of a vertex with
+ * {@link GephiVertex#edges(Direction, String...)} and
+ * {@link GephiVertex#vertices(Direction, String...)}. With the power law
+ * distribution the sampled vertices are mostly hubs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GephiAdjacencyBenchmark {
+
+    @Benchmark
+    public void outEdges(GephiGraphState state, Blackhole blackhole) {
+        consume(state.nextVertex().edges(Direction.OUT), blackhole);
+    }
+
+    @Benchmark
+    public void bothEdges(GephiGraphState state, Blackhole blackhole) {
+        consume(state.nextVertex().edges(Direction.BOTH), blackhole);
+    }
+
+    @Benchmark
+    public void outEdgesWithLabel(GephiGraphState state, Blackhole blackhole) {
+        consume(state.nextVertex().edges(Direction.OUT, "knows"), blackhole);
+    }
+
+    @Benchmark
+    public void outVertices(GephiGraphState state, Blackhole blackhole) {
+        consume(state.nextVertex().vertices(Direction.OUT), blackhole);
+    }
+
+    @Benchmark
+    public void bothVerticesWithLabel(GephiGraphState state, Blackhole blackhole) {
+        consume(state.nextVertex().vertices(Direction.BOTH, "knows"), blackhole);
+    }
+
+    private static void consume(Iterator<?> itr, Blackhole blackhole) {
+        while (itr.hasNext()) {
+            blackhole.consume(itr.next());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Random;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Builds synthetic graphs for the benchmarks. Vertices have the ids
+ * <code>v0</code> to <code>vN</code>, a label and a few properties. Edges
+ * connect vertices picked either uniformly or from a power law, where low
+ * indices are hubs with a degree inversely proportional to their index.
+ */
+final class GephiGraphGenerator {
+
+    static final String UNIFORM = "uniform";
+    static final String POWER_LAW = "powerLaw";
+    static final String[] VERTEX_LABELS = {"person", "software"};
+    static final String[] EDGE_LABELS = {"knows", "created"};
+
+    private final int vertexCount;
+    private final int averageDegree;
+    private final boolean powerLaw;
+    private final Random random;
+
+    GephiGraphGenerator(int vertexCount, int averageDegree, String distribution, long seed) {
+        if (!UNIFORM.equals(distribution) && !POWER_LAW.equals(distribution)) {
+            throw new IllegalArgumentException(String.format("Unknown degree distribution '%s'", distribution));
+        }
+        this.vertexCount = vertexCount;
+        this.averageDegree = averageDegree;
+        this.powerLaw = POWER_LAW.equals(distribution);
+        this.random = new Random(seed);
+    }
+
+    static Object vertexId(int index) {
+        return "v" + index;
+    }
+
+    /**
+     * Adds the vertices and edges to the graph and returns the vertices by
+     * index.
+     */
+    Vertex[] populate(GephiGraph graph) {
+        final Vertex[] vertices = new Vertex[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            vertices[i] = graph.addVertex(T.id, vertexId(i), T.label, VERTEX_LABELS[i % VERTEX_LABELS.length],
+                    "name", "name" + i, "age", i % 100);
+        }
+        // Half the degree is outgoing, the other half comes from other sources
+        final long edgeCount = (long) vertexCount * averageDegree / 2;
+        for (long i = 0; i < edgeCount; i++) {
+            vertices[pick()].addEdge(EDGE_LABELS[(int) (i % EDGE_LABELS.length)], vertices[pick()],
+                    "weight", random.nextDouble());
+        }
+        return vertices;
+    }
+
+    GephiGraph generate() {
+        final GephiGraph graph = GephiGraph.open();
+        populate(graph);
+        return graph;
+    }
+
+    /**
+     * Returns a random vertex index following the distribution.
+     */
+    int pick() {
+        return powerLaw ? powerLaw(random, vertexCount) : random.nextInt(vertexCount);
+    }
+
+    /**
+     * Returns a random index below <code>n</code>, the probability of index i
+     * being proportional to 1/(i+1).
+     */
+    static int powerLaw(Random random, int n) {
+        return Math.min(n - 1, (int) Math.pow(n, random.nextDouble()) - 1);
+    }
+}
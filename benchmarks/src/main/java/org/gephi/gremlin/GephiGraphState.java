@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Synthetic graph shared by the read benchmarks, parameterized by size and
+ * degree distribution. The benchmarks go through a fixed sequence of random
+ * vertices so that the random generator is not measured.
+ */
+@State(Scope.Benchmark)
+public class GephiGraphState {
+
+    private static final int SAMPLE_SIZE = 1 << 12;
+
+    @Param({"10000", "100000"})
+    public int vertexCount;
+
+    @Param({"10"})
+    public int averageDegree;
+
+    @Param({GephiGraphGenerator.UNIFORM, GephiGraphGenerator.POWER_LAW})
+    public String distribution;
+
+    GephiGraph graph;
+    Vertex[] vertices;
+    Object[] vertexIds;
+    private int[] sample;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final GephiGraphGenerator generator = new GephiGraphGenerator(vertexCount, averageDegree, distribution, 42L);
+        graph = GephiGraph.open();
+        vertices = generator.populate(graph);
+        vertexIds = new Object[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            vertexIds[i] = GephiGraphGenerator.vertexId(i);
+        }
+        sample = new int[SAMPLE_SIZE];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = generator.pick();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        graph.close();
+    }
+
+    /**
+     * Returns the index of the next sampled vertex, hubs being sampled more
+     * often with the power law distribution.
+     */
+    int nextIndex() {
+        final int index = sample[next];
+        next = (next + 1) & (SAMPLE_SIZE - 1);
+        return index;
+    }
+
+    Object nextId() {
+        return vertexIds[nextIndex()];
+    }
+
+    Vertex nextVertex() {
+        return vertices[nextIndex()];
+    }
+}
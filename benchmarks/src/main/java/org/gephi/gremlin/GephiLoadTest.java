@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Load test driving a mix of Gremlin traversals against a social network
+ * style {@link GephiGraph} from several threads, reporting the throughput and
+ * latency percentiles of each operation. Unlike the JMH benchmarks it measures
+ * the operations interfering with each other, writes included.
+ * <p/>
+ * Run with <code>java -cp target/benchmarks.jar org.gephi.gremlin.GephiLoadTest
+ * [key=value...]</code>, the keys being:
+ * <ul>
+ * <li><code>persons</code> number of persons, 10000 by default</li>
+ * <li><code>friends</code> average number of friends, 20 by default</li>
+ * <li><code>posts</code> posts created by each person, 2 by default</li>
+ * <li><code>likes</code> posts liked by each person, 5 by default</li>
+ * <li><code>threads</code> number of client threads, one per core by
+ * default</li>
+ * <li><code>warmup</code> seconds run before measuring, 10 by default</li>
+ * <li><code>duration</code> seconds measured, 30 by default</li>
+ * <li><code>mix</code> weights of the operations, by default
+ * <code>lookup:50,friends:20,friendsOfFriends:10,recommend:5,post:10,like:5</code></li>
+ * </ul>
+ * Friendships follow a power law, a few persons having most of them, and the
+ * persons picked by the operations follow the same law.
+ */
+public final class GephiLoadTest {
+
+    static final String DEFAULT_MIX = "lookup:50,friends:20,friendsOfFriends:10,recommend:5,post:10,like:5";
+
+    /**
+     * Operations of the workload, each run from a random person.
+     */
+    enum Operation {
+
+        LOOKUP("lookup") {
+            @Override
+            void run(GephiLoadTest test, GraphTraversalSource g, Random random) {
+                g.V(test.personId(random)).values("name").next();
+            }
+        },
+        FRIENDS("friends") {
+            @Override
+            void run(GephiLoadTest test, GraphTraversalSource g, Random random) {
+                g.V(test.personId(random)).out("knows").values("name").toList();
+            }
+        },
+        FRIENDS_OF_FRIENDS("friendsOfFriends") {
+            @Override
+            void run(GephiLoadTest test, GraphTraversalSource g, Random random) {
+                g.V(test.personId(random)).out("knows").out("knows").dedup().limit(100).count().next();
+            }
+        },
+        RECOMMEND("recommend") {
+            @Override
+            void run(GephiLoadTest test, GraphTraversalSource g, Random random) {
+                g.V(test.personId(random)).out("knows").out("likes").in("created").dedup().limit(10).values("name").toList();
+            }
+        },
+        POST("post") {
+            @Override
+            void run(GephiLoadTest test, GraphTraversalSource g, Random random) {
+                final Vertex post = g.addV(T.label, "post", "text", "post").next();
+                g.V(test.personId(random)).as("person").V(post).addE("created").from("person").iterate();
+            }
+        },
+        LIKE("like") {
+            @Override
+            void run(GephiLoadTest test, GraphTraversalSource g, Random random) {
+                g.V(test.postId(random)).as("post").V(test.personId(random)).addE("likes").to("post").iterate();
+            }
+        };
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        abstract void run(GephiLoadTest test, GraphTraversalSource g, Random random);
+
+        static Operation forName(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equals(name)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown operation '%s'", name));
+        }
+    }
+
+    private final Map<String, String> settings;
+    private final int persons;
+    private final int posts;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private GephiGraph graph;
+
+    GephiLoadTest(Map<String, String> settings) {
+        this.settings = settings;
+        this.persons = intSetting("persons", 10000);
+        this.posts = persons * intSetting("posts", 2);
+        final String[] mix = settings.getOrDefault("mix", DEFAULT_MIX).split(",");
+        this.operations = new Operation[mix.length];
+        this.cumulativeWeights = new int[mix.length];
+        int total = 0;
+        for (int i = 0; i < mix.length; i++) {
+            final String[] entry = mix[i].split(":");
+            operations[i] = Operation.forName(entry[0].trim());
+            total += entry.length > 1 ? Integer.parseInt(entry[1].trim()) : 1;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    private int intSetting(String key, int defaultValue) {
+        final String value = settings.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    Object personId(Random random) {
+        return "person" + GephiGraphGenerator.powerLaw(random, persons);
+    }
+
+    Object postId(Random random) {
+        return "post" + random.nextInt(posts);
+    }
+
+    Operation nextOperation(Random random) {
+        final int weight = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= weight) {
+            i++;
+        }
+        return operations[i];
+    }
+
+    /**
+     * Builds the graph: persons knowing each other, posts created by the
+     * persons and liked by others.
+     */
+    GephiGraph generate() {
+        final Random random = new Random(42L);
+        final GephiGraph graph = GephiGraph.open();
+        final Vertex[] personVertices = new Vertex[persons];
+        for (int i = 0; i < persons; i++) {
+            personVertices[i] = graph.addVertex(T.id, "person" + i, T.label, "person",
+                    "name", "person" + i, "age", 18 + random.nextInt(60));
+        }
+        final long friendships = (long) persons * intSetting("friends", 20) / 2;
+        for (long i = 0; i < friendships; i++) {
+            final Vertex person = personVertices[GephiGraphGenerator.powerLaw(random, persons)];
+            final Vertex friend = personVertices[GephiGraphGenerator.powerLaw(random, persons)];
+            if (person != friend) {
+                person.addEdge("knows", friend, "since", 2000 + random.nextInt(20));
+            }
+        }
+        final Vertex[] postVertices = new Vertex[posts];
+        for (int i = 0; i < posts; i++) {
+            postVertices[i] = graph.addVertex(T.id, "post" + i, T.label, "post", "text", "post" + i);
+            personVertices[i % persons].addEdge("created", postVertices[i]);
+        }
+        final int likes = intSetting("likes", 5);
+        for (int i = 0; i < persons; i++) {
+            for (int j = 0; j < likes; j++) {
+                personVertices[i].addEdge("likes", postVertices[random.nextInt(posts)]);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Latencies recorded by a client thread.
+     */
+    private final class Client extends Thread {
+
+        private final long measureStart;
+        private final long end;
+        private final GephiLatencyHistogram[] histograms = new GephiLatencyHistogram[Operation.values().length];
+        private final AtomicLong errors;
+
+        Client(int index, long measureStart, long end, AtomicLong errors) {
+            super("GephiLoadTest-" + index);
+            this.measureStart = measureStart;
+            this.end = end;
+            this.errors = errors;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new GephiLatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            final Random random = ThreadLocalRandom.current();
+            final GraphTraversalSource g = graph.traversal();
+            long now = System.nanoTime();
+            while (now < end) {
+                final Operation operation = nextOperation(random);
+                try {
+                    operation.run(GephiLoadTest.this, g, random);
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                }
+                final long done = System.nanoTime();
+                if (now >= measureStart) {
+                    histograms[operation.ordinal()].record(done - now);
+                }
+                now = done;
+            }
+        }
+    }
+
+    void run(PrintStream out) throws InterruptedException {
+        long start = System.nanoTime();
+        graph = generate();
+        out.printf("Generated %d vertices and %d edges in %d ms%n",
+                graph.getGraph().getNodeCount(), graph.getGraph().getEdgeCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        final int threads = intSetting("threads", Runtime.getRuntime().availableProcessors());
+        final long warmup = TimeUnit.SECONDS.toNanos(intSetting("warmup", 10));
+        final long duration = TimeUnit.SECONDS.toNanos(intSetting("duration", 30));
+        final AtomicLong errors = new AtomicLong();
+        start = System.nanoTime();
+        final List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            clients.add(new Client(i, start + warmup, start + warmup + duration, errors));
+        }
+        out.printf("Running %d threads for %d s after %d s of warmup%n", threads,
+                TimeUnit.NANOSECONDS.toSeconds(duration), TimeUnit.NANOSECONDS.toSeconds(warmup));
+        for (Client client : clients) {
+            client.start();
+        }
+        for (Client client : clients) {
+            client.join();
+        }
+
+        final double seconds = duration / 1e9;
+        final GephiLatencyHistogram total = new GephiLatencyHistogram();
+        out.printf("%-18s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "ops/s", "p50 us", "p99 us", "p999 us", "max us");
+        for (Operation operation : Operation.values()) {
+            final GephiLatencyHistogram histogram = new GephiLatencyHistogram();
+            for (Client client : clients) {
+                histogram.add(client.histograms[operation.ordinal()]);
+            }
+            if (histogram.getCount() > 0) {
+                report(out, operation.name, histogram, seconds);
+                total.add(histogram);
+            }
+        }
+        report(out, "total", total, seconds);
+        out.printf("Errors: %d%n", errors.get());
+    }
+
+    private static void report(PrintStream out, String name, GephiLatencyHistogram histogram, double seconds) {
+        out.printf("%-18s %10d %10.0f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(),
+                histogram.getCount() / seconds, histogram.percentile(0.5) / 1e3, histogram.percentile(0.99) / 1e3,
+                histogram.percentile(0.999) / 1e3, histogram.getMax() / 1e3);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException(String.format("Expected key=value, got '%s'", arg));
+            }
+            settings.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new GephiLoadTest(settings).run(System.out);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of {@link GephiGraph#vertices(Object...)} lookups by id, alone and in
+ * batches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GephiLookupBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+
+    @Benchmark
+    public Vertex vertexById(GephiGraphState state) {
+        return state.graph.vertices(state.nextId()).next();
+    }
+
+    @Benchmark
+    public Vertex vertexByElement(GephiGraphState state) {
+        return state.graph.vertices(state.nextVertex()).next();
+    }
+
+    @Benchmark
+    public void verticesByIds(GephiGraphState state, Blackhole blackhole) {
+        final Object[] ids = new Object[BATCH_SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = state.nextId();
+        }
+        final Iterator<Vertex> itr = state.graph.vertices(ids);
+        while (itr.hasNext()) {
+            blackhole.consume(itr.next());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link GephiGraph#addVertex(Object...)} and
+ * {@link GephiVertex#addEdge(String, Vertex, Object...)} on a graph growing
+ * from a fresh one at every iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GephiMutationBenchmark {
+
+    @Param({"10000"})
+    public int vertexCount;
+
+    @Param({GephiGraphGenerator.UNIFORM, GephiGraphGenerator.POWER_LAW})
+    public String distribution;
+
+    private GephiGraph graph;
+    private Vertex[] vertices;
+    private GephiGraphGenerator generator;
+    private Random random;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        if (graph != null) {
+            graph.close();
+        }
+        generator = new GephiGraphGenerator(vertexCount, 0, distribution, 42L);
+        graph = GephiGraph.open();
+        vertices = generator.populate(graph);
+        random = new Random(42L);
+    }
+
+    @Benchmark
+    public Vertex addVertex() {
+        return graph.addVertex(T.label, "person", "name", "name", "age", 29);
+    }
+
+    @Benchmark
+    public Vertex addVertexWithId() {
+        return graph.addVertex(T.id, "added" + next++, T.label, "person");
+    }
+
+    @Benchmark
+    public Edge addEdge() {
+        return vertices[generator.pick()].addEdge("knows", vertices[generator.pick()], "weight", random.nextDouble());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of saving a graph on close and of loading it on open, for each
+ * {@link GephiGraph#GREMLIN_GEPHIGRAPH_GRAPH_FORMAT}. The compression only
+ * applies to the {@link GephiGraph#GEPHI_FORMAT} format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GephiPersistenceBenchmark {
+
+    /**
+     * Generated graph and the file it is saved to.
+     */
+    @State(Scope.Benchmark)
+    public static class GraphFile {
+
+        @Param({"10000"})
+        public int vertexCount;
+
+        @Param({"10"})
+        public int averageDegree;
+
+        @Param({GephiGraphGenerator.UNIFORM})
+        public String distribution;
+
+        @Param({"graphml", "graphson", "gryo", GephiGraph.GEPHI_FORMAT})
+        public String format;
+
+        @Param({"none"})
+        public String compression;
+
+        private File directory;
+        File file;
+        GephiGraph source;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("gephi-benchmark").toFile();
+            file = new File(directory, "graph." + format);
+            source = new GephiGraphGenerator(vertexCount, averageDegree, distribution, 42L).generate();
+            // The file read by load()
+            new GephiGraph(configuration(), source.getGraphModel()).close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+            directory.delete();
+        }
+
+        Configuration configuration() {
+            final BaseConfiguration configuration = new BaseConfiguration();
+            configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_GRAPH_LOCATION, file.getAbsolutePath());
+            configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_GRAPH_FORMAT, format);
+            configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_COMPRESSION, compression);
+            return configuration;
+        }
+    }
+
+    /**
+     * Wraps the generated model in a graph saving to the file, which is
+     * removed first so that the graph does not load it.
+     */
+    @State(Scope.Thread)
+    public static class SavedGraph {
+
+        GephiGraph graph;
+
+        @Setup(Level.Invocation)
+        public void setUp(GraphFile graphFile) {
+            graphFile.file.delete();
+            graph = new GephiGraph(graphFile.configuration(), graphFile.source.getGraphModel());
+        }
+    }
+
+    @Benchmark
+    public void save(SavedGraph savedGraph) {
+        savedGraph.graph.close();
+    }
+
+    @Benchmark
+    public GephiGraph load(GraphFile graphFile) {
+        return new GephiGraph(graphFile.configuration());
+    }
+}
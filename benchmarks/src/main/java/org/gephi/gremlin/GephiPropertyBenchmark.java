@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of reading element properties through {@link GephiElement#value(String)}
+ * and {@link GephiElement#properties(String...)}, and of the meta-properties of
+ * a {@link GephiVertexProperty}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GephiPropertyBenchmark {
+
+    /**
+     * Graph whose vertices all have a <code>location</code> property holding
+     * <code>startTime</code> and <code>endTime</code> meta-properties.
+     */
+    @State(Scope.Benchmark)
+    public static class MetaPropertyState {
+
+        @Param({"10000"})
+        public int vertexCount;
+
+        GephiGraph graph;
+        VertexProperty<?>[] properties;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            graph = GephiGraph.open();
+            properties = new VertexProperty<?>[vertexCount];
+            for (int i = 0; i < vertexCount; i++) {
+                Vertex vertex = graph.addVertex(T.label, "person");
+                properties[i] = vertex.property("location", "city" + (i % 100));
+                properties[i].property("startTime", 2000 + i % 20);
+                properties[i].property("endTime", 2020 + i % 5);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            graph.close();
+        }
+
+        VertexProperty<?> nextProperty() {
+            final VertexProperty<?> property = properties[next];
+            next = next + 1 == properties.length ? 0 : next + 1;
+            return property;
+        }
+    }
+
+    @Benchmark
+    public Object value(GephiGraphState state) {
+        return state.nextVertex().value("name");
+    }
+
+    @Benchmark
+    public Object missingValue(GephiGraphState state) {
+        return state.nextVertex().property("missing").orElse(null);
+    }
+
+    @Benchmark
+    public void properties(GephiGraphState state, Blackhole blackhole) {
+        final Iterator<? extends Property<Object>> itr = state.nextVertex().properties();
+        while (itr.hasNext()) {
+            blackhole.consume(itr.next().value());
+        }
+    }
+
+    @Benchmark
+    public Object edgeValue(GephiGraphState state) {
+        final Iterator<Edge> edges = state.nextVertex().edges(Direction.BOTH);
+        return edges.hasNext() ? edges.next().value("weight") : null;
+    }
+
+    @Benchmark
+    public Object metaPropertyValue(MetaPropertyState state) {
+        return state.nextProperty().value("startTime");
+    }
+
+    @Benchmark
+    public void metaProperties(MetaPropertyState state, Blackhole blackhole) {
+        final Iterator<? extends Property<Object>> itr = state.nextProperty().properties();
+        while (itr.hasNext()) {
+            blackhole.consume(itr.next().value());
+        }
+    }
+
+    @Benchmark
+    public Object setMetaProperty(MetaPropertyState state) {
+        return state.nextProperty().property("endTime", 2030);
+    }
+}
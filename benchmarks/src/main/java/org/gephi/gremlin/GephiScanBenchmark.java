@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of full scans of the vertices and edges, through the structure API
+ * and through traversals.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GephiScanBenchmark {
+
+    @Benchmark
+    public void vertices(GephiGraphState state, Blackhole blackhole) {
+        consume(state.graph.vertices(), blackhole);
+    }
+
+    @Benchmark
+    public void edges(GephiGraphState state, Blackhole blackhole) {
+        consume(state.graph.edges(), blackhole);
+    }
+
+    @Benchmark
+    public void vertexValues(GephiGraphState state, Blackhole blackhole) {
+        consume(state.graph.traversal().V().values("age"), blackhole);
+    }
+
+    @Benchmark
+    public Long vertexFilter(GephiGraphState state) {
+        return state.graph.traversal().V().has("age", 42).count().next();
+    }
+
+    @Benchmark
+    public Long edgeCount(GephiGraphState state) {
+        return state.graph.traversal().E().count().next();
+    }
+
+    private static void consume(Iterator<?> itr, Blackhole blackhole) {
+        while (itr.hasNext()) {
+            blackhole.consume(itr.next());
+        }
+    }
+}
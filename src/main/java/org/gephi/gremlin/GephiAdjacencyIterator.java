@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.impl.EdgeImpl;
+import org.gephi.graph.impl.EdgeStore;
+import org.gephi.graph.impl.GraphStore;
+import org.gephi.graph.impl.NodeImpl;
+
+/**
+ * Single pass over the incident edges of a node.
+ * <p/>
+ * The graphstore keeps one linked list of edges per node, direction and edge
+ * type. The labels are resolved once into a set of edge types and only the
+ * matching lists are walked, in type order and outgoing lists first when the
+ * direction is {@link Direction#BOTH}. Self-loops are only returned by the outgoing pass.
+ * <p/>
+ * Between two batches the cursor remembers the last edge it returned and the
+ * one following it. Edges added concurrently are inserted at the head of their
+ * list and are therefore not returned once the cursor passed it. The walk
+ * resumes from the following edge, or from the successor of the last edge if
+ * the following one was removed meanwhile, so removing returned edges as they
+ * come (e.g. <code>drop()</code>) visits the whole list. Only if both are
+ * removed is the rest of their list skipped. Edges removed after their batch
+ * was filled are not returned.
+ * <p/>
+ * When the transaction of the calling thread holds changes, the edges it
+ * removed are skipped and the edges it added are returned after the stored
+ * ones, and counts and lookups walk the edges the same way.
+ */
+final class GephiAdjacencyIterator<T> extends GephiBatchIterator<T> {
+
+    private final NodeImpl node;
+    private final EdgeStore edgeStore;
+    private final int[] types;
+    private final boolean both;
+    private final BiFunction<EdgeImpl, Boolean, T> mapper;
+    private final List<EdgeImpl> edges = new ArrayList<>();
+    private boolean out;
+    private int typeIndex;
+    private EdgeImpl last;
+    private EdgeImpl resume;
+
+    private GephiAdjacencyIterator(GephiVertex vertex, Direction direction, String[] labels, BiFunction<EdgeImpl, Boolean, T> mapper) {
+        super(vertex.graph);
+        this.node = (NodeImpl) vertex.element;
+        this.edgeStore = ((GraphStore) graph.getGraph()).getEdgeStore();
+        this.types = resolveTypes(graph.getGraphModel(), labels);
+        this.both = direction == Direction.BOTH;
+        this.out = direction != Direction.IN;
+        this.mapper = mapper;
+    }
+
+    static Iterator<Edge> edges(GephiVertex vertex, Direction direction, String... labels) {
+        GephiGraph graph = vertex.graph;
+        return withPendingChanges(vertex, direction, labels, (edge, out) -> graph.edge(edge));
+    }
+
+    static Iterator<Vertex> vertices(GephiVertex vertex, Direction direction, String... labels) {
+        GephiGraph graph = vertex.graph;
+        return withPendingChanges(vertex, direction, labels, (edge, out) -> graph.vertex(out ? edge.getTarget() : edge.getSource()));
+    }
+
+    private static <T> Iterator<T> withPendingChanges(GephiVertex vertex, Direction direction, String[] labels, BiFunction<EdgeImpl, Boolean, T> mapper) {
+        GephiTransaction.Buffer buffer = vertex.graph.getPendingChanges();
+        if (buffer == null) {
+            return new GephiAdjacencyIterator<>(vertex, direction, labels, mapper);
+        }
+        return IteratorUtils.concat(
+                new GephiAdjacencyIterator<>(vertex, direction, labels, alive(buffer, mapper)),
+                added(buffer, (NodeImpl) vertex.element, null, direction, labels, mapper).iterator());
+    }
+
+    /**
+     * Maps the edges alive in the pending changes and skips the others.
+     */
+    private static <T> BiFunction<EdgeImpl, Boolean, T> alive(GephiTransaction.Buffer buffer, BiFunction<EdgeImpl, Boolean, T> mapper) {
+        return (edge, out) -> buffer.isAlive(edge) ? mapper.apply(edge, out) : null;
+    }
+
+    /**
+     * Returns the edges added by the pending changes incident to the node, and
+     * to the other node when given, in insertion order.
+     */
+    private static <T> List<T> added(GephiTransaction.Buffer buffer, NodeImpl node, NodeImpl other, Direction direction, String[] labels, BiFunction<EdgeImpl, Boolean, T> mapper) {
+        List<T> list = new ArrayList<>();
+        List<String> labelList = Arrays.asList(labels);
+        for (org.gephi.graph.api.Edge edge : buffer.getAddedEdges()) {
+            if (!labelList.isEmpty() && !labelList.contains(edge.getLabel())) {
+                continue;
+            }
+            T mapped = null;
+            if (direction != Direction.IN && edge.getSource() == node && (other == null || edge.getTarget() == other)) {
+                mapped = mapper.apply((EdgeImpl) edge, true);
+            } else if (direction != Direction.OUT && edge.getTarget() == node && (other == null || edge.getSource() == other)
+                    && (direction == Direction.IN || !edge.isSelfLoop())) {
+                mapped = mapper.apply((EdgeImpl) edge, false);
+            }
+            if (mapped != null) {
+                list.add(mapped);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Walks the incident edges with a custom mapper, called with the read lock
+     * held and with <code>true</code> during the outgoing pass. Edges mapped
+     * to <code>null</code> are skipped.
+     */
+    static <T> Iterator<T> of(GephiVertex vertex, Direction direction, String[] labels, BiFunction<EdgeImpl, Boolean, T> mapper) {
+        return new GephiAdjacencyIterator<>(vertex, direction, labels, mapper);
+    }
+
+    /**
+     * Returns the number of edges the iterator would return, without walking
+     * the edges when no label is given: the graphstore keeps the in and out
+     * degrees of each node and only the self-loops, counted in both, are
+     * looked for in the shorter list for {@link Direction#BOTH}. Edges of
+     * given labels are counted by walking the lists of their types.
+     */
+    static long count(GephiVertex vertex, Direction direction, String[] labels) {
+        if (vertex.graph.getPendingChanges() != null) {
+            return IteratorUtils.count(withPendingChanges(vertex, direction, labels, (edge, out) -> edge));
+        }
+        NodeImpl node = (NodeImpl) vertex.element;
+        Graph store = vertex.graph.getGraph();
+        store.readLock();
+        try {
+            if (node.getStoreId() == -1) {
+                return 0;
+            }
+            EdgeStore edgeStore = ((GraphStore) store).getEdgeStore();
+            if (labels.length == 0) {
+                switch (direction) {
+                    case OUT:
+                        return node.getOutDegree();
+                    case IN:
+                        return node.getInDegree();
+                    default:
+                        long selfLoops = 0;
+                        Iterator<org.gephi.graph.api.Edge> itr = node.getOutDegree() <= node.getInDegree() ? edgeStore.edgeOutIterator(node) : edgeStore.edgeInIterator(node);
+                        while (itr.hasNext()) {
+                            if (itr.next().isSelfLoop()) {
+                                selfLoops++;
+                            }
+                        }
+                        return node.getOutDegree() + node.getInDegree() - selfLoops;
+                }
+            }
+            long count = 0;
+            for (int type : resolveTypes(vertex.graph.getGraphModel(), labels)) {
+                if (direction != Direction.IN) {
+                    Iterator<org.gephi.graph.api.Edge> itr = edgeStore.edgeOutIterator(node, type);
+                    while (itr.hasNext()) {
+                        itr.next();
+                        count++;
+                    }
+                }
+                if (direction != Direction.OUT) {
+                    Iterator<org.gephi.graph.api.Edge> itr = edgeStore.edgeInIterator(node, type);
+                    while (itr.hasNext()) {
+                        // Self-loops were counted by the outgoing pass
+                        if (!itr.next().isSelfLoop() || direction == Direction.IN) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            return count;
+        } finally {
+            store.readUnlock();
+        }
+    }
+
+    /**
+     * Returns the edges between the vertex and another node, mapped as by the
+     * iterator. They are looked up per edge type and direction in the edge
+     * dictionary of the graphstore instead of walking the adjacency of the
+     * vertex, and a self-loop is returned once for {@link Direction#BOTH}.
+     */
+    static <T> List<T> between(GephiVertex vertex, NodeImpl other, Direction direction, String[] labels, BiFunction<EdgeImpl, Boolean, T> mapper) {
+        NodeImpl node = (NodeImpl) vertex.element;
+        Graph store = vertex.graph.getGraph();
+        GephiTransaction.Buffer buffer = vertex.graph.getPendingChanges();
+        BiFunction<EdgeImpl, Boolean, T> storedMapper = buffer == null ? mapper : alive(buffer, mapper);
+        List<T> list = new ArrayList<>();
+        store.readLock();
+        try {
+            if (node.getStoreId() != -1 && other.getStoreId() != -1) {
+                for (int type : resolveTypes(vertex.graph.getGraphModel(), labels)) {
+                    if (direction != Direction.IN) {
+                        for (org.gephi.graph.api.Edge edge : store.getEdges(node, other, type)) {
+                            add(list, storedMapper.apply((EdgeImpl) edge, true));
+                        }
+                    }
+                    if (direction != Direction.OUT && (direction == Direction.IN || node != other)) {
+                        for (org.gephi.graph.api.Edge edge : store.getEdges(other, node, type)) {
+                            add(list, storedMapper.apply((EdgeImpl) edge, false));
+                        }
+                    }
+                }
+            }
+        } finally {
+            store.readUnlock();
+        }
+        if (buffer != null) {
+            list.addAll(added(buffer, node, other, direction, labels, mapper));
+        }
+        return list;
+    }
+
+    private static <T> void add(List<T> list, T mapped) {
+        if (mapped != null) {
+            list.add(mapped);
+        }
+    }
+
+    /**
+     * Returns whether {@link #between(GephiVertex, NodeImpl, Direction, String[], BiFunction)}
+     * would return an edge.
+     */
+    static boolean exists(GephiVertex vertex, NodeImpl other, Direction direction, String[] labels) {
+        if (vertex.graph.getPendingChanges() != null) {
+            return !between(vertex, other, direction, labels, (edge, out) -> edge).isEmpty();
+        }
+        NodeImpl node = (NodeImpl) vertex.element;
+        Graph store = vertex.graph.getGraph();
+        store.readLock();
+        try {
+            if (node.getStoreId() == -1 || other.getStoreId() == -1) {
+                return false;
+            }
+            for (int type : resolveTypes(vertex.graph.getGraphModel(), labels)) {
+                if ((direction != Direction.IN && store.isAdjacent(node, other, type))
+                        || (direction != Direction.OUT && store.isAdjacent(other, node, type))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            store.readUnlock();
+        }
+    }
+
+    private static int[] resolveTypes(GraphModel graphModel, String[] labels) {
+        if (labels.length == 0) {
+            int[] types = graphModel.getEdgeTypes();
+            Arrays.sort(types);
+            return types;
+        }
+        int[] types = new int[labels.length];
+        int count = 0;
+        for (String label : labels) {
+            int type = graphModel.getEdgeType(label);
+            if (type != -1) {
+                types[count++] = type;
+            }
+        }
+        return Arrays.stream(types, 0, count).sorted().distinct().toArray();
+    }
+
+    @Override
+    protected boolean fill(List<T> batch) {
+        edges.clear();
+        if (node.getStoreId() == -1) {
+            return false;
+        }
+        while (batch.size() < BATCH_SIZE) {
+            EdgeImpl edge;
+            if (last == null) {
+                if (typeIndex == types.length) {
+                    if (both && out) {
+                        out = false;
+                        typeIndex = 0;
+                        continue;
+                    }
+                    return false;
+                }
+                edge = head(types[typeIndex]);
+            } else if (resume != null) {
+                edge = resume.getStoreId() != -1 ? resume : successor(last);
+                resume = null;
+            } else {
+                edge = successor(last);
+            }
+
+            if (edge == null) {
+                last = null;
+                typeIndex++;
+            } else {
+                last = edge;
+                if (out || !both || !edge.isSelfLoop()) {
+                    T mapped = mapper.apply(edge, out);
+                    if (mapped != null) {
+                        batch.add(mapped);
+                        edges.add(edge);
+                    }
+                }
+            }
+        }
+        resume = successor(last);
+        return true;
+    }
+
+    @Override
+    protected boolean isRemoved(int index, T element) {
+        EdgeImpl edge = edges.get(index);
+        GephiTransaction.Buffer buffer = graph.getPendingChanges();
+        return buffer == null ? edge.getStoreId() == -1 : !buffer.isAlive(edge);
+    }
+
+    /**
+     * Returns the edge following one in its list, or <code>null</code> at the
+     * end of the list or if the edge was removed.
+     */
+    private EdgeImpl successor(EdgeImpl edge) {
+        if (edge == null || edge.getStoreId() == -1) {
+            return null;
+        }
+        int next = out ? edge.getNextOutEdge() : edge.getNextInEdge();
+        return next != -1 ? edgeStore.get(next) : null;
+    }
+
+    private EdgeImpl head(int type) {
+        Iterator<org.gephi.graph.api.Edge> itr = out ? edgeStore.edgeOutIterator(node, type) : edgeStore.edgeInIterator(node, type);
+        if (!itr.hasNext()) {
+            // Exhausted iterators release their own read lock
+            return null;
+        }
+        EdgeImpl head = (EdgeImpl) itr.next();
+        edgeStore.doBreak();
+        return head;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.gephi.graph.api.Graph;
+
+/**
+ * Base class for lazy iterators over the graphstore.
+ * <p/>
+ * The graphstore iterators hold the graph read lock until they are exhausted,
+ * so handing them out to a traversal that may stop early (e.g. with
+ * <code>limit()</code>) would leave the lock held and make any later write
+ * from the same thread fail. Instead, subclasses keep their own cursor and are
+ * asked to fill a small batch at a time; the read lock is only held while a
+ * batch is being filled. Elements removed after their batch was filled are
+ * skipped.
+ */
+abstract class GephiBatchIterator<T> implements Iterator<T> {
+
+    static final int BATCH_SIZE = 1024;
+
+    protected final GephiGraph graph;
+    private final List<T> batch = new ArrayList<>();
+    private int cursor;
+    private boolean exhausted;
+
+    GephiBatchIterator(GephiGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Appends up to {@link #BATCH_SIZE} elements to <code>batch</code>. Called
+     * with the graph read lock held.
+     *
+     * @return <code>false</code> once the cursor reached the end
+     */
+    protected abstract boolean fill(List<T> batch);
+
+    /**
+     * Returns whether the element at <code>index</code> of the current batch
+     * was removed since the batch was filled, in which case it is skipped.
+     */
+    protected boolean isRemoved(int index, T element) {
+        return element instanceof GephiElement && !((GephiElement<?>) element).isValid();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (true) {
+            while (cursor < batch.size()) {
+                if (!isRemoved(cursor, batch.get(cursor))) {
+                    return true;
+                }
+                cursor++;
+            }
+            if (exhausted) {
+                return false;
+            }
+            batch.clear();
+            cursor = 0;
+
+            Graph store = graph.getGraph();
+            store.readLock();
+            try {
+                exhausted = !fill(batch);
+            } finally {
+                store.readUnlock();
+            }
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(cursor++);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Channels framing a {@link GephiGraph#GEPHI_FORMAT} snapshot in compressed
+ * blocks, placed under {@link GephiDataOutput} and {@link GephiDataInput}.
+ * <p/>
+ * The stream starts with a header holding {@link #MAGIC}, the codec id and
+ * the block size. Each block is written as [int raw length][int stored
+ * length][int crc32 of the raw bytes][stored bytes], the block being stored
+ * uncompressed when the codec does not shrink it. A block of raw length 0
+ * ends the stream, so that it can be embedded in a larger stream.
+ */
+final class GephiBlockChannel {
+
+    // The first byte of a plain snapshot is a serialization code, never 0xFF
+    static final int MAGIC = 0xFF47505A;
+    static final int BLOCK_SIZE = 1 << 18;
+    private static final int HEADER_SIZE = 9;
+    private static final int BLOCK_HEADER_SIZE = 12;
+
+    private GephiBlockChannel() {
+    }
+
+    /**
+     * Returns whether the file holds a compressed snapshot, without moving the
+     * channel position.
+     */
+    static boolean isCompressed(FileChannel channel) throws IOException {
+        final ByteBuffer head = ByteBuffer.allocate(4);
+        while (head.hasRemaining()) {
+            if (channel.read(head, head.position()) < 0) {
+                return false;
+            }
+        }
+        head.flip();
+        return head.getInt() == MAGIC;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated compressed snapshot");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Compresses the written bytes to the target channel. Closing it writes
+     * the last block and the end marker but leaves the target open.
+     */
+    static final class Writer implements WritableByteChannel {
+
+        private final WritableByteChannel target;
+        private final GephiSnapshotCodec codec;
+        private final byte[] raw;
+        private final byte[] compressed;
+        private final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private int length;
+        private boolean open = true;
+
+        Writer(WritableByteChannel target, GephiSnapshotCodec codec) throws IOException {
+            this.target = target;
+            this.codec = codec;
+            this.raw = new byte[BLOCK_SIZE];
+            this.compressed = new byte[codec.maxCompressedLength(BLOCK_SIZE)];
+            final ByteBuffer start = ByteBuffer.allocate(HEADER_SIZE);
+            start.putInt(MAGIC).put((byte) codec.getId()).putInt(BLOCK_SIZE).flip();
+            writeFully(target, start);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            final int n = src.remaining();
+            while (src.hasRemaining()) {
+                if (length == raw.length) {
+                    writeBlock();
+                }
+                final int step = Math.min(src.remaining(), raw.length - length);
+                src.get(raw, length, step);
+                length += step;
+            }
+            return n;
+        }
+
+        private void writeBlock() throws IOException {
+            crc.reset();
+            crc.update(raw, 0, length);
+            final int compressedLength = codec.compress(raw, length, compressed);
+            final boolean stored = compressedLength >= length;
+            final int storedLength = stored ? length : compressedLength;
+            header.clear();
+            header.putInt(length).putInt(storedLength).putInt((int) crc.getValue()).flip();
+            writeFully(target, header);
+            writeFully(target, ByteBuffer.wrap(stored ? raw : compressed, 0, storedLength));
+            length = 0;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (open) {
+                open = false;
+                if (length > 0) {
+                    writeBlock();
+                }
+                header.clear();
+                header.putInt(0).putInt(0).putInt(0).flip();
+                writeFully(target, header);
+            }
+        }
+    }
+
+    /**
+     * Decompresses blocks from the source channel, checking their checksums.
+     * It reads no further than the end marker and leaves the source open.
+     */
+    static final class Reader implements ReadableByteChannel {
+
+        private final ReadableByteChannel source;
+        private final GephiSnapshotCodec codec;
+        private final byte[] compressed;
+        private final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer block;
+        private boolean ended;
+
+        Reader(ReadableByteChannel source) throws IOException {
+            this.source = source;
+            final ByteBuffer start = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(source, start);
+            if (start.getInt() != MAGIC) {
+                throw new IOException("Not a compressed snapshot");
+            }
+            this.codec = GephiSnapshotCodec.forId(start.get());
+            final int blockSize = start.getInt();
+            // Only sizes the writer can produce are accepted, as the buffers are allocated from it
+            if (blockSize <= 0 || blockSize > BLOCK_SIZE) {
+                throw new IOException("Invalid block size " + blockSize);
+            }
+            this.compressed = new byte[codec.maxCompressedLength(blockSize)];
+            this.block = ByteBuffer.allocate(blockSize);
+            this.block.flip();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!block.hasRemaining() && !readBlock()) {
+                return -1;
+            }
+            final int n = Math.min(dst.remaining(), block.remaining());
+            final int limit = block.limit();
+            block.limit(block.position() + n);
+            dst.put(block);
+            block.limit(limit);
+            return n;
+        }
+
+        private boolean readBlock() throws IOException {
+            if (ended) {
+                return false;
+            }
+            header.clear();
+            readFully(source, header);
+            final int rawLength = header.getInt();
+            final int storedLength = header.getInt();
+            final int checksum = header.getInt();
+            if (rawLength == 0) {
+                ended = true;
+                return false;
+            }
+            if (rawLength < 0 || rawLength > block.capacity() || storedLength <= 0 || storedLength > compressed.length) {
+                throw new IOException(String.format("Invalid block lengths %d and %d", rawLength, storedLength));
+            }
+            readFully(source, ByteBuffer.wrap(compressed, 0, storedLength));
+            final byte[] raw = block.array();
+            if (storedLength == rawLength) {
+                System.arraycopy(compressed, 0, raw, 0, rawLength);
+            } else {
+                codec.decompress(compressed, storedLength, raw, rawLength);
+            }
+            crc.reset();
+            crc.update(raw, 0, rawLength);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in compressed snapshot block");
+            }
+            block.position(0).limit(rawLength);
+            return true;
+        }
+
+        /**
+         * Consumes the remaining blocks up to the end marker.
+         */
+        void finish() throws IOException {
+            while (readBlock()) {
+                block.position(block.limit());
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
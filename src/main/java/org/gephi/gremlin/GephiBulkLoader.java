@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+
+/**
+ * Batched ingest into a {@link GephiGraph}.
+ * <p/>
+ * Vertices and edges are created detached from the store with their
+ * properties already set, and every batch is inserted with
+ * <code>addAllNodes</code> and <code>addAllEdges</code> under a single write
+ * lock. Edge types are resolved once per label.
+ * <p/>
+ * The vertices returned by {@link #addVertex(Object...)} can be used as edge
+ * endpoints right away but are only part of the graph once their batch is
+ * flushed. The loader must be closed to flush the last batch. A batch that
+ * fails to insert is discarded as a whole.
+ * <p/>
+ * The loader writes to the store directly, so it cannot be used from a
+ * thread with an open transaction.
+ */
+public final class GephiBulkLoader implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 100000;
+
+    private final GephiGraph graph;
+    private final GraphModel graphModel;
+    private final int batchSize;
+    private final boolean checkIds;
+    private final Consumer<GephiBulkLoader> flushListener;
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<Edge> edges = new ArrayList<>();
+    private final Map<Object, Node> pendingNodes = new HashMap<>();
+    private final Map<Object, Edge> pendingEdges = new HashMap<>();
+    private final Object2IntOpenHashMap<String> edgeTypes = new Object2IntOpenHashMap<>();
+    private final long startTime = System.nanoTime();
+    private long flushTime;
+    private long vertexCount;
+    private long edgeCount;
+
+    private GephiBulkLoader(final Builder builder) {
+        this.graph = builder.graph;
+        this.graphModel = builder.graph.getGraphModel();
+        this.batchSize = builder.batchSize;
+        this.checkIds = builder.checkIds;
+        this.flushListener = builder.flushListener;
+        this.edgeTypes.defaultReturnValue(-1);
+    }
+
+    public Vertex addVertex(final Object... keyValues) {
+        ElementHelper.legalPropertyKeyValueArray(keyValues);
+        Object idValue = null;
+        String label = Vertex.DEFAULT_LABEL;
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (keyValues[i] == T.id) {
+                idValue = keyValues[i + 1];
+            } else if (keyValues[i] == T.label) {
+                label = (String) keyValues[i + 1];
+            }
+        }
+        ElementHelper.validateLabel(label);
+
+        final Node node;
+        if (idValue == null) {
+            node = graphModel.factory().newNode();
+        } else {
+            if (!(idValue instanceof String)) {
+                throw Vertex.Exceptions.userSuppliedIdsOfThisTypeNotSupported();
+            }
+            if (checkIds && (pendingNodes.containsKey(idValue) || graph.getGraph().getNode(idValue) != null)) {
+                throw Graph.Exceptions.vertexWithIdAlreadyExists(idValue);
+            }
+            node = graphModel.factory().newNode(idValue);
+            pendingNodes.put(idValue, node);
+        }
+        node.setLabel(label);
+        setProperties(node, graph.getNodeColumns(), keyValues);
+
+        nodes.add(node);
+        if (nodes.size() >= batchSize) {
+            flush();
+        }
+        return graph.vertex(node);
+    }
+
+    /**
+     * Adds an edge between two vertices given either as {@link Vertex}
+     * instances or as ids of vertices added to the graph or to this loader.
+     */
+    public org.apache.tinkerpop.gremlin.structure.Edge addEdge(final Object outVertex, final String label, final Object inVertex, final Object... keyValues) {
+        ElementHelper.validateLabel(label);
+        ElementHelper.legalPropertyKeyValueArray(keyValues);
+        Object idValue = null;
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (keyValues[i] == T.id) {
+                idValue = keyValues[i + 1];
+            }
+        }
+        final Node source = getNode(outVertex);
+        final Node target = getNode(inVertex);
+
+        int type = edgeTypes.getInt(label);
+        if (type == -1) {
+            type = graphModel.addEdgeType(label);
+            edgeTypes.put(label, type);
+        }
+
+        final Edge edge;
+        if (idValue == null) {
+            edge = graphModel.factory().newEdge(source, target, type, true);
+        } else {
+            if (!(idValue instanceof String)) {
+                throw org.apache.tinkerpop.gremlin.structure.Edge.Exceptions.userSuppliedIdsOfThisTypeNotSupported();
+            }
+            if (checkIds && (pendingEdges.containsKey(idValue) || graph.getGraph().getEdge(idValue) != null)) {
+                throw Graph.Exceptions.edgeWithIdAlreadyExists(idValue);
+            }
+            edge = graphModel.factory().newEdge(idValue, source, target, type, 1.0, true);
+            pendingEdges.put(idValue, edge);
+        }
+        edge.setLabel(label);
+        setProperties(edge, graph.getEdgeColumns(), keyValues);
+
+        edges.add(edge);
+        if (edges.size() >= batchSize) {
+            flush();
+        }
+        return graph.edge(edge);
+    }
+
+    /**
+     * Inserts the pending vertices, then the pending edges, under one write
+     * lock and notifies the flush listener. When the store rejects an element
+     * of the batch, such as a duplicate id with {@link Builder#checkIds(boolean)}
+     * disabled, the part of the batch already inserted is removed, the batch
+     * is discarded and the exception is rethrown.
+     *
+     * @throws IllegalStateException if the thread has a transaction open
+     */
+    public void flush() {
+        if (nodes.isEmpty() && edges.isEmpty()) {
+            return;
+        }
+        checkNoTransaction(graph);
+        final org.gephi.graph.api.Graph store = graph.getGraph();
+        graph.writeLock();
+        try {
+            int nodeCount = store.getNodeCount();
+            int edgeCount = store.getEdgeCount();
+            try {
+                store.addAllNodes(nodes);
+                store.addAllEdges(edges);
+            } catch (RuntimeException e) {
+                discard(store);
+                throw e;
+            }
+            // Indexed under the same lock so label lookups and removals see the nodes as the store does
+            for (Node node : nodes) {
+                graph.getLabelIndex().add(node);
+            }
+            this.vertexCount += store.getNodeCount() - nodeCount;
+            this.edgeCount += store.getEdgeCount() - edgeCount;
+            final GephiWriteAheadLog log = graph.getWriteAheadLog();
+            if (log != null) {
+                nodes.forEach(log::addNode);
+                for (Edge edge : edges) {
+                    // Duplicate edges are left out of the store
+                    if (edge.getStoreId() != -1) {
+                        log.addEdge(edge);
+                    }
+                }
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+        clear();
+        flushTime = System.nanoTime();
+        if (flushListener != null) {
+            flushListener.accept(this);
+        }
+    }
+
+    /**
+     * Removes the elements of the batch the store accepted before failing,
+     * so that the store, the label index and the log stay in step, and
+     * clears the batch.
+     */
+    private void discard(final org.gephi.graph.api.Graph store) {
+        try {
+            for (Edge edge : edges) {
+                if (edge.getStoreId() != -1) {
+                    store.removeEdge(edge);
+                }
+            }
+            for (Node node : nodes) {
+                if (node.getStoreId() != -1) {
+                    store.removeNode(node);
+                }
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    private void clear() {
+        nodes.clear();
+        edges.clear();
+        pendingNodes.clear();
+        pendingEdges.clear();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Returns the number of vertices inserted so far.
+     */
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of edges inserted so far. Edges duplicating an
+     * existing edge of the same label between the same vertices are not
+     * counted as the store ignores them.
+     */
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the time from the creation of the loader to the last flush.
+     */
+    public long getElapsedTime(final TimeUnit unit) {
+        return unit.convert(flushTime == 0 ? 0 : flushTime - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of vertices and edges inserted per second.
+     */
+    public double getThroughput() {
+        final long elapsed = getElapsedTime(TimeUnit.NANOSECONDS);
+        return elapsed == 0 ? 0.0 : (vertexCount + edgeCount) * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("gephibulkloader[vertices:%d edges:%d elapsed:%dms throughput:%.0f/s]",
+                vertexCount, edgeCount, getElapsedTime(TimeUnit.MILLISECONDS), getThroughput());
+    }
+
+    private static void checkNoTransaction(final GephiGraph graph) {
+        if (graph.isTransactionOpen()) {
+            throw new IllegalStateException("The bulk loader cannot be used while a transaction is open");
+        }
+    }
+
+    private Node getNode(final Object vertex) {
+        if (vertex == null) {
+            throw Graph.Exceptions.argumentCanNotBeNull("vertex");
+        } else if (vertex instanceof GephiVertex) {
+            return ((GephiVertex) vertex).element;
+        }
+        final Object id = vertex instanceof Vertex ? ((Vertex) vertex).id() : vertex;
+        Node node = pendingNodes.get(id);
+        if (node == null) {
+            node = graph.getGraph().getNode(id);
+            if (node == null) {
+                throw Graph.Exceptions.elementNotFound(Vertex.class, id);
+            }
+        }
+        return node;
+    }
+
+    private void setProperties(final org.gephi.graph.api.Element element, final GephiColumnCache columns, final Object... keyValues) {
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (keyValues[i] instanceof String) {
+                final String key = (String) keyValues[i];
+                final Object value = keyValues[i + 1];
+                ElementHelper.validateProperty(key, value);
+                element.setAttribute(columns.addColumn(key, value.getClass()), value);
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final GephiGraph graph;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private boolean checkIds = true;
+        private Consumer<GephiBulkLoader> flushListener;
+
+        Builder(final GephiGraph graph) {
+            this.graph = graph;
+        }
+
+        /**
+         * Sets the number of vertices or edges pending before a flush.
+         */
+        public Builder batchSize(final int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * When disabled, user supplied ids are not checked against the graph
+         * when added. A duplicate id is still rejected by the store when its
+         * batch is flushed, with an {@link IllegalArgumentException}, and the
+         * whole batch is discarded.
+         */
+        public Builder checkIds(final boolean checkIds) {
+            this.checkIds = checkIds;
+            return this;
+        }
+
+        /**
+         * Sets a listener called after every flush, typically to report
+         * {@link GephiBulkLoader#getThroughput()}.
+         */
+        public Builder onFlush(final Consumer<GephiBulkLoader> flushListener) {
+            this.flushListener = flushListener;
+            return this;
+        }
+
+        /**
+         * @throws IllegalStateException if the thread has a transaction open
+         */
+        public GephiBulkLoader create() {
+            checkNoTransaction(graph);
+            return new GephiBulkLoader(this);
+        }
+    }
+}
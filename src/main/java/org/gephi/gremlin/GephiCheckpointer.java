@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gephi.graph.api.Graph;
+
+/**
+ * Writes snapshots of a {@link GephiGraph} to its location in the
+ * {@link GephiGraph#GEPHI_FORMAT} format from a background thread, every
+ * interval or once enough changes were made.
+ * <p/>
+ * The model is serialized under the read lock straight into a temporary
+ * file, compressed with the codec of the graph, so that no copy of the model
+ * is kept on the heap whatever its size. The file then atomically replaces
+ * the previous snapshot and the records of the {@link GephiWriteAheadLog} it
+ * covers are dropped.
+ * <p/>
+ * Known limitation: the graphstore serializes the model from a consistent
+ * state only, so writers wait for the whole serialization, about a second per
+ * million edges. Readers are not held.
+ */
+final class GephiCheckpointer {
+
+    private final GephiGraph graph;
+    private final File file;
+    private final long changeThreshold;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Exception failure;
+
+    /**
+     * @param interval milliseconds between checkpoints, or 0 to only
+     * checkpoint on changes
+     * @param changeThreshold number of changes triggering a checkpoint, or 0
+     * to only checkpoint on the interval
+     */
+    GephiCheckpointer(GephiGraph graph, File file, long interval, long changeThreshold) {
+        this.graph = graph;
+        this.file = file;
+        this.changeThreshold = changeThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GephiCheckpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (interval > 0) {
+            executor.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Counts a change made to the graph and schedules a checkpoint when the
+     * threshold is reached.
+     */
+    void onChange() {
+        if (changes.incrementAndGet() >= changeThreshold && changeThreshold > 0 && pending.compareAndSet(false, true)) {
+            executor.execute(this::run);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the graph now, from the calling thread.
+     */
+    synchronized void checkpoint() throws IOException {
+        final Graph store = graph.getGraph();
+        final GephiWriteAheadLog log = graph.getWriteAheadLog();
+        final File tmp = new File(file.getPath() + ".tmp");
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        final long mark;
+        store.readLock();
+        try {
+            changes.set(0);
+            mark = log != null ? log.mark() : 0;
+            graph.writeGraphModel(tmp);
+        } finally {
+            store.readUnlock();
+        }
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        if (log != null) {
+            log.truncate(mark);
+        }
+    }
+
+    /**
+     * Stops the background checkpoints, waiting for the running one.
+     */
+    void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final Exception e = failure;
+        if (e != null) {
+            throw new RuntimeException(String.format("Could not checkpoint the graph at %s", file), e);
+        }
+    }
+
+    private void run() {
+        pending.set(false);
+        if (changes.get() == 0) {
+            return;
+        }
+        try {
+            checkpoint();
+            failure = null;
+        } catch (IOException | UncheckedIOException e) {
+            // Kept for close(), the next checkpoint retries
+            failure = e;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.Origin;
+import org.gephi.graph.api.Table;
+
+/**
+ * Resolved columns of the node or edge table of a graph. Looking up a column
+ * by key in the table takes the table lock and hashes the key, and the
+ * meta-property columns of a vertex property were found by building their id
+ * or scanning the table. The columns are resolved once and cached here, with
+ * the keys missing from the table, until a column is added through
+ * {@link #addColumn(String, Class)} or {@link #addMetaColumn(Column, String, Class)}
+ * or the cache is invalidated.
+ */
+final class GephiColumnCache {
+
+    private static final Object MISSING = new Object();
+    private final GephiGraph graph;
+    private final Table table;
+    private volatile Resolved resolved = new Resolved();
+
+    GephiColumnCache(final GephiGraph graph, final Table table) {
+        this.graph = graph;
+        this.table = table;
+    }
+
+    Table getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the property key of a column. The graphstore lowercases column
+     * ids, the key keeps the case it was first given with, held by the title.
+     */
+    static String key(final Column column) {
+        final String title = column.getTitle();
+        return title != null && title.equalsIgnoreCase(column.getId()) ? title : column.getId();
+    }
+
+    /**
+     * Returns the column of the key, or <code>null</code> if the table has
+     * none.
+     */
+    Column getColumn(final String key) {
+        final Resolved current = this.resolved;
+        final Object column = current.columns.get(key);
+        if (column != null) {
+            return column == MISSING ? null : (Column) column;
+        }
+        final Column col = table.getColumn(key);
+        current.columns.put(key, col == null ? MISSING : col);
+        return col;
+    }
+
+    /**
+     * Returns all the columns of the table, in table order. The array must not
+     * be modified.
+     */
+    Column[] getColumns() {
+        final Resolved current = this.resolved;
+        Column[] columns = current.all;
+        if (columns == null) {
+            columns = table.toArray();
+            current.all = columns;
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the meta-property column of the key on the properties of the
+     * column, or <code>null</code> if it was never set.
+     */
+    Column getMetaColumn(final Column column, final String key) {
+        return getMetaColumns(column).byKey.get(key.toLowerCase());
+    }
+
+    /**
+     * Returns the meta-property columns of the properties of the column.
+     */
+    List<Column> getMetaColumnList(final Column column) {
+        return getMetaColumns(column).list;
+    }
+
+    private MetaColumns getMetaColumns(final Column column) {
+        final Resolved current = this.resolved;
+        MetaColumns metaColumns = current.metaColumns.get(column);
+        if (metaColumns == null) {
+            metaColumns = new MetaColumns(column, getColumns());
+            current.metaColumns.put(column, metaColumns);
+        }
+        return metaColumns;
+    }
+
+    /**
+     * Returns the column of the key, adding a data column for values of the
+     * type when missing. Must be called under the write lock.
+     */
+    Column addColumn(final String key, final Class<?> type) {
+        Column column = getColumn(key);
+        if (column == null) {
+            column = table.addColumn(key, null, type, Origin.DATA, null, true);
+            invalidate();
+            final GephiWriteAheadLog log = graph.getWriteAheadLog();
+            if (log != null) {
+                log.addColumn(table, column);
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Returns the meta-property column of the key on the properties of the
+     * column, adding it for values of the type when missing. Must be called
+     * under the write lock.
+     */
+    Column addMetaColumn(final Column column, final String key, final Class<?> type) {
+        Column metaColumn = getMetaColumn(column, key);
+        if (metaColumn == null) {
+            final String id = GephiVertexProperty.metaColumnId(column, key);
+            metaColumn = table.addColumn(id, id, type, Origin.PROPERTY, null, false);
+            invalidate();
+            final GephiWriteAheadLog log = graph.getWriteAheadLog();
+            if (log != null) {
+                log.addColumn(table, metaColumn);
+            }
+        }
+        return metaColumn;
+    }
+
+    /**
+     * Drops the resolved columns, to be called after the columns of the table
+     * changed. Lookups racing with the change fill the dropped state only.
+     */
+    void invalidate() {
+        this.resolved = new Resolved();
+    }
+
+    private static final class Resolved {
+
+        private final Map<String, Object> columns = new ConcurrentHashMap<>();
+        private final Map<Column, MetaColumns> metaColumns = new ConcurrentHashMap<>();
+        private volatile Column[] all;
+    }
+
+    private static final class MetaColumns {
+
+        private final List<Column> list;
+        private final Map<String, Column> byKey;
+
+        MetaColumns(final Column column, final Column[] columns) {
+            final String prefix = column.getId() + GephiVertexProperty.PROPERTY_SEPARATOR;
+            final List<Column> metaColumns = new ArrayList<>();
+            final Map<String, Column> keys = new HashMap<>();
+            for (Column col : columns) {
+                if (col.isProperty() && col.getId().startsWith(prefix)) {
+                    metaColumns.add(col);
+                    keys.put(col.getId().substring(prefix.length()), col);
+                }
+            }
+            this.list = Collections.unmodifiableList(metaColumns);
+            this.byKey = keys;
+        }
+    }
+}
@@ -36,17 +36,17 @@ public final class GephiColumnProperty<V> implements Property<V> {
 
     @Override
     public String key() {
-        return column.getId();
+        return GephiColumnCache.key(column);
     }
 
     @Override
     public V value() throws NoSuchElementException {
-        return (V) element.element.getAttribute(column);
+        return (V) element.getAttribute(column);
     }
 
     @Override
     public boolean isPresent() {
-        return element.element.getAttribute(column) != null;
+        return element.getAttribute(column) != null;
     }
 
     @Override
@@ -56,7 +56,7 @@ public final class GephiColumnProperty<V> implements Property<V> {
 
     @Override
     public void remove() {
-        element.element.removeAttribute(column);
+        element.removeAttribute(column);
     }
 
     @Override
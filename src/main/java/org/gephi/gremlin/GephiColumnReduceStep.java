@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import org.apache.tinkerpop.gremlin.process.traversal.NumberHelper;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.MeanGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.gephi.graph.api.Column;
+
+/**
+ * Start step emitting the sum, minimum, maximum or mean of a numeric property
+ * of all the vertices or edges, in place of a {@link GephiGraphStep} followed
+ * by <code>values(key)</code> and the reducing step. The column is read with
+ * {@link GephiColumnValues} and reduced over the primitive array, the result
+ * having the type the reducing step would have produced.
+ */
+public final class GephiColumnReduceStep<S> extends AbstractStep<S, Number> {
+
+    public enum Reduction {
+        SUM, MIN, MAX, MEAN
+    }
+
+    private final Class<? extends Element> elementClass;
+    private final String key;
+    private final Reduction reduction;
+    private boolean done = false;
+
+    public GephiColumnReduceStep(final Traversal.Admin traversal, final Class<? extends Element> elementClass, final String key, final Reduction reduction) {
+        super(traversal);
+        this.elementClass = elementClass;
+        this.key = key;
+        this.reduction = reduction;
+    }
+
+    @Override
+    protected Traverser.Admin<Number> processNextStart() {
+        if (this.done) {
+            throw FastNoSuchElementException.instance();
+        }
+        this.done = true;
+        final GephiGraph graph = (GephiGraph) this.getTraversal().getGraph().get();
+        return this.getTraversal().getTraverserGenerator().generate(reduce(graph), (Step) this, 1L);
+    }
+
+    private Number reduce(final GephiGraph graph) {
+        final Column column = GephiColumnValues.getColumn(graph, elementClass, key);
+        final Class<?> type = column == null ? null : column.getTypeClass();
+        if (type == Double.class || type == Float.class) {
+            final double[] values = GephiColumnValues.readDoubles(graph, column);
+            return values.length == 0 ? empty() : reduce(values, type == Float.class);
+        }
+        final long[] values = column == null ? new long[0] : GephiColumnValues.readLongs(graph, column);
+        return values.length == 0 ? empty() : reduce(values, type);
+    }
+
+    /**
+     * Returns the value the reducing step emits without input.
+     */
+    private Number empty() {
+        switch (reduction) {
+            case SUM:
+                return 0;
+            case MEAN:
+                return new MeanGlobalStep.MeanNumber().getFinal();
+            default:
+                return null;
+        }
+    }
+
+    private Number reduce(final long[] values, final Class<?> type) {
+        long result;
+        switch (reduction) {
+            case MIN:
+                result = Long.MAX_VALUE;
+                for (long value : values) {
+                    result = Math.min(result, value);
+                }
+                return typed(result, type);
+            case MAX:
+                result = Long.MIN_VALUE;
+                for (long value : values) {
+                    result = Math.max(result, value);
+                }
+                return typed(result, type);
+            default:
+                result = 0;
+                for (long value : values) {
+                    result += value;
+                }
+                return finish(result, values.length);
+        }
+    }
+
+    private Number reduce(final double[] values, final boolean floats) {
+        switch (reduction) {
+            case MIN:
+                double min = Double.POSITIVE_INFINITY;
+                for (double value : values) {
+                    min = Math.min(min, value);
+                }
+                return floats ? (Number) (float) min : (Number) min;
+            case MAX:
+                double max = Double.NEGATIVE_INFINITY;
+                for (double value : values) {
+                    max = Math.max(max, value);
+                }
+                return floats ? (Number) (float) max : (Number) max;
+            default:
+                double sum = 0;
+                for (double value : values) {
+                    sum += value;
+                }
+                return finish(sum, values.length);
+        }
+    }
+
+    /**
+     * The reducing steps multiply each value by its bulk, a long, so the sum
+     * is a long for integral columns and a double for floating point ones.
+     */
+    private Number finish(final Number sum, final long count) {
+        return reduction == Reduction.SUM ? sum : NumberHelper.div(sum, count, true);
+    }
+
+    private static Number typed(final long value, final Class<?> type) {
+        if (type == Integer.class) {
+            return (int) value;
+        } else if (type == Short.class) {
+            return (short) value;
+        } else if (type == Byte.class) {
+            return (byte) value;
+        }
+        return value;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.done = false;
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.stepString(this, this.elementClass.getSimpleName().toLowerCase(), this.key, this.reduction.name().toLowerCase());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Arrays;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.impl.GraphStoreConfiguration;
+
+/**
+ * Bulk reads of numeric columns into primitive arrays, walking the node or
+ * edge store once under the read lock. The values are stored boxed by
+ * graphstore, reading them this way only unboxes them instead of allocating
+ * a property and a traverser per element.
+ */
+final class GephiColumnValues {
+
+    private GephiColumnValues() {
+    }
+
+    /**
+     * Returns whether the column holds numbers the primitive reads support.
+     */
+    static boolean isNumeric(final Column column) {
+        final Class<?> type = column.getTypeClass();
+        return type == Integer.class || type == Long.class || type == Double.class
+                || type == Float.class || type == Short.class || type == Byte.class;
+    }
+
+    /**
+     * Returns the column holding the property of the vertices or edges, or
+     * <code>null</code> when the key is not a property of these elements.
+     */
+    static Column getColumn(final GephiGraph graph, final Class<? extends Element> elementClass, final String key) {
+        if (Vertex.class.isAssignableFrom(elementClass)) {
+            final Column column = graph.getNodeColumns().getColumn(key);
+            return column != null && !column.isProperty() ? column : null;
+        } else if (Edge.class.isAssignableFrom(elementClass)) {
+            final Column column = graph.getEdgeColumns().getColumn(key);
+            return column != null && (!column.isProperty() || column.getIndex() == GraphStoreConfiguration.EDGE_WEIGHT_INDEX) ? column : null;
+        }
+        throw new IllegalArgumentException(String.format("Not a vertex or edge class: %s", elementClass));
+    }
+
+    private static Iterable<? extends org.gephi.graph.api.Element> elements(final Graph store, final Column column) {
+        return Node.class.equals(column.getTable().getElementClass()) ? store.getNodes() : store.getEdges();
+    }
+
+    private static void checkNumeric(final Column column) {
+        if (!isNumeric(column)) {
+            throw new IllegalArgumentException(String.format("The column %s holds %s values, not numbers", column.getId(), column.getTypeClass().getSimpleName()));
+        }
+    }
+
+    /**
+     * Reads the values of the elements having one, in store order.
+     */
+    static double[] readDoubles(final GephiGraph graph, final Column column) {
+        checkNumeric(column);
+        final Graph store = graph.getGraph();
+        store.readLock();
+        try {
+            final boolean nodes = Node.class.equals(column.getTable().getElementClass());
+            double[] values = new double[nodes ? store.getNodeCount() : store.getEdgeCount()];
+            int size = 0;
+            for (org.gephi.graph.api.Element element : elements(store, column)) {
+                final Object value = element.getAttribute(column);
+                if (value != null) {
+                    values[size++] = ((Number) value).doubleValue();
+                }
+            }
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        } finally {
+            store.readUnlock();
+        }
+    }
+
+    /**
+     * Reads the values of the elements having one, in store order. Floating
+     * point values are truncated.
+     */
+    static long[] readLongs(final GephiGraph graph, final Column column) {
+        checkNumeric(column);
+        final Graph store = graph.getGraph();
+        store.readLock();
+        try {
+            final boolean nodes = Node.class.equals(column.getTable().getElementClass());
+            long[] values = new long[nodes ? store.getNodeCount() : store.getEdgeCount()];
+            int size = 0;
+            for (org.gephi.graph.api.Element element : elements(store, column)) {
+                final Object value = element.getAttribute(column);
+                if (value != null) {
+                    values[size++] = ((Number) value).longValue();
+                }
+            }
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        } finally {
+            store.readUnlock();
+        }
+    }
+}
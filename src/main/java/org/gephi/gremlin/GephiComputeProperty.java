@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+/**
+ * Vertex property holding the value of an element compute key while a
+ * {@link GephiGraphComputer} runs.
+ */
+public final class GephiComputeProperty<V> implements VertexProperty<V> {
+
+    private final GephiGraphComputerView view;
+    private final GephiVertex vertex;
+    private final String key;
+    private final V value;
+
+    GephiComputeProperty(final GephiGraphComputerView view, final GephiVertex vertex, final String key, final V value) {
+        this.view = view;
+        this.vertex = vertex;
+        this.key = key;
+        this.value = value;
+    }
+
+    @Override
+    public Vertex element() {
+        return vertex;
+    }
+
+    @Override
+    public Object id() {
+        return (long) (key.hashCode() + vertex.id().hashCode());
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public V value() throws NoSuchElementException {
+        return value;
+    }
+
+    @Override
+    public boolean isPresent() {
+        return true;
+    }
+
+    @Override
+    public void remove() {
+        view.removeProperty(vertex, key);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public <U> Property<U> property(String key, U value) {
+        throw VertexProperty.Exceptions.metaPropertiesNotSupported();
+    }
+
+    @Override
+    public <U> Iterator<Property<U>> properties(String... propertyKeys) {
+        return Collections.emptyIterator();
+    }
+
+    @Override
+    public Graph graph() {
+        return vertex.graph;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        return ElementHelper.areEqual(this, object);
+    }
+
+    @Override
+    public int hashCode() {
+        return ElementHelper.hashCode((Element) this);
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.propertyString(this);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.function.ToLongFunction;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+/**
+ * Start step emitting a single count computed from the graphstore, in place
+ * of a {@link GephiGraphStep} followed by a <code>count()</code>.
+ */
+public final class GephiCountStep<S> extends AbstractStep<S, Long> {
+
+    private final ToLongFunction<GephiGraph> counter;
+    private boolean done = false;
+
+    public GephiCountStep(final Traversal.Admin traversal, final ToLongFunction<GephiGraph> counter) {
+        super(traversal);
+        this.counter = counter;
+    }
+
+    @Override
+    protected Traverser.Admin<Long> processNextStart() {
+        if (this.done) {
+            throw FastNoSuchElementException.instance();
+        }
+        this.done = true;
+        final GephiGraph graph = (GephiGraph) this.getTraversal().getGraph().get();
+        return this.getTraversal().getTraverserGenerator().generate(this.counter.applyAsLong(graph), (Step) this, 1L);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        this.done = false;
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.stepString(this);
+    }
+}
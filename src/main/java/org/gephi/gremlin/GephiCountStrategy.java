@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.RangeGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.CountGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+/**
+ * Replaces a {@link VertexStep} followed by <code>count()</code>, with an
+ * optional <code>limit()</code> in between, by a {@link GephiDegreeCountStep}
+ * reading the vertex degrees. This covers <code>V(x).outE().count()</code>,
+ * <code>both("knows").count()</code> and the degree filters such as
+ * <code>where(outE().count().is(gt(100)))</code>, whose child traversal is
+ * rewritten as well. Profiled traversals are left as they are.
+ */
+public final class GephiCountStrategy extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy> implements TraversalStrategy.ProviderOptimizationStrategy {
+
+    private static final GephiCountStrategy INSTANCE = new GephiCountStrategy();
+
+    private GephiCountStrategy() {
+    }
+
+    @Override
+    public void apply(final Traversal.Admin<?, ?> traversal) {
+        if (traversal.getEngine().isComputer() || GephiTraversalHelper.isProfiled(traversal)) {
+            return;
+        }
+
+        TraversalHelper.getStepsOfClass(VertexStep.class, traversal).forEach(vertexStep -> {
+            if (!vertexStep.getLabels().isEmpty()) {
+                return;
+            }
+            Step<?, ?> nextStep = vertexStep.getNextStep();
+            long limit = -1;
+            if (nextStep instanceof RangeGlobalStep) {
+                final RangeGlobalStep<?> rangeStep = (RangeGlobalStep<?>) nextStep;
+                if (rangeStep.getLowRange() != 0 || rangeStep.getHighRange() < 0 || !rangeStep.getLabels().isEmpty()) {
+                    return;
+                }
+                limit = rangeStep.getHighRange();
+                nextStep = rangeStep.getNextStep();
+            }
+            if (!(nextStep instanceof CountGlobalStep)) {
+                return;
+            }
+
+            final GephiDegreeCountStep countStep = new GephiDegreeCountStep(traversal, vertexStep.getDirection(), vertexStep.getEdgeLabels(), limit);
+            nextStep.getLabels().forEach(countStep::addLabel);
+            TraversalHelper.replaceStep((Step) nextStep, countStep, traversal);
+            if (limit >= 0) {
+                traversal.removeStep(vertexStep.getNextStep());
+            }
+            traversal.removeStep(vertexStep);
+        });
+    }
+
+    public static GephiCountStrategy instance() {
+        return INSTANCE;
+    }
+}
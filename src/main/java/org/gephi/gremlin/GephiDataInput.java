@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * {@link DataInput} reading from a channel through a single reusable buffer,
+ * the counterpart of {@link GephiDataOutput}.
+ */
+final class GephiDataInput implements DataInput {
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    GephiDataInput(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(GephiDataOutput.BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    private void require(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < length) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            require(1);
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        int skipped = 0;
+        while (skipped < n) {
+            try {
+                require(1);
+            } catch (EOFException e) {
+                break;
+            }
+            int step = Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        require(2);
+        return buffer.getChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads bytes up to a <code>\n</code>, <code>\r\n</code> or
+     * <code>\r</code> line terminator or the end of the input, as
+     * {@link DataInputStream#readLine()} does, each byte being converted to
+     * the character of the same low eight bits.
+     *
+     * @return the line without its terminator, or <code>null</code> at the
+     * end of the input
+     */
+    @Override
+    public String readLine() throws IOException {
+        StringBuilder line = null;
+        while (true) {
+            try {
+                require(1);
+            } catch (EOFException e) {
+                return line == null ? null : line.toString();
+            }
+            if (line == null) {
+                line = new StringBuilder();
+            }
+            int c = buffer.get() & 0xFF;
+            if (c == '\n') {
+                return line.toString();
+            } else if (c == '\r') {
+                try {
+                    require(1);
+                    if (buffer.get(buffer.position()) == '\n') {
+                        buffer.get();
+                    }
+                } catch (EOFException e) {
+                    // The terminator ends the input
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Collections;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.ReducingBarrierStep;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.function.ConstantSupplier;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+/**
+ * Counts the incident edges of the incoming vertices, in place of a
+ * <code>outE()</code>, <code>in()</code>, <code>both()</code>... step followed
+ * by a <code>count()</code>. The degree of each vertex is read with
+ * {@link GephiVertex#degree(Direction, String...)} instead of iterating its
+ * edges. A limit, as inserted before the count by
+ * <code>RangeByIsCountStrategy</code>, caps the count.
+ */
+public final class GephiDegreeCountStep extends ReducingBarrierStep<Vertex, Long> {
+
+    private final Direction direction;
+    private final String[] labels;
+    private final long limit;
+
+    public GephiDegreeCountStep(final Traversal.Admin traversal, final Direction direction, final String[] labels, final long limit) {
+        super(traversal);
+        this.direction = direction;
+        this.labels = labels;
+        this.limit = limit;
+        this.setSeedSupplier(new ConstantSupplier<>(0L));
+        this.setBiFunction(this::add);
+    }
+
+    private Long add(final Long count, final Traverser<Vertex> traverser) {
+        final Vertex vertex = traverser.get();
+        final long degree = vertex instanceof GephiVertex
+                ? ((GephiVertex) vertex).degree(direction, labels)
+                : IteratorUtils.count(vertex.edges(direction, labels));
+        final long total = count + degree * traverser.bulk();
+        return limit < 0 ? total : Math.min(total, limit);
+    }
+
+    @Override
+    public Set<TraverserRequirement> getRequirements() {
+        return Collections.singleton(TraverserRequirement.BULK);
+    }
+
+    @Override
+    public String toString() {
+        return limit < 0
+                ? StringFactory.stepString(this, this.direction, String.join(",", this.labels))
+                : StringFactory.stepString(this, this.direction, String.join(",", this.labels), this.limit);
+    }
+}
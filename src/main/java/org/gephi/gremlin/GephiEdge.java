@@ -13,7 +13,6 @@ import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 import org.gephi.graph.api.Column;
 import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.Origin;
 import org.gephi.graph.api.Table;
 import org.gephi.graph.impl.GraphStoreConfiguration;
 
@@ -29,23 +28,40 @@ public class GephiEdge extends GephiElement<Edge> implements org.apache.tinkerpo
     }
 
     @Override
-    protected boolean isValid() {
-        return element.getStoreId() != -1;
+    GephiColumnCache getColumns() {
+        return graph.getEdgeColumns();
     }
 
     @Override
     public Vertex outVertex() {
-        return new GephiVertex(element.getSource(), graph);
+        return graph.vertex(element.getSource());
     }
 
     @Override
     public Vertex inVertex() {
-        return new GephiVertex(element.getTarget(), graph);
+        return graph.vertex(element.getTarget());
     }
 
     @Override
     public void remove() {
-        graph.getGraph().removeEdge(element);
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
+        if (buffer != null) {
+            buffer.removeEdge(element);
+            return;
+        }
+        graph.writeLock();
+        try {
+            int storeId = element.getStoreId();
+            if (graph.getGraph().removeEdge(element)) {
+                graph.getElementCache().removeEdge(storeId);
+                GephiWriteAheadLog log = graph.getWriteAheadLog();
+                if (log != null) {
+                    log.removeEdge(element);
+                }
+            }
+        } finally {
+            graph.writeUnlock();
+        }
     }
 
     @Override
@@ -67,10 +83,10 @@ public class GephiEdge extends GephiElement<Edge> implements org.apache.tinkerpo
 
     @Override
     public <V> Iterator<Property<V>> properties(final String... propertyKeys) {
-        Table table = getTable();
+        final GephiColumnCache columns = getColumns();
         if (propertyKeys.length == 1) {
-            Column column = table.getColumn(propertyKeys[0]);
-            if (isValidColumn(column) && element.getAttribute(column) != null) {
+            Column column = columns.getColumn(propertyKeys[0]);
+            if (isValidColumn(column) && getAttribute(column) != null) {
                 final Property<V> property = new GephiColumnProperty<>(this, column);
                 return IteratorUtils.of(property);
             } else {
@@ -78,19 +94,26 @@ public class GephiEdge extends GephiElement<Edge> implements org.apache.tinkerpo
             }
         } else {
             List<Property<V>> props = new ArrayList<>();
-            if (propertyKeys.length > 0) {
-                for (String s : propertyKeys) {
-                    Column column = table.getColumn(s);
-                    if (isValidColumn(column) && element.getAttribute(column) != null) {
-                        props.add(new GephiColumnProperty<>(this, column));
+            final GephiTransaction.Buffer buffer = graph.getPendingChanges();
+            org.gephi.graph.api.Graph store = graph.getGraph();
+            store.readLock();
+            try {
+                if (propertyKeys.length > 0) {
+                    for (String s : propertyKeys) {
+                        Column column = columns.getColumn(s);
+                        if (isValidColumn(column) && getAttribute(buffer, column) != null) {
+                            props.add(new GephiColumnProperty<>(this, column));
+                        }
                     }
-                }
-            } else {
-                for (Column col : table) {
-                    if (isValidColumn(col) && element.getAttribute(col) != null) {
-                        props.add(new GephiColumnProperty<>(this, col));
+                } else {
+                    for (Column col : columns.getColumns()) {
+                        if (isValidColumn(col) && getAttribute(buffer, col) != null) {
+                            props.add(new GephiColumnProperty<>(this, col));
+                        }
                     }
                 }
+            } finally {
+                store.readUnlock();
             }
             return props.iterator();
         }
@@ -103,8 +126,7 @@ public class GephiEdge extends GephiElement<Edge> implements org.apache.tinkerpo
 
     @Override
     public <V> Property<V> property(String key) {
-        Table table = getTable();
-        Column column = table.getColumn(key);
+        Column column = getColumns().getColumn(key);
         if (column == null) {
             return Property.empty();
         } else {
@@ -114,17 +136,29 @@ public class GephiEdge extends GephiElement<Edge> implements org.apache.tinkerpo
 
     @Override
     public <V> Property<V> property(final String key, final V value) {
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
         if (!isValid()) {
             throw new IllegalStateException(String.format("%s with id %s was removed.", getClass().getSimpleName(), element.getId()));
         }
 
         ElementHelper.validateProperty(key, value);
-        Table table = getTable();
-        Column col = table.getColumn(key);
-        if (col == null) {
-            col = table.addColumn(key, null, value.getClass(), Origin.DATA, null, true);
+        Column col;
+        GephiWriteAheadLog log = graph.getWriteAheadLog();
+        graph.writeLock();
+        try {
+            col = getColumns().addColumn(key, value.getClass());
+            if (buffer == null) {
+                element.setAttribute(col, value);
+                if (log != null) {
+                    log.setAttribute(element, col, value);
+                }
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+        if (buffer != null) {
+            buffer.setAttribute(element, col, value);
         }
-        element.setAttribute(col, value);
 
         return new GephiColumnProperty<>(this, col);
     }
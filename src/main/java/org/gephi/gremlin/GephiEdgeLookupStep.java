@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.FlatMapStep;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.impl.NodeImpl;
+
+/**
+ * Emits the edges between the incoming vertex and the vertex of an id, or the
+ * vertex once per edge, in place of <code>outE(labels).where(inV().hasId(id))</code>
+ * or <code>out(labels).hasId(id)</code> and their other directions. The edges
+ * are looked up in the graphstore edge dictionary instead of walking the
+ * adjacency of the incoming vertex.
+ */
+public final class GephiEdgeLookupStep<E extends Element> extends FlatMapStep<Vertex, E> {
+
+    private final Class<E> returnClass;
+    private final Direction direction;
+    private final String[] labels;
+    private final Object otherId;
+
+    public GephiEdgeLookupStep(final Traversal.Admin traversal, final Class<E> returnClass, final Direction direction, final String[] labels, final Object otherId) {
+        super(traversal);
+        this.returnClass = returnClass;
+        this.direction = direction;
+        this.labels = labels;
+        this.otherId = otherId;
+    }
+
+    @Override
+    protected Iterator<E> flatMap(final Traverser.Admin<Vertex> traverser) {
+        final Vertex vertex = traverser.get();
+        final boolean edges = Edge.class.isAssignableFrom(returnClass);
+        if (!(vertex instanceof GephiVertex)) {
+            return edges
+                    ? (Iterator<E>) IteratorUtils.filter(vertex.edges(direction, labels), edge -> otherId.equals(otherVertex(edge, vertex).id()))
+                    : (Iterator<E>) IteratorUtils.filter(vertex.vertices(direction, labels), other -> otherId.equals(other.id()));
+        }
+        final GephiVertex gephiVertex = (GephiVertex) vertex;
+        final Node other = gephiVertex.graph.lookupNode(otherId);
+        if (other == null) {
+            return Collections.emptyIterator();
+        }
+        final GephiGraph graph = gephiVertex.graph;
+        return GephiAdjacencyIterator.<E>between(gephiVertex, (NodeImpl) other, direction, labels,
+                (edge, out) -> edges ? (E) graph.edge(edge) : (E) graph.vertex(out ? edge.getTarget() : edge.getSource())).iterator();
+    }
+
+    private static Vertex otherVertex(final Edge edge, final Vertex vertex) {
+        final Vertex outVertex = edge.outVertex();
+        return outVertex.equals(vertex) ? edge.inVertex() : outVertex;
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.stepString(this, this.direction, Arrays.asList(this.labels), this.otherId, this.returnClass.getSimpleName().toLowerCase());
+    }
+}
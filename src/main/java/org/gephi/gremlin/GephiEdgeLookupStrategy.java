@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.List;
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.HasStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.TraversalFilterStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeOtherVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.T;
+
+/**
+ * Replaces the edge existence checks between a vertex and the vertex of an id,
+ * <code>outE(labels).where(inV().hasId(id))</code>, <code>bothE(labels).where(otherV().hasId(id))</code>
+ * and <code>out(labels).hasId(id)</code> in any direction, by a
+ * {@link GephiEdgeLookupStep} looking the edges up instead of walking the
+ * adjacency of the vertex.
+ */
+public final class GephiEdgeLookupStrategy extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy> implements TraversalStrategy.ProviderOptimizationStrategy {
+
+    private static final GephiEdgeLookupStrategy INSTANCE = new GephiEdgeLookupStrategy();
+
+    private GephiEdgeLookupStrategy() {
+    }
+
+    @Override
+    public void apply(final Traversal.Admin<?, ?> traversal) {
+        if (traversal.getEngine().isComputer() || GephiTraversalHelper.isProfiled(traversal)) {
+            return;
+        }
+
+        TraversalHelper.getStepsOfClass(VertexStep.class, traversal).forEach(vertexStep -> {
+            final Step<?, ?> nextStep = vertexStep.getNextStep();
+            if (!vertexStep.getLabels().isEmpty()) {
+                return;
+            }
+            final Object id;
+            if (vertexStep.returnsVertex()) {
+                id = getId(nextStep);
+            } else if (nextStep instanceof TraversalFilterStep) {
+                final List<Step> steps = ((TraversalFilterStep<?>) nextStep).getLocalChildren().get(0).getSteps();
+                id = steps.size() == 2 && isOtherVertex(steps.get(0), vertexStep.getDirection()) ? getId(steps.get(1)) : null;
+            } else {
+                return;
+            }
+            if (id == null) {
+                return;
+            }
+
+            final GephiEdgeLookupStep<?> lookupStep = new GephiEdgeLookupStep<>(traversal, vertexStep.getReturnClass(), vertexStep.getDirection(), vertexStep.getEdgeLabels(), id);
+            nextStep.getLabels().forEach(lookupStep::addLabel);
+            TraversalHelper.replaceStep(vertexStep, lookupStep, traversal);
+            traversal.removeStep(nextStep);
+        });
+    }
+
+    /**
+     * Returns whether the step maps an edge of the direction to the vertex at
+     * its other end.
+     */
+    private static boolean isOtherVertex(final Step<?, ?> step, final Direction direction) {
+        if (!step.getLabels().isEmpty()) {
+            return false;
+        } else if (step instanceof EdgeOtherVertexStep) {
+            return true;
+        }
+        return step instanceof EdgeVertexStep && direction != Direction.BOTH && ((EdgeVertexStep) step).getDirection() == direction.opposite();
+    }
+
+    /**
+     * Returns the vertex id the step filters on, when it only keeps the
+     * elements of one id. The ids of the graph are strings.
+     */
+    private static Object getId(final Step<?, ?> step) {
+        if (!(step instanceof HasStep) || !step.getLabels().isEmpty()) {
+            return null;
+        }
+        final List<HasContainer> hasContainers = ((HasStep<?>) step).getHasContainers();
+        if (hasContainers.size() != 1) {
+            return null;
+        }
+        final HasContainer hasContainer = hasContainers.get(0);
+        if (!T.id.getAccessor().equals(hasContainer.getKey()) || hasContainer.getBiPredicate() != Compare.eq || !(hasContainer.getValue() instanceof String)) {
+            return null;
+        }
+        return hasContainer.getValue();
+    }
+
+    public static GephiEdgeLookupStrategy instance() {
+        return INSTANCE;
+    }
+}
@@ -32,7 +32,7 @@ import org.gephi.graph.api.Table;
 public abstract class GephiElement<K extends Element> implements org.apache.tinkerpop.gremlin.structure.Element {
 
     protected final GephiGraph graph;
-    protected K element;
+    protected final K element;
 
     public GephiElement(GephiGraph graph, K element) {
         this.graph = graph;
@@ -58,27 +58,73 @@ public abstract class GephiElement<K extends Element> implements org.apache.tink
     @Override
     public Set<String> keys() {
         Set<String> keys = new HashSet<>();
-        for (Column col : getTable()) {
-            if (isValidColumn(col) && element.getAttribute(col) != null) {
-                keys.add(col.getId());
+        final GephiTransaction.Buffer buffer = graph.getPendingChanges();
+        final org.gephi.graph.api.Graph store = graph.getGraph();
+        store.readLock();
+        try {
+            for (Column col : getColumns().getColumns()) {
+                if (isValidColumn(col) && getAttribute(buffer, col) != null) {
+                    keys.add(GephiColumnCache.key(col));
+                }
             }
+        } finally {
+            store.readUnlock();
         }
         return Collections.unmodifiableSet(keys);
     }
 
     @Override
     public <V> V value(String key) throws NoSuchElementException {
-        Column col = getTable().getColumn(key);
+        Column col = getColumns().getColumn(key);
         if (col == null) {
             throw Property.Exceptions.propertyDoesNotExist(this, key);
         }
-        V val = (V) element.getAttribute(col);
+        V val = (V) getAttribute(col);
         if (val == null) {
             throw Property.Exceptions.propertyDoesNotExist(this, key);
         }
         return val;
     }
 
+    /**
+     * Returns the numeric property of the key as a <code>double</code>,
+     * without wrapping it in a {@link Property}.
+     *
+     * @throws NoSuchElementException if the element has no such property
+     * @throws IllegalArgumentException if the property is not a number
+     */
+    public double getDouble(String key) throws NoSuchElementException {
+        return number(key).doubleValue();
+    }
+
+    /**
+     * Returns the numeric property of the key as a <code>long</code>.
+     *
+     * @throws NoSuchElementException if the element has no such property
+     * @throws IllegalArgumentException if the property is not a number
+     */
+    public long getLong(String key) throws NoSuchElementException {
+        return number(key).longValue();
+    }
+
+    /**
+     * Returns the numeric property of the key as an <code>int</code>.
+     *
+     * @throws NoSuchElementException if the element has no such property
+     * @throws IllegalArgumentException if the property is not a number
+     */
+    public int getInt(String key) throws NoSuchElementException {
+        return number(key).intValue();
+    }
+
+    private Number number(String key) {
+        final Object value = value(key);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(String.format("The property %s holds a %s value, not a number", key, value.getClass().getSimpleName()));
+        }
+        return (Number) value;
+    }
+
     @Override
     public Object id() {
         return element.getId();
@@ -89,9 +135,84 @@ public abstract class GephiElement<K extends Element> implements org.apache.tink
         return element.getLabel();
     }
 
+    /**
+     * Reads an attribute under the graph read lock, through the changes
+     * pending in the transaction of the calling thread.
+     */
+    Object getAttribute(Column column) {
+        final GephiTransaction.Buffer buffer = graph.getPendingChanges();
+        final org.gephi.graph.api.Graph store = graph.getGraph();
+        store.readLock();
+        try {
+            return getAttribute(buffer, column);
+        } finally {
+            store.readUnlock();
+        }
+    }
+
+    /**
+     * Reads an attribute through the given pending changes, which may be
+     * <code>null</code>, the read lock being held by the caller.
+     */
+    Object getAttribute(GephiTransaction.Buffer buffer, Column column) {
+        return buffer == null ? element.getAttribute(column) : buffer.getAttribute(element, column);
+    }
+
+    /**
+     * Writes an attribute under the graph write lock, so that concurrent
+     * writers do not lose updates and readers see complete values, or to the
+     * transaction buffer when one is open.
+     */
+    void setAttribute(Column column, Object value) {
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
+        if (buffer != null) {
+            buffer.setAttribute(element, column, value);
+            return;
+        }
+        graph.writeLock();
+        try {
+            element.setAttribute(column, value);
+            final GephiWriteAheadLog log = graph.getWriteAheadLog();
+            if (log != null) {
+                log.setAttribute(element, column, value);
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+    }
+
+    void removeAttribute(Column column) {
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
+        if (buffer != null) {
+            buffer.removeAttribute(element, column);
+            return;
+        }
+        graph.writeLock();
+        try {
+            element.removeAttribute(column);
+            final GephiWriteAheadLog log = graph.getWriteAheadLog();
+            if (log != null) {
+                log.removeAttribute(element, column);
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+    }
+
     protected abstract boolean isValidColumn(Column col);
 
     protected abstract Table getTable();
 
-    protected abstract boolean isValid();
+    /**
+     * Returns the resolved columns of {@link #getTable()}.
+     */
+    abstract GephiColumnCache getColumns();
+
+    /**
+     * Returns whether the element exists as seen by the calling thread.
+     */
+    protected boolean isValid() {
+        final GephiTransaction.Buffer buffer = graph.getPendingChanges();
+        return buffer == null ? element.getStoreId() != -1 : buffer.isAlive(element);
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Element;
+import org.gephi.graph.api.Node;
+
+/**
+ * Wrappers of the nodes and edges of a graph, so that iterating the store or
+ * the adjacency of a vertex returns the same {@link GephiVertex} and
+ * {@link GephiEdge} instances instead of allocating new ones. The cache is
+ * direct-mapped: a store id has a single slot, shared with the store ids
+ * equal modulo {@link #CAPACITY}, holding the wrapper of the element last
+ * wrapped there. It keeps at most {@link #CAPACITY} vertex and edge wrappers,
+ * whatever the size of the graph, and a miss allocates the wrapper only.
+ * Elements outside the store, added by an open transaction, are wrapped on
+ * every call.
+ * <p/>
+ * Wrappers are immutable and equal by id, so racing calls may create
+ * distinct wrappers of the same element and lose one of them.
+ */
+final class GephiElementCache {
+
+    /**
+     * Maximum number of slots per element type, a power of two.
+     */
+    static final int CAPACITY = 1 << 16;
+
+    private final Slots<Node, GephiVertex> vertices;
+    private final Slots<Edge, GephiEdge> edges;
+
+    GephiElementCache(final GephiGraph graph) {
+        this.vertices = new Slots<>(node -> new GephiVertex(node, graph));
+        this.edges = new Slots<>(edge -> new GephiEdge(edge, graph));
+    }
+
+    GephiVertex vertex(final Node node) {
+        return vertices.get(node);
+    }
+
+    GephiEdge edge(final Edge edge) {
+        return edges.get(edge);
+    }
+
+    /**
+     * Drops the wrappers of a node about to be removed and of its incident
+     * edges, which the store removes with it. Called under the write lock.
+     */
+    void removeVertex(final org.gephi.graph.api.Graph store, final Node node) {
+        for (Edge edge : store.getEdges(node)) {
+            edges.clear(edge.getStoreId());
+        }
+        vertices.clear(node.getStoreId());
+    }
+
+    /**
+     * Drops the wrapper of a removed edge, given the store id it had.
+     */
+    void removeEdge(final int storeId) {
+        edges.clear(storeId);
+    }
+
+    /**
+     * Returns the number of wrappers the cache holds.
+     */
+    int size() {
+        return vertices.size() + edges.size();
+    }
+
+    private static final class Slots<K extends Element, W extends GephiElement<K>> {
+
+        private final Function<K, W> wrapper;
+        private volatile GephiElement<?>[] slots = new GephiElement<?>[0];
+
+        Slots(final Function<K, W> wrapper) {
+            this.wrapper = wrapper;
+        }
+
+        W get(final K element) {
+            final int storeId = element.getStoreId();
+            if (storeId < 0) {
+                return wrapper.apply(element);
+            }
+            GephiElement<?>[] current = this.slots;
+            final int index = storeId & (CAPACITY - 1);
+            if (index < current.length) {
+                final GephiElement<?> cached = current[index];
+                if (cached != null && cached.element == element) {
+                    return (W) cached;
+                }
+            } else {
+                current = grow(index);
+            }
+            final W wrapped = wrapper.apply(element);
+            current[index] = wrapped;
+            return wrapped;
+        }
+
+        private synchronized GephiElement<?>[] grow(final int index) {
+            GephiElement<?>[] current = this.slots;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.min(CAPACITY, Math.max(index + 1, current.length + (current.length >> 1))));
+                this.slots = current;
+            }
+            return current;
+        }
+
+        void clear(final int storeId) {
+            final GephiElement<?>[] current = this.slots;
+            final int index = storeId & (CAPACITY - 1);
+            if (storeId >= 0 && index < current.length) {
+                current[index] = null;
+            }
+        }
+
+        int size() {
+            return (int) Arrays.stream(slots).filter(Objects::nonNull).count();
+        }
+    }
+}
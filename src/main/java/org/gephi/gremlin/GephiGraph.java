@@ -18,7 +18,18 @@
  */
 package org.gephi.gremlin;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import org.gephi.graph.api.*;
 
@@ -28,6 +39,7 @@ import java.util.UUID;
 import java.util.stream.Stream;
 import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategies;
 import org.apache.tinkerpop.gremlin.structure.Transaction;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.io.Io;
@@ -37,8 +49,26 @@ import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 
 @org.apache.tinkerpop.gremlin.structure.Graph.OptIn("org.apache.tinkerpop.gremlin.structure.StructureStandardSuite")
+@org.apache.tinkerpop.gremlin.structure.Graph.OptIn("org.apache.tinkerpop.gremlin.process.ProcessStandardSuite")
+@org.apache.tinkerpop.gremlin.structure.Graph.OptIn("org.apache.tinkerpop.gremlin.process.ProcessComputerSuite")
+@org.apache.tinkerpop.gremlin.structure.Graph.OptOut(
+        test = "org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.SubgraphTest$Traversals",
+        method = "g_V_withSideEffectXsgX_outEXknowsX_subgraphXsgX_name_capXsgX",
+        reason = "The subgraph copies vertex properties with their ids but vertex property ids cannot be supplied")
+@org.apache.tinkerpop.gremlin.structure.Graph.OptOut(
+        test = "org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.SubgraphTest$Traversals",
+        method = "g_V_withSideEffectXsgX_repeatXbothEXcreatedX_subgraphXsgX_outVX_timesX5X_name_dedup",
+        reason = "The subgraph copies vertex properties with their ids but vertex property ids cannot be supplied")
+@org.apache.tinkerpop.gremlin.structure.Graph.OptOut(
+        test = "org.apache.tinkerpop.gremlin.process.computer.bulkdumping.BulkDumperVertexProgramTest",
+        method = "shouldDumpWholeGraph",
+        reason = "The test expects numeric vertex ids but vertex ids are stored as strings")
 public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph {
 
+    static {
+        TraversalStrategies.GlobalCache.registerStrategies(GephiGraph.class, TraversalStrategies.GlobalCache.getStrategies(org.apache.tinkerpop.gremlin.structure.Graph.class).clone().addStrategies(GephiGraphStepStrategy.instance(), GephiCountStrategy.instance(), GephiEdgeLookupStrategy.instance()));
+    }
+
     static final org.apache.commons.configuration.Configuration EMPTY_CONFIGURATION = new BaseConfiguration() {
         {
             this.setProperty(org.apache.tinkerpop.gremlin.structure.Graph.GRAPH, GephiGraph.class.getName());
@@ -48,28 +78,54 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
     ///////
     public static final String GREMLIN_GEPHIGRAPH_GRAPH_LOCATION = "gremlin.gephigraph.graphLocation";
     public static final String GREMLIN_GEPHIGRAPH_GRAPH_FORMAT = "gremlin.gephigraph.graphFormat";
+    public static final String GREMLIN_GEPHIGRAPH_TRANSACTIONS = "gremlin.gephigraph.transactions";
+    public static final String GREMLIN_GEPHIGRAPH_WAL = "gremlin.gephigraph.wal";
+    public static final String GREMLIN_GEPHIGRAPH_WAL_SYNC_INTERVAL = "gremlin.gephigraph.walSyncInterval";
+    public static final String GREMLIN_GEPHIGRAPH_CHECKPOINT_INTERVAL = "gremlin.gephigraph.checkpointInterval";
+    public static final String GREMLIN_GEPHIGRAPH_CHECKPOINT_CHANGES = "gremlin.gephigraph.checkpointChanges";
+    public static final String GREMLIN_GEPHIGRAPH_IMPORT_THREADS = "gremlin.gephigraph.importThreads";
+    public static final String GREMLIN_GEPHIGRAPH_COMPRESSION = "gremlin.gephigraph.compression";
+    public static final String GEPHI_FORMAT = "gephi";
     //
     private final GephiFeatures features = new GephiFeatures();
     private final GephiGraphVariables variables;
+    private final GephiLabelIndex labelIndex = new GephiLabelIndex();
     private final org.apache.commons.configuration.Configuration configuration;
     private final String graphLocation;
     private final String graphFormat;
+    private final GephiSnapshotCodec snapshotCodec;
+    private final GephiTransaction transaction;
+    private final GephiWriteAheadLog writeAheadLog;
+    private final GephiCheckpointer checkpointer;
+    private final ThreadLocal<int[]> writeDepth = ThreadLocal.withInitial(() -> new int[1]);
 
     private GraphModel graphModel;
     private Graph graph;
+    private final GephiColumnCache nodeColumns;
+    private final GephiColumnCache edgeColumns;
+    private final GephiElementCache elements;
+    private volatile GephiGraphComputerView graphComputerView;
 
     public GephiGraph(final org.apache.commons.configuration.Configuration configuration) {
-        this(configuration, GraphModel.Factory.newInstance(getDefaultConfiguration()));
+        this(configuration, openGraphModel(configuration));
     }
 
     public GephiGraph(final org.apache.commons.configuration.Configuration configuration, GraphModel graphModel) {
         this.graphModel = graphModel;
         this.graph = graphModel.getGraph();
-        this.variables = new GephiGraphVariables(graph);
+        this.nodeColumns = new GephiColumnCache(this, graphModel.getNodeTable());
+        this.edgeColumns = new GephiColumnCache(this, graphModel.getEdgeTable());
+        this.elements = new GephiElementCache(this);
+        this.variables = new GephiGraphVariables(this);
         this.configuration = configuration;
+        for (Node node : graph.getNodes()) {
+            labelIndex.add(node);
+        }
 
         graphLocation = configuration.getString(GREMLIN_GEPHIGRAPH_GRAPH_LOCATION, null);
         graphFormat = configuration.getString(GREMLIN_GEPHIGRAPH_GRAPH_FORMAT, null);
+        snapshotCodec = GephiSnapshotCodec.forName(configuration.getString(GREMLIN_GEPHIGRAPH_COMPRESSION, GephiSnapshotCodec.NONE.getName()));
+        transaction = configuration.getBoolean(GREMLIN_GEPHIGRAPH_TRANSACTIONS, false) ? new GephiTransaction(this) : null;
 
         if ((graphLocation != null && null == graphFormat) || (null == graphLocation && graphFormat != null)) {
             throw new IllegalStateException(String.format("The %s and %s must both be specified if either is present",
@@ -79,6 +135,61 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
         if (graphLocation != null) {
             loadGraph();
         }
+
+        if (configuration.getBoolean(GREMLIN_GEPHIGRAPH_WAL, false)) {
+            if (graphLocation == null) {
+                throw new IllegalStateException(String.format("The %s must be specified to enable %s",
+                        GREMLIN_GEPHIGRAPH_GRAPH_LOCATION, GREMLIN_GEPHIGRAPH_WAL));
+            }
+            final File f = new File(graphLocation + GephiWriteAheadLog.SUFFIX);
+            try {
+                if (f.getParentFile() != null) {
+                    f.getParentFile().mkdirs();
+                }
+                writeAheadLog = GephiWriteAheadLog.open(this, f, configuration.getLong(GREMLIN_GEPHIGRAPH_WAL_SYNC_INTERVAL, 0L));
+            } catch (IOException ex) {
+                throw new RuntimeException(String.format("Could not open the log at %s", f), ex);
+            }
+        } else {
+            writeAheadLog = null;
+        }
+
+        final long checkpointInterval = configuration.getLong(GREMLIN_GEPHIGRAPH_CHECKPOINT_INTERVAL, 0L);
+        final long checkpointChanges = configuration.getLong(GREMLIN_GEPHIGRAPH_CHECKPOINT_CHANGES, 0L);
+        if (checkpointInterval > 0 || checkpointChanges > 0) {
+            if (!GEPHI_FORMAT.equals(graphFormat)) {
+                throw new IllegalStateException(String.format("The %s must be %s to enable checkpoints",
+                        GREMLIN_GEPHIGRAPH_GRAPH_FORMAT, GEPHI_FORMAT));
+            }
+            checkpointer = new GephiCheckpointer(this, new File(graphLocation), checkpointInterval, checkpointChanges);
+        } else {
+            checkpointer = null;
+        }
+    }
+
+    /**
+     * Reads the model of a graph saved in the {@link #GEPHI_FORMAT} format, or
+     * creates an empty model. The native format holds the whole model so it is
+     * read before the graph is built rather than replayed into it. Compressed
+     * snapshots are recognized by their header and read with the codec they
+     * were written with.
+     */
+    private static GraphModel openGraphModel(final org.apache.commons.configuration.Configuration configuration) {
+        final String location = configuration.getString(GREMLIN_GEPHIGRAPH_GRAPH_LOCATION, null);
+        if (location != null && GEPHI_FORMAT.equals(configuration.getString(GREMLIN_GEPHIGRAPH_GRAPH_FORMAT, null))) {
+            final File f = new File(location);
+            if (f.exists() && f.isFile()) {
+                try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                    if (GephiBlockChannel.isCompressed(channel)) {
+                        return GraphModel.Serialization.read(new GephiDataInput(new GephiBlockChannel.Reader(channel)));
+                    }
+                    return GraphModel.Serialization.read(new GephiDataInput(channel));
+                } catch (Exception ex) {
+                    throw new RuntimeException(String.format("Could not load graph at %s with %s", location, GEPHI_FORMAT), ex);
+                }
+            }
+        }
+        return GraphModel.Factory.newInstance(getDefaultConfiguration());
     }
 
     private static Configuration getDefaultConfiguration() {
@@ -111,28 +222,100 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
             throw Vertex.Exceptions.userSuppliedIdsOfThisTypeNotSupported();
         }
 
-        if (idValue != null && graphModel.getGraph().getNode(idValue) != null) {
-            throw Exceptions.vertexWithIdAlreadyExists(idValue);
+        final GephiTransaction.Buffer buffer = getTransactionBuffer();
+        if (buffer != null) {
+            if (idValue != null && buffer.getNode(graph, idValue) != null) {
+                throw Exceptions.vertexWithIdAlreadyExists(idValue);
+            }
+            Node node = idValue == null ? graphModel.factory().newNode() : graphModel.factory().newNode(idValue);
+            node.setLabel(label);
+            buffer.addNode(node);
+
+            Vertex vertex = new GephiVertex(node, this);
+            ElementHelper.attachProperties(vertex, keyValues);
+            return vertex;
         }
 
-        Node node;
-        if (idValue == null) {
-            node = graphModel.factory().newNode();
-        } else {
-            node = graphModel.factory().newNode(idValue);
+        final GephiVertex vertex;
+        writeLock();
+        try {
+            if (idValue != null && graph.getNode(idValue) != null) {
+                throw Exceptions.vertexWithIdAlreadyExists(idValue);
+            }
+
+            Node node;
+            if (idValue == null) {
+                node = graphModel.factory().newNode();
+            } else {
+                node = graphModel.factory().newNode(idValue);
+            }
+            node.setLabel(label);
+            graph.addNode(node);
+            labelIndex.add(node);
+            if (writeAheadLog != null) {
+                writeAheadLog.addNode(node);
+            }
+
+            vertex = elements.vertex(node);
+            ElementHelper.attachProperties(vertex, keyValues);
+        } finally {
+            writeUnlock();
         }
-        node.setLabel(label);
-        graph.addNode(node);
 
-        Vertex vertex = new GephiVertex(node, this);
-        ElementHelper.attachProperties(vertex, keyValues);
+        return vertex;
+    }
+
+    /**
+     * Returns a builder of {@link GephiBulkLoader} to insert large numbers of
+     * vertices and edges in batches.
+     */
+    public GephiBulkLoader.Builder bulkLoader() {
+        return new GephiBulkLoader.Builder(this);
+    }
+
+    /**
+     * Reads the numeric property of the vertices or edges into an array, in
+     * store order. Elements without the property are skipped, and an empty
+     * array is returned when no element has it. Writes buffered by an open
+     * transaction are not seen.
+     *
+     * @param elementClass {@link Vertex} or {@link org.apache.tinkerpop.gremlin.structure.Edge}
+     * @throws IllegalArgumentException if the property is not numeric
+     */
+    public double[] readDoubles(final Class<? extends org.apache.tinkerpop.gremlin.structure.Element> elementClass, final String key) {
+        final Column column = GephiColumnValues.getColumn(this, elementClass, key);
+        return column == null ? new double[0] : GephiColumnValues.readDoubles(this, column);
+    }
+
+    /**
+     * Same as {@link #readDoubles(Class, String)} with the values converted to
+     * <code>long</code>, floating point values being truncated.
+     */
+    public long[] readLongs(final Class<? extends org.apache.tinkerpop.gremlin.structure.Element> elementClass, final String key) {
+        final Column column = GephiColumnValues.getColumn(this, elementClass, key);
+        return column == null ? new long[0] : GephiColumnValues.readLongs(this, column);
+    }
 
-        return new GephiVertex(node, this);
+    /**
+     * Returns an importer reading GraphSON adjacency lists with
+     * {@link #GREMLIN_GEPHIGRAPH_IMPORT_THREADS} threads, one per core by
+     * default.
+     */
+    public GephiGraphSONImporter graphSONImporter() {
+        return new GephiGraphSONImporter(this, configuration.getInt(GREMLIN_GEPHIGRAPH_IMPORT_THREADS, Runtime.getRuntime().availableProcessors()));
     }
 
+    /**
+     * Returns the transaction of this graph. Transactions are only available
+     * when the graph is opened with {@link #GREMLIN_GEPHIGRAPH_TRANSACTIONS}
+     * set, otherwise every mutation is applied to the store immediately.
+     */
     @Override
     public Transaction tx() {
-        throw Exceptions.transactionsNotSupported();
+        if (transaction == null) {
+            throw Exceptions.transactionsNotSupported();
+        }
+        return transaction;
     }
 
     @Override
@@ -142,8 +325,14 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
 
     @Override
     public Iterator<Vertex> vertices(final Object... vertexIds) {
+        final GephiTransaction.Buffer buffer = getPendingChanges();
         if (vertexIds.length == 0) {
-            return IteratorUtils.list(IteratorUtils.map(graph.getNodes().iterator(), node -> (Vertex) new GephiVertex(node, this))).iterator();
+            if (buffer == null) {
+                return GephiStoreIterator.vertices(this);
+            }
+            return IteratorUtils.concat(
+                    IteratorUtils.filter(GephiStoreIterator.vertices(this), vertex -> buffer.isAlive(((GephiVertex) vertex).element)),
+                    IteratorUtils.map(buffer.getAddedNodes().iterator(), this::vertex));
         }
         Object[] ids = vertexIds;
         if (Vertex.class.isAssignableFrom(vertexIds[0].getClass())) {
@@ -159,19 +348,30 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
         }
 
         List<Vertex> res = new ArrayList<>();
-        for (Object id : ids) {
-            Node node = graph.getNode(id);
-            if (node != null) {
-                res.add(new GephiVertex(node, this));
+        graph.readLock();
+        try {
+            for (Object id : ids) {
+                Node node = buffer == null ? graph.getNode(id) : buffer.getNode(graph, id);
+                if (node != null) {
+                    res.add(elements.vertex(node));
+                }
             }
+        } finally {
+            graph.readUnlock();
         }
         return res.iterator();
     }
 
     @Override
     public Iterator<org.apache.tinkerpop.gremlin.structure.Edge> edges(Object... edgeIds) {
+        final GephiTransaction.Buffer buffer = getPendingChanges();
         if (edgeIds.length == 0) {
-            return IteratorUtils.list(IteratorUtils.map(graph.getEdges().iterator(), edge -> (org.apache.tinkerpop.gremlin.structure.Edge) new GephiEdge(edge, this))).iterator();
+            if (buffer == null) {
+                return GephiStoreIterator.edges(this);
+            }
+            return IteratorUtils.concat(
+                    IteratorUtils.filter(GephiStoreIterator.edges(this), edge -> buffer.isAlive(((GephiEdge) edge).element)),
+                    IteratorUtils.map(buffer.getAddedEdges().iterator(), this::edge));
         }
         Object[] ids = edgeIds;
         if (org.apache.tinkerpop.gremlin.structure.Edge.class.isAssignableFrom(edgeIds[0].getClass())) {
@@ -187,11 +387,16 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
         }
 
         List<org.apache.tinkerpop.gremlin.structure.Edge> res = new ArrayList<>();
-        for (Object id : ids) {
-            Edge edge = graph.getEdge(id);
-            if (edge != null) {
-                res.add(new GephiEdge(edge, this));
+        graph.readLock();
+        try {
+            for (Object id : ids) {
+                Edge edge = buffer == null ? graph.getEdge(id) : buffer.getEdge(graph, id);
+                if (edge != null) {
+                    res.add(elements.edge(edge));
+                }
             }
+        } finally {
+            graph.readUnlock();
         }
         return res.iterator();
     }
@@ -200,12 +405,15 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
     public <C extends GraphComputer> C compute(
             final Class<C> graphComputerClass
     ) {
-        throw org.apache.tinkerpop.gremlin.structure.Graph.Exceptions.graphComputerNotSupported();
+        if (!graphComputerClass.equals(GephiGraphComputer.class)) {
+            throw org.apache.tinkerpop.gremlin.structure.Graph.Exceptions.graphDoesNotSupportProvidedGraphComputer(graphComputerClass);
+        }
+        return (C) new GephiGraphComputer(this);
     }
 
     @Override
     public GraphComputer compute() {
-        throw org.apache.tinkerpop.gremlin.structure.Graph.Exceptions.graphComputerNotSupported();
+        return new GephiGraphComputer(this);
     }
 
     @Override
@@ -228,10 +436,157 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
         return this.graphModel;
     }
 
+    GephiLabelIndex getLabelIndex() {
+        return labelIndex;
+    }
+
+    /**
+     * Returns the wrapper of a node, shared while the node keeps its store id.
+     */
+    GephiVertex vertex(final Node node) {
+        return elements.vertex(node);
+    }
+
+    /**
+     * Returns the wrapper of an edge, shared while the edge keeps its store id.
+     */
+    GephiEdge edge(final Edge edge) {
+        return elements.edge(edge);
+    }
+
+    GephiElementCache getElementCache() {
+        return elements;
+    }
+
+    GephiColumnCache getNodeColumns() {
+        return nodeColumns;
+    }
+
+    GephiColumnCache getEdgeColumns() {
+        return edgeColumns;
+    }
+
+    /**
+     * Returns the write buffer of the calling thread, or <code>null</code> when
+     * transactions are disabled.
+     */
+    GephiTransaction.Buffer getTransactionBuffer() {
+        return transaction == null ? null : transaction.getBuffer();
+    }
+
+    /**
+     * Returns the write buffer of the calling thread when it holds changes,
+     * or <code>null</code>, without opening a transaction. Reads go through
+     * it so that a thread sees its own writes.
+     */
+    GephiTransaction.Buffer getPendingChanges() {
+        return transaction == null ? null : transaction.getPendingChanges();
+    }
+
+    /**
+     * Returns the node of an id as seen by the calling thread.
+     */
+    Node lookupNode(final Object id) {
+        final GephiTransaction.Buffer buffer = getPendingChanges();
+        return buffer == null ? graph.getNode(id) : buffer.getNode(graph, id);
+    }
+
+    /**
+     * Returns whether the current thread has a transaction open, without
+     * opening one.
+     */
+    boolean isTransactionOpen() {
+        return transaction != null && transaction.isOpen();
+    }
+
+    /**
+     * Returns the codec snapshots of this graph are written with, set by
+     * {@link #GREMLIN_GEPHIGRAPH_COMPRESSION}.
+     */
+    GephiSnapshotCodec getSnapshotCodec() {
+        return snapshotCodec;
+    }
+
+    /**
+     * Returns the log the mutations are appended to, or <code>null</code> when
+     * {@link #GREMLIN_GEPHIGRAPH_WAL} is not set.
+     */
+    GephiWriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+
+    /**
+     * Takes the store write lock. Mutations lock through this method and
+     * {@link #writeUnlock()} so that the log is synced and the change counted
+     * once, when the outermost lock is released.
+     */
+    void writeLock() {
+        graph.writeLock();
+        if (writeAheadLog != null || checkpointer != null) {
+            writeDepth.get()[0]++;
+        }
+    }
+
+    void writeUnlock() {
+        graph.writeUnlock();
+        if ((writeAheadLog != null || checkpointer != null) && --writeDepth.get()[0] == 0) {
+            if (writeAheadLog != null) {
+                writeAheadLog.commit();
+            }
+            if (checkpointer != null) {
+                checkpointer.onChange();
+            }
+        }
+    }
+
+    GephiCheckpointer getCheckpointer() {
+        return checkpointer;
+    }
+
+    GephiGraphComputerView getGraphComputerView() {
+        return graphComputerView;
+    }
+
+    synchronized void setGraphComputerView(GephiGraphComputerView graphComputerView) {
+        if (graphComputerView != null && this.graphComputerView != null) {
+            throw new IllegalStateException("A graph computer is already running on this graph");
+        }
+        this.graphComputerView = graphComputerView;
+    }
+
+    /**
+     * Writes a last snapshot to the graph location and drops the records of
+     * the log it covers. With checkpoints, the snapshot goes through
+     * {@link GephiCheckpointer#checkpoint()}, otherwise through
+     * {@link #saveGraph()}. In both cases the previous file is only replaced
+     * once the new one is complete.
+     */
     @Override
     public void close() {
-        if (graphLocation != null) {
-            saveGraph();
+        try {
+            if (checkpointer != null) {
+                checkpointer.close();
+            }
+        } finally {
+            try {
+                if (checkpointer != null) {
+                    try {
+                        checkpointer.checkpoint();
+                    } catch (IOException ex) {
+                        throw new RuntimeException(String.format("Could not save graph at %s with %s", graphLocation, graphFormat), ex);
+                    }
+                } else if (graphLocation != null) {
+                    saveGraph();
+                }
+            } finally {
+                if (writeAheadLog != null) {
+                    try {
+                        writeAheadLog.close();
+                    } catch (IOException ex) {
+                        throw new RuntimeException(String.format("Could not close the log at %s", writeAheadLog.getFile()), ex);
+                    }
+                }
+            }
         }
     }
 
@@ -247,9 +602,13 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
                 if (graphFormat.equals("graphml")) {
                     io(IoCore.graphml()).readGraph(graphLocation);
                 } else if (graphFormat.equals("graphson")) {
-                    io(IoCore.graphson()).readGraph(graphLocation);
+                    try (InputStream is = new FileInputStream(f)) {
+                        graphSONImporter().readGraph(is);
+                    }
                 } else if (graphFormat.equals("gryo")) {
                     io(IoCore.gryo()).readGraph(graphLocation);
+                } else if (graphFormat.equals(GEPHI_FORMAT)) {
+                    // Read with the model in openGraphModel()
                 } else {
                     //TODO
                 }
@@ -259,32 +618,76 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
         }
     }
 
+    /**
+     * Writes the graph to a temporary file that is synced and then atomically
+     * moved to the graph location, so that a failure leaves the previous file
+     * whole. The log records written before the save are then dropped.
+     */
     private void saveGraph() {
         final File f = new File(graphLocation);
-        if (f.exists()) {
-            f.delete();
-        } else {
-            final File parent = f.getParentFile();
-            if (!parent.exists()) {
-                parent.mkdirs();
-            }
+        final File tmp = new File(graphLocation + ".tmp");
+        if (f.getParentFile() != null) {
+            f.getParentFile().mkdirs();
         }
 
         try {
-            if (graphFormat.equals("graphml")) {
-                io(IoCore.graphml()).writeGraph(graphLocation);
-            } else if (graphFormat.equals("graphson")) {
-                io(IoCore.graphson()).writeGraph(graphLocation);
-            } else if (graphFormat.equals("gryo")) {
-                io(IoCore.gryo()).writeGraph(graphLocation);
-            } else {
-                //TODO
+            final long mark;
+            graph.readLock();
+            try {
+                mark = writeAheadLog != null ? writeAheadLog.mark() : 0;
+                if (graphFormat.equals("graphml")) {
+                    try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), GephiDataOutput.BUFFER_SIZE)) {
+                        GephiGraphWriter.writeGraphML(this, os);
+                    }
+                } else if (graphFormat.equals("graphson")) {
+                    try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), GephiDataOutput.BUFFER_SIZE)) {
+                        GephiGraphWriter.writeGraphSON(this, os);
+                    }
+                } else if (graphFormat.equals("gryo")) {
+                    io(IoCore.gryo()).writeGraph(tmp.getPath());
+                } else if (graphFormat.equals(GEPHI_FORMAT)) {
+                    writeGraphModel(tmp);
+                } else {
+                    //TODO
+                    return;
+                }
+            } finally {
+                graph.readUnlock();
+            }
+            try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (writeAheadLog != null) {
+                writeAheadLog.truncate(mark);
             }
         } catch (Exception ex) {
             throw new RuntimeException(String.format("Could not save graph at %s with %s", graphLocation, graphFormat), ex);
         }
     }
 
+    /**
+     * Serializes the model under the read lock into a file, streamed through
+     * the snapshot codec.
+     */
+    void writeGraphModel(final File f) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final WritableByteChannel target = snapshotCodec == GephiSnapshotCodec.NONE ? channel : new GephiBlockChannel.Writer(channel, snapshotCodec);
+            final GephiDataOutput output = new GephiDataOutput(target);
+            graph.readLock();
+            try {
+                GraphModel.Serialization.write(output, graphModel);
+            } finally {
+                graph.readUnlock();
+            }
+            output.flush();
+            if (target != channel) {
+                // Ends the blocks, the file channel is closed with the try
+                target.close();
+            }
+        }
+    }
+
     @Override
     public Features features() {
         return features;
@@ -360,6 +763,12 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
 
         private final GephiVariableFeatures variablesFeatures = new GephiVariableFeatures();
 
+        /**
+         * Concurrent access is about several graph instances opened over the
+         * same data, which an in-memory graph does not support. A single
+         * instance is still safe to share between threads, reads holding the
+         * graph read lock and writes the write lock.
+         */
         @Override
         public boolean supportsConcurrentAccess() {
             return false;
@@ -367,7 +776,7 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
 
         @Override
         public boolean supportsTransactions() {
-            return false;
+            return transaction != null;
         }
 
         @Override
@@ -377,7 +786,7 @@ public class GephiGraph implements org.apache.tinkerpop.gremlin.structure.Graph
 
         @Override
         public boolean supportsComputer() {
-            return false;
+            return true;
         }
 
         @Override
@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import org.apache.tinkerpop.gremlin.process.computer.ComputerResult;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.process.computer.MapReduce;
+import org.apache.tinkerpop.gremlin.process.computer.MessageCombiner;
+import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.util.ComputerGraph;
+import org.apache.tinkerpop.gremlin.process.computer.util.DefaultComputerResult;
+import org.apache.tinkerpop.gremlin.process.computer.util.GraphComputerHelper;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+/**
+ * {@link GraphComputer} running a {@link VertexProgram} in bulk-synchronous
+ * supersteps over the node store.
+ * <p/>
+ * The node store ids are split into one contiguous range per worker and every
+ * superstep runs the ranges as tasks of a {@link ForkJoinPool}, each worker
+ * with its own clone of the vertex program. Messages and element compute keys
+ * are kept in arrays indexed by node store id, see {@link GephiMessageBoard}
+ * and {@link GephiGraphComputerView}. Vertices and edges can't be added or
+ * removed during the computation.
+ * <p/>
+ * PageRank and peer pressure are executed natively over primitive arrays
+ * unless {@link #GREMLIN_GEPHIGRAPH_COMPUTER_NATIVE_PROGRAMS} is set to
+ * <code>false</code>.
+ */
+public final class GephiGraphComputer implements GraphComputer {
+
+    /**
+     * Configuration key to disable the native execution of the standard vertex
+     * programs, see {@link GephiNativePrograms}.
+     */
+    public static final String GREMLIN_GEPHIGRAPH_COMPUTER_NATIVE_PROGRAMS = "gremlin.gephigraph.computer.nativePrograms";
+    // Highest parallelism accepted by ForkJoinPool
+    private static final int MAX_WORKERS = 0x7fff;
+
+    private final GephiGraph graph;
+    private final Set<MapReduce> mapReducers = new HashSet<>();
+    private ResultGraph resultGraph;
+    private Persist persist;
+    private VertexProgram<?> vertexProgram;
+    private GephiMemory memory;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private boolean nativePrograms = true;
+    private boolean executed = false;
+
+    public GephiGraphComputer(final GephiGraph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public GraphComputer result(final ResultGraph resultGraph) {
+        this.resultGraph = resultGraph;
+        return this;
+    }
+
+    @Override
+    public GraphComputer persist(final Persist persist) {
+        this.persist = persist;
+        return this;
+    }
+
+    @Override
+    public GraphComputer program(final VertexProgram vertexProgram) {
+        this.vertexProgram = vertexProgram;
+        return this;
+    }
+
+    @Override
+    public GraphComputer mapReduce(final MapReduce mapReduce) {
+        this.mapReducers.add(mapReduce);
+        return this;
+    }
+
+    @Override
+    public GraphComputer workers(final int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be at least 1: " + workers);
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    @Override
+    public GraphComputer configure(final String key, final Object value) {
+        if (GREMLIN_GEPHIGRAPH_COMPUTER_NATIVE_PROGRAMS.equals(key)) {
+            this.nativePrograms = Boolean.parseBoolean(value.toString());
+        }
+        return this;
+    }
+
+    @Override
+    public Future<ComputerResult> submit() {
+        if (this.executed) {
+            throw Exceptions.computerHasAlreadyBeenSubmittedAVertexProgram();
+        }
+        this.executed = true;
+        if (this.vertexProgram == null && this.mapReducers.isEmpty()) {
+            throw GraphComputer.Exceptions.computerHasNoVertexProgramNorMapReducers();
+        }
+        if (this.vertexProgram != null) {
+            GraphComputerHelper.validateProgramOnComputer(this, this.vertexProgram);
+            this.mapReducers.addAll(this.vertexProgram.getMapReducers());
+        }
+        this.resultGraph = GraphComputerHelper.getResultGraphState(Optional.ofNullable(this.vertexProgram), Optional.ofNullable(this.resultGraph));
+        this.persist = GraphComputerHelper.getPersistState(Optional.ofNullable(this.vertexProgram), Optional.ofNullable(this.persist));
+        if (!this.features().supportsResultGraphPersistCombination(this.resultGraph, this.persist)) {
+            throw GraphComputer.Exceptions.resultGraphPersistCombinationNotSupported(this.resultGraph, this.persist);
+        }
+        if (this.workers > this.features().getMaxWorkers()) {
+            throw GraphComputer.Exceptions.computerRequiresMoreWorkersThanSupported(this.workers, this.features().getMaxWorkers());
+        }
+
+        this.memory = new GephiMemory(this.vertexProgram, this.mapReducers);
+        final ExecutorService computerService = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, GephiGraphComputer.class.getSimpleName() + "-boss"));
+        try {
+            return computerService.submit(() -> execute());
+        } finally {
+            computerService.shutdown();
+        }
+    }
+
+    private ComputerResult execute() {
+        final long time = System.currentTimeMillis();
+        final int maxStoreId = this.graph.getGraphModel().getMaxNodeStoreId();
+        final ForkJoinPool pool = new ForkJoinPool(this.workers);
+        GephiGraphComputerView view = null;
+        try {
+            if (this.vertexProgram != null) {
+                view = new GephiGraphComputerView(this.graph, this.vertexProgram.getElementComputeKeys());
+                this.graph.setGraphComputerView(view);
+                if (this.nativePrograms && GephiNativePrograms.execute(this.graph, this.vertexProgram, view, this.memory, pool, this.workers)) {
+                    this.memory.completeSubRound();
+                } else {
+                    executeVertexProgram(pool, maxStoreId);
+                }
+            }
+            for (final MapReduce mapReduce : this.mapReducers) {
+                if (mapReduce.doStage(MapReduce.Stage.MAP)) {
+                    executeMapReduce(pool, maxStoreId, mapReduce);
+                }
+            }
+
+            this.memory.setRuntime(System.currentTimeMillis() - time);
+            this.memory.complete();
+            Graph result = this.graph;
+            if (view != null) {
+                this.graph.setGraphComputerView(null);
+                result = view.processResultGraphPersist(this.resultGraph, this.persist);
+            }
+            return new DefaultComputerResult(result, this.memory.asImmutable());
+        } finally {
+            if (view != null && this.graph.getGraphComputerView() == view) {
+                this.graph.setGraphComputerView(null);
+            }
+            pool.shutdown();
+        }
+    }
+
+    private void executeVertexProgram(final ForkJoinPool pool, final int maxStoreId) {
+        final GephiMessageBoard<Object> messageBoard = new GephiMessageBoard<>(this.graph, (MessageCombiner<Object>) this.vertexProgram.getMessageCombiner().orElse(null));
+        final VertexProgram<Object>[] programs = new VertexProgram[this.workers];
+        for (int i = 0; i < this.workers; i++) {
+            programs[i] = (VertexProgram<Object>) this.vertexProgram.clone();
+        }
+
+        this.vertexProgram.setup(this.memory);
+        this.memory.completeSubRound();
+        while (true) {
+            executePartitions(pool, maxStoreId, (partition, vertices) -> {
+                final VertexProgram<Object> program = programs[partition];
+                final GephiMessenger<Object> messenger = new GephiMessenger<>(messageBoard);
+                program.workerIterationStart(this.memory.asImmutable());
+                while (vertices.hasNext()) {
+                    final GephiVertex vertex = vertices.next();
+                    messenger.setVertex(vertex);
+                    program.execute(ComputerGraph.vertexProgram(vertex, program), messenger, this.memory);
+                }
+                program.workerIterationEnd(this.memory.asImmutable());
+            });
+            messageBoard.completeIteration();
+            this.memory.completeSubRound();
+            final boolean terminate = this.vertexProgram.terminate(this.memory);
+            this.memory.incrIteration();
+            this.memory.completeSubRound();
+            if (terminate) {
+                break;
+            }
+        }
+    }
+
+    private void executeMapReduce(final ForkJoinPool pool, final int maxStoreId, final MapReduce mapReduce) {
+        final MapReduce[] workerMapReducers = new MapReduce[this.workers];
+        for (int i = 0; i < this.workers; i++) {
+            workerMapReducers[i] = mapReduce.clone();
+        }
+
+        final GephiMapEmitter<?, ?> mapEmitter = new GephiMapEmitter<>(mapReduce.doStage(MapReduce.Stage.REDUCE));
+        executePartitions(pool, maxStoreId, (partition, vertices) -> {
+            final MapReduce workerMapReduce = workerMapReducers[partition];
+            workerMapReduce.workerStart(MapReduce.Stage.MAP);
+            while (vertices.hasNext()) {
+                workerMapReduce.map(ComputerGraph.mapReduce(vertices.next()), mapEmitter);
+            }
+            workerMapReduce.workerEnd(MapReduce.Stage.MAP);
+        });
+        mapEmitter.complete(mapReduce);
+
+        if (!mapReduce.doStage(MapReduce.Stage.REDUCE)) {
+            mapReduce.addResultToMemory(this.memory, mapEmitter.mapQueue.iterator());
+            return;
+        }
+        final GephiReduceEmitter<?, ?> reduceEmitter = new GephiReduceEmitter<>();
+        final List<Map.Entry<?, Queue<?>>> entries = new ArrayList<>((Set) mapEmitter.reduceMap.entrySet());
+        execute(pool, this.workers, partition -> {
+            final MapReduce workerMapReduce = workerMapReducers[partition];
+            workerMapReduce.workerStart(MapReduce.Stage.REDUCE);
+            for (int i = from(entries.size(), partition, this.workers); i < from(entries.size(), partition + 1, this.workers); i++) {
+                workerMapReduce.reduce(entries.get(i).getKey(), entries.get(i).getValue().iterator(), reduceEmitter);
+            }
+            workerMapReduce.workerEnd(MapReduce.Stage.REDUCE);
+        });
+        reduceEmitter.complete(mapReduce);
+        mapReduce.addResultToMemory(this.memory, reduceEmitter.reduceQueue.iterator());
+    }
+
+    private void executePartitions(final ForkJoinPool pool, final int maxStoreId, final PartitionTask task) {
+        execute(pool, this.workers, partition -> task.execute(partition, GephiStoreIterator.vertices(this.graph, from(maxStoreId, partition, this.workers), from(maxStoreId, partition + 1, this.workers))));
+    }
+
+    static void execute(final ForkJoinPool pool, final int workers, final IntConsumer task) {
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            final int partition = i;
+            tasks.add(pool.submit(() -> task.accept(partition)));
+        }
+        for (ForkJoinTask<?> forkJoinTask : tasks) {
+            forkJoinTask.join();
+        }
+    }
+
+    static int from(final int size, final int partition, final int workers) {
+        return (int) ((long) size * partition / workers);
+    }
+
+    @Override
+    public Features features() {
+        return new Features() {
+            @Override
+            public int getMaxWorkers() {
+                return MAX_WORKERS;
+            }
+
+            @Override
+            public boolean supportsVertexAddition() {
+                return false;
+            }
+
+            @Override
+            public boolean supportsVertexRemoval() {
+                return false;
+            }
+
+            @Override
+            public boolean supportsVertexPropertyRemoval() {
+                return false;
+            }
+
+            @Override
+            public boolean supportsEdgeAddition() {
+                return false;
+            }
+
+            @Override
+            public boolean supportsEdgeRemoval() {
+                return false;
+            }
+
+            @Override
+            public boolean supportsEdgePropertyAddition() {
+                return false;
+            }
+
+            @Override
+            public boolean supportsEdgePropertyRemoval() {
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.graphComputerString(this);
+    }
+
+    @FunctionalInterface
+    private interface PartitionTask {
+
+        void execute(int partition, Iterator<GephiVertex> vertices);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.empty.EmptyGraph;
+
+/**
+ * Values of the element compute keys while a {@link GephiGraphComputer} runs.
+ * <p/>
+ * Each key gets one array indexed by node store id, sized when the
+ * computation starts. A slot is only written by the worker executing that
+ * vertex, so no synchronization is needed. Nothing is written to the node
+ * table until the result graph is processed.
+ */
+final class GephiGraphComputerView {
+
+    private final GephiGraph graph;
+    private final Map<String, Object[]> computeProperties = new HashMap<>();
+
+    GephiGraphComputerView(GephiGraph graph, Set<String> computeKeys) {
+        this.graph = graph;
+        int size = graph.getGraphModel().getMaxNodeStoreId();
+        for (String key : computeKeys) {
+            computeProperties.put(key, new Object[size]);
+        }
+    }
+
+    boolean isComputeKey(String key) {
+        return computeProperties.containsKey(key);
+    }
+
+    <V> VertexProperty<V> getProperty(GephiVertex vertex, String key) {
+        V value = (V) get(computeProperties.get(key), vertex.element.getStoreId());
+        return value == null ? VertexProperty.<V>empty() : new GephiComputeProperty<>(this, vertex, key, value);
+    }
+
+    <V> List<VertexProperty<V>> getProperties(GephiVertex vertex, String... propertyKeys) {
+        Collection<String> keys = propertyKeys.length == 0 ? computeProperties.keySet() : Arrays.asList(propertyKeys);
+        List<VertexProperty<V>> properties = new ArrayList<>();
+        for (String key : keys) {
+            if (isComputeKey(key)) {
+                VertexProperty<V> property = getProperty(vertex, key);
+                if (property.isPresent()) {
+                    properties.add(property);
+                }
+            }
+        }
+        return properties;
+    }
+
+    Set<String> keys(GephiVertex vertex) {
+        Set<String> keys = new HashSet<>();
+        for (Map.Entry<String, Object[]> entry : computeProperties.entrySet()) {
+            if (get(entry.getValue(), vertex.element.getStoreId()) != null) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    <V> VertexProperty<V> addProperty(GephiVertex vertex, String key, V value) {
+        Object[] values = computeProperties.get(key);
+        int storeId = vertex.element.getStoreId();
+        if (storeId < 0 || storeId >= values.length) {
+            throw new IllegalStateException("The vertex " + vertex.id() + " was added after the computation started");
+        }
+        values[storeId] = value;
+        return new GephiComputeProperty<>(this, vertex, key, value);
+    }
+
+    /**
+     * Returns the array of values of a compute key, indexed by store id, for
+     * programs writing the whole key at once.
+     */
+    Object[] getValues(String key) {
+        return computeProperties.get(key);
+    }
+
+    void removeProperty(GephiVertex vertex, String key) {
+        Object[] values = computeProperties.get(key);
+        int storeId = vertex.element.getStoreId();
+        if (storeId >= 0 && storeId < values.length) {
+            values[storeId] = null;
+        }
+    }
+
+    /**
+     * Writes the compute keys out according to the requested result graph and
+     * persist level. Must be called once the view has been detached from the
+     * graph, so that vertex properties go to the node table again.
+     */
+    Graph processResultGraphPersist(GraphComputer.ResultGraph resultGraph, GraphComputer.Persist persist) {
+        if (persist == GraphComputer.Persist.NOTHING) {
+            return resultGraph == GraphComputer.ResultGraph.ORIGINAL ? graph : EmptyGraph.instance();
+        }
+        if (resultGraph == GraphComputer.ResultGraph.ORIGINAL) {
+            graph.vertices().forEachRemaining(vertex -> writeComputeProperties((GephiVertex) vertex, vertex));
+            return graph;
+        }
+
+        GephiGraph newGraph = GephiGraph.open();
+        graph.vertices().forEachRemaining(vertex -> {
+            Vertex newVertex = newGraph.addVertex(T.id, vertex.id(), T.label, vertex.label());
+            vertex.properties().forEachRemaining(property -> newVertex.property(VertexProperty.Cardinality.single, property.key(), property.value()));
+            writeComputeProperties((GephiVertex) vertex, newVertex);
+        });
+        if (persist == GraphComputer.Persist.EDGES) {
+            graph.edges().forEachRemaining(edge -> {
+                Vertex outVertex = newGraph.vertices(edge.outVertex().id()).next();
+                Vertex inVertex = newGraph.vertices(edge.inVertex().id()).next();
+                Edge newEdge = outVertex.addEdge(edge.label(), inVertex, T.id, edge.id());
+                edge.properties().forEachRemaining(property -> newEdge.property(property.key(), property.value()));
+            });
+        }
+        return newGraph;
+    }
+
+    private void writeComputeProperties(GephiVertex vertex, Vertex target) {
+        for (Map.Entry<String, Object[]> entry : computeProperties.entrySet()) {
+            Object value = get(entry.getValue(), vertex.element.getStoreId());
+            if (value != null) {
+                target.property(VertexProperty.Cardinality.single, entry.getKey(), value);
+            }
+        }
+    }
+
+    private static Object get(Object[] values, int storeId) {
+        return storeId >= 0 && storeId < values.length ? values[storeId] : null;
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONTokens;
+import org.apache.tinkerpop.shaded.jackson.databind.ObjectMapper;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.GraphFactory;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+
+/**
+ * Parallel reader of the GraphSON adjacency list format written by
+ * <code>io(IoCore.graphson()).writeGraph()</code>, one vertex with its edges
+ * per line.
+ * <p/>
+ * Chunks of lines are parsed by worker threads into detached nodes and edges.
+ * Each chunk is inserted under one write lock as soon as it is parsed, its
+ * nodes with <code>addAllNodes</code> and then the edges whose target is
+ * already in the store with <code>addAllEdges</code>. Edge targets are
+ * resolved through a concurrent map of the vertices read so far. Only the
+ * edges pointing to a vertex not inserted yet are kept, and they are inserted
+ * once every line is parsed. The edge ids of a batch are checked against the
+ * store and each other before it is inserted.
+ * <p/>
+ * Elements without a string id get a generated id after all the others, so
+ * that a generated id never takes a numeric id read later.
+ * <p/>
+ * As with the TinkerPop reader, only the outgoing edges of each line are read
+ * and ids which are not strings are replaced by generated ids.
+ */
+public final class GephiGraphSONImporter {
+
+    static final int CHUNK_SIZE = 10000;
+
+    private final GephiGraph graph;
+    private final GraphModel graphModel;
+    private final GraphFactory factory;
+    private final ObjectMapper mapper;
+    private final int threads;
+    private final Map<Object, Node> nodes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> edgeTypes = new ConcurrentHashMap<>();
+    private final Queue<List<Edge>> deferredEdges = new ConcurrentLinkedQueue<>();
+    private final Queue<Map<String, Object>> pendingVertices = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingEdge> pendingEdges = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingEdge> generatedEdges = new ConcurrentLinkedQueue<>();
+    private final AtomicLong vertexCount = new AtomicLong();
+    private final AtomicLong edgeCount = new AtomicLong();
+
+    GephiGraphSONImporter(final GephiGraph graph, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.graph = graph;
+        this.graphModel = graph.getGraphModel();
+        this.factory = graphModel.factory();
+        this.mapper = graph.io(IoCore.graphson()).mapper().create().createMapper();
+        this.threads = threads;
+    }
+
+    /**
+     * Reads the vertices and edges of the stream into the graph.
+     */
+    public void readGraph(final InputStream inputStream) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "GephiGraphSONImporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Bounds the number of chunks read ahead of the workers
+            final Semaphore permits = new Semaphore(threads * 2);
+            final List<Future<?>> futures = new ArrayList<>();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), GephiDataOutput.BUFFER_SIZE);
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(executor, permits, futures, chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            submit(executor, permits, futures, chunk);
+            await(futures);
+
+            // Generated ids are only taken once every explicit id is known, as the factory
+            // moves its counters past the numeric ones
+            execute(executor, futures, drain(pendingVertices), this::readVertices);
+            execute(executor, futures, drain(pendingEdges), this::resolve);
+            execute(executor, futures, drain(generatedEdges), this::resolve);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every node is in the store now, so none of these edges is deferred again
+        List<Edge> batch;
+        while ((batch = deferredEdges.poll()) != null) {
+            graph.writeLock();
+            try {
+                addEdges(batch);
+            } finally {
+                graph.writeUnlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of vertices read so far.
+     */
+    public long getVertexCount() {
+        return vertexCount.get();
+    }
+
+    /**
+     * Returns the number of edges read so far.
+     */
+    public long getEdgeCount() {
+        return edgeCount.get();
+    }
+
+    private void submit(final ExecutorService executor, final Semaphore permits, final List<Future<?>> futures, final List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        futures.add(executor.submit(() -> {
+            try {
+                parse(lines);
+            } finally {
+                permits.release();
+            }
+        }));
+    }
+
+    private static void await(final List<Future<?>> futures) throws IOException {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            futures.clear();
+        }
+    }
+
+    private static <T> List<T> drain(final Queue<T> queue) {
+        final List<T> list = new ArrayList<>(queue);
+        queue.clear();
+        return list;
+    }
+
+    private <T> void execute(final ExecutorService executor, final List<Future<?>> futures, final List<T> list, final Consumer<List<T>> task) throws IOException {
+        for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+            final List<T> sublist = list.subList(i, Math.min(list.size(), i + CHUNK_SIZE));
+            futures.add(executor.submit(() -> task.accept(sublist)));
+        }
+        await(futures);
+    }
+
+    private void parse(final List<String> lines) {
+        final List<Map<String, Object>> vertices = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            final Map<String, Object> vertex;
+            try {
+                vertex = mapper.readValue(line, Map.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (vertex.get(GraphSONTokens.ID) instanceof String) {
+                vertices.add(vertex);
+            } else {
+                pendingVertices.add(vertex);
+            }
+        }
+        readVertices(vertices);
+    }
+
+    private void readVertices(final List<Map<String, Object>> vertices) {
+        final org.gephi.graph.api.Graph store = graph.getGraph();
+        final List<Node> chunkNodes = new ArrayList<>(vertices.size());
+        final List<Edge> chunkEdges = new ArrayList<>();
+        for (Map<String, Object> vertex : vertices) {
+            final Object id = vertex.get(GraphSONTokens.ID);
+            final Object label = vertex.get(GraphSONTokens.LABEL);
+            if (id instanceof String && store.getNode(id) != null) {
+                throw Graph.Exceptions.vertexWithIdAlreadyExists(id);
+            }
+            final Node node;
+            // The factory moves its id counters past numeric ids without synchronization
+            synchronized (factory) {
+                node = id instanceof String ? factory.newNode(id) : factory.newNode();
+            }
+            if (id != null && nodes.putIfAbsent(id, node) != null) {
+                throw Graph.Exceptions.vertexWithIdAlreadyExists(id);
+            }
+            node.setLabel(label != null ? label.toString() : Vertex.DEFAULT_LABEL);
+            setVertexProperties(node, (Map<String, List<Map<String, Object>>>) vertex.get(GraphSONTokens.PROPERTIES));
+            chunkNodes.add(node);
+
+            final Map<String, List<Map<String, Object>>> outE = (Map<String, List<Map<String, Object>>>) vertex.get(GraphSONTokens.OUT_E);
+            if (outE != null) {
+                for (Map.Entry<String, List<Map<String, Object>>> entry : outE.entrySet()) {
+                    for (Map<String, Object> edge : entry.getValue()) {
+                        final PendingEdge pendingEdge = new PendingEdge(node, entry.getKey(), edge);
+                        if (pendingEdge.id instanceof String && store.getEdge(pendingEdge.id) != null) {
+                            throw Graph.Exceptions.edgeWithIdAlreadyExists(pendingEdge.id);
+                        }
+                        final Node target = nodes.get(pendingEdge.inV);
+                        if (!(pendingEdge.id instanceof String)) {
+                            generatedEdges.add(pendingEdge);
+                        } else if (target != null) {
+                            chunkEdges.add(pendingEdge.create(target));
+                        } else {
+                            pendingEdges.add(pendingEdge);
+                        }
+                    }
+                }
+            }
+        }
+
+        graph.writeLock();
+        try {
+            store.addAllNodes(chunkNodes);
+            for (Node node : chunkNodes) {
+                graph.getLabelIndex().add(node);
+            }
+            final GephiWriteAheadLog log = graph.getWriteAheadLog();
+            if (log != null) {
+                chunkNodes.forEach(log::addNode);
+            }
+            vertexCount.addAndGet(chunkNodes.size());
+            addEdges(chunkEdges);
+        } finally {
+            graph.writeUnlock();
+        }
+    }
+
+    /**
+     * Inserts the edges of a batch whose target is in the store, the others
+     * are deferred. Called under the write lock, which makes the store ids of
+     * the nodes inserted by other workers visible.
+     */
+    private void addEdges(final List<Edge> batch) {
+        final org.gephi.graph.api.Graph store = graph.getGraph();
+        final List<Edge> ready = new ArrayList<>(batch.size());
+        final List<Edge> deferred = new ArrayList<>();
+        final Set<Object> ids = new HashSet<>();
+        for (Edge edge : batch) {
+            if (edge.getTarget().getStoreId() == -1) {
+                deferred.add(edge);
+                continue;
+            }
+            // Checked before inserting so that a duplicate leaves no part of the batch in the store
+            if (store.getEdge(edge.getId()) != null || !ids.add(edge.getId())) {
+                throw Graph.Exceptions.edgeWithIdAlreadyExists(edge.getId());
+            }
+            ready.add(edge);
+        }
+        if (!deferred.isEmpty()) {
+            deferredEdges.add(deferred);
+        }
+        final int count = store.getEdgeCount();
+        store.addAllEdges(ready);
+        edgeCount.addAndGet(store.getEdgeCount() - count);
+        final GephiWriteAheadLog log = graph.getWriteAheadLog();
+        if (log != null) {
+            ready.forEach(log::addEdge);
+        }
+    }
+
+    private void resolve(final List<PendingEdge> pending) {
+        final List<Edge> resolved = new ArrayList<>(pending.size());
+        for (PendingEdge pendingEdge : pending) {
+            final Node target = nodes.get(pendingEdge.inV);
+            if (target == null) {
+                throw Graph.Exceptions.elementNotFound(Vertex.class, pendingEdge.inV);
+            }
+            resolved.add(pendingEdge.create(target));
+        }
+        deferredEdges.add(resolved);
+    }
+
+    private void setVertexProperties(final Node node, final Map<String, List<Map<String, Object>>> properties) {
+        if (properties == null) {
+            return;
+        }
+        for (Map.Entry<String, List<Map<String, Object>>> entry : properties.entrySet()) {
+            final List<Map<String, Object>> values = entry.getValue();
+            if (values.isEmpty()) {
+                continue;
+            }
+            // A single value per key is supported, the last one wins as with the TinkerPop reader
+            final Map<String, Object> property = values.get(values.size() - 1);
+            final Object value = property.get(GraphSONTokens.VALUE);
+            if (value == null) {
+                continue;
+            }
+            final Column column = getColumn(graph.getNodeColumns(), entry.getKey(), value.getClass());
+            node.setAttribute(column, value);
+            final Map<String, Object> metaProperties = (Map<String, Object>) property.get(GraphSONTokens.PROPERTIES);
+            if (metaProperties != null) {
+                for (Map.Entry<String, Object> metaProperty : metaProperties.entrySet()) {
+                    if (metaProperty.getValue() != null) {
+                        node.setAttribute(getMetaColumn(column, metaProperty.getKey(), metaProperty.getValue().getClass()), metaProperty.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the column of the key, creating it under the write lock the
+     * first time the key is met.
+     */
+    private Column getColumn(final GephiColumnCache columns, final String key, final Class<?> type) {
+        final Column column = columns.getColumn(key);
+        if (column != null) {
+            return column;
+        }
+        graph.writeLock();
+        try {
+            return columns.addColumn(key, type);
+        } finally {
+            graph.writeUnlock();
+        }
+    }
+
+    /**
+     * Returns the meta-property column of the key on the properties of the
+     * column, creating it under the write lock the first time it is met.
+     */
+    private Column getMetaColumn(final Column column, final String key, final Class<?> type) {
+        final GephiColumnCache columns = graph.getNodeColumns();
+        final Column metaColumn = columns.getMetaColumn(column, key);
+        if (metaColumn != null) {
+            return metaColumn;
+        }
+        graph.writeLock();
+        try {
+            return columns.addMetaColumn(column, key, type);
+        } finally {
+            graph.writeUnlock();
+        }
+    }
+
+    /**
+     * Outgoing edge of a line, kept until its target is read.
+     */
+    private final class PendingEdge {
+
+        private final Node source;
+        private final String label;
+        private final Object id;
+        private final Object inV;
+        private final Map<String, Object> properties;
+
+        private PendingEdge(final Node source, final String label, final Map<String, Object> edge) {
+            this.source = source;
+            this.label = label;
+            this.id = edge.get(GraphSONTokens.ID);
+            this.inV = edge.get(GraphSONTokens.IN);
+            this.properties = (Map<String, Object>) edge.get(GraphSONTokens.PROPERTIES);
+        }
+
+        private Edge create(final Node target) {
+            final int type = edgeTypes.computeIfAbsent(label, graphModel::addEdgeType);
+            final Edge edge;
+            synchronized (factory) {
+                edge = id instanceof String
+                        ? factory.newEdge(id, source, target, type, 1.0, true)
+                        : factory.newEdge(source, target, type, true);
+            }
+            edge.setLabel(label);
+            if (properties != null) {
+                for (Map.Entry<String, Object> entry : properties.entrySet()) {
+                    if (entry.getValue() != null) {
+                        edge.setAttribute(getColumn(graph.getEdgeColumns(), entry.getKey(), entry.getValue().getClass()), entry.getValue());
+                    }
+                }
+            }
+            return edge;
+        }
+    }
+}
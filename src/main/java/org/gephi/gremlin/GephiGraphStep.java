@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Contains;
+import org.apache.tinkerpop.gremlin.process.traversal.step.HasContainerHolder;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.Index;
+import org.gephi.graph.api.Table;
+
+/**
+ * {@link GraphStep} that also holds the <code>has()</code> filters directly
+ * following it. When one of them is an equality on an indexed column, the
+ * candidates are fetched from the graphstore {@link Index} instead of scanning
+ * the whole store. Otherwise vertices filtered by label are fetched from the
+ * {@link GephiLabelIndex}. Neither index sees the changes pending in the
+ * transaction of the calling thread, in which case the graph is scanned.
+ */
+public final class GephiGraphStep<S, E extends Element> extends GraphStep<S, E> implements HasContainerHolder {
+
+    private final List<HasContainer> hasContainers = new ArrayList<>();
+
+    public GephiGraphStep(final GraphStep<S, E> originalGraphStep) {
+        super(originalGraphStep.getTraversal(), originalGraphStep.getReturnClass(), originalGraphStep.isStartStep(), originalGraphStep.getIds());
+        originalGraphStep.getLabels().forEach(this::addLabel);
+        this.setIteratorSupplier(() -> (Iterator<E>) elements((GephiGraph) this.getTraversal().getGraph().get()));
+    }
+
+    private Iterator<? extends Element> elements(final GephiGraph graph) {
+        return Vertex.class.isAssignableFrom(this.returnClass) ? this.vertices(graph) : this.edges(graph);
+    }
+
+    private Iterator<? extends Vertex> vertices(final GephiGraph graph) {
+        if (this.ids.length == 0 && graph.getPendingChanges() == null) {
+            final Table table = graph.getGraphModel().getNodeTable();
+            final HasContainer indexedContainer = getIndexedContainer(table);
+            if (indexedContainer != null) {
+                return filter(lookup(graph.getGraph(), graph.getGraphModel().getNodeIndex(), table, indexedContainer, graph::vertex));
+            }
+            final Collection<String> labels = getVertexLabels();
+            if (labels != null) {
+                return filter(IteratorUtils.flatMap(labels.iterator(), label -> GephiStoreIterator.vertices(graph, label)));
+            }
+        }
+        return filter(graph.vertices(this.ids));
+    }
+
+    private Iterator<? extends Edge> edges(final GephiGraph graph) {
+        if (this.ids.length == 0 && graph.getPendingChanges() == null) {
+            final Table table = graph.getGraphModel().getEdgeTable();
+            final HasContainer indexedContainer = getIndexedContainer(table);
+            if (indexedContainer != null) {
+                return filter(lookup(graph.getGraph(), graph.getGraphModel().getEdgeIndex(), table, indexedContainer, graph::edge));
+            }
+        }
+        return filter(graph.edges(this.ids));
+    }
+
+    private HasContainer getIndexedContainer(final Table table) {
+        for (HasContainer hasContainer : this.hasContainers) {
+            if (hasContainer.getBiPredicate() == Compare.eq && hasContainer.getValue() != null) {
+                Column column = table.getColumn(hasContainer.getKey());
+                // The index compares values of the column type only, numbers of another type are left to the filter
+                if (column != null && column.isIndexed() && !column.isProperty() && column.getTypeClass().equals(hasContainer.getValue().getClass())) {
+                    return hasContainer;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Collection<String> getVertexLabels() {
+        for (HasContainer hasContainer : this.hasContainers) {
+            if (hasContainer.getKey().equals(T.label.getAccessor())) {
+                if (hasContainer.getBiPredicate() == Compare.eq && hasContainer.getValue() instanceof String) {
+                    return Collections.singleton((String) hasContainer.getValue());
+                } else if (hasContainer.getBiPredicate() == Contains.within && hasContainer.getValue() instanceof Collection
+                        && ((Collection<?>) hasContainer.getValue()).stream().allMatch(label -> label instanceof String)) {
+                    return new LinkedHashSet<>((Collection<String>) hasContainer.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns how to read the number of elements of this step from the
+     * graphstore, when it has no id and no filter other than vertex labels:
+     * the size of the store or the counts of the label index. The elements
+     * are counted one by one while the calling thread has pending changes.
+     */
+    ToLongFunction<GephiGraph> getCounter() {
+        final ToLongFunction<GephiGraph> counter;
+        if (this.ids.length != 0) {
+            return null;
+        } else if (this.hasContainers.isEmpty()) {
+            counter = Vertex.class.isAssignableFrom(this.returnClass)
+                    ? graph -> graph.getGraph().getNodeCount()
+                    : graph -> graph.getGraph().getEdgeCount();
+        } else if (this.hasContainers.size() == 1 && Vertex.class.isAssignableFrom(this.returnClass)) {
+            final Collection<String> labels = getVertexLabels();
+            if (labels == null) {
+                return null;
+            }
+            counter = graph -> labels.stream().mapToLong(graph.getLabelIndex()::count).sum();
+        } else {
+            return null;
+        }
+        return graph -> graph.getPendingChanges() != null ? IteratorUtils.count(elements(graph)) : counter.applyAsLong(graph);
+    }
+
+    private static <K extends org.gephi.graph.api.Element, T> Iterator<T> lookup(final org.gephi.graph.api.Graph store, final Index<K> index, final Table table, final HasContainer hasContainer, final Function<K, T> wrapper) {
+        // The graph read lock keeps writers from changing the index while it is read
+        store.readLock();
+        try {
+            final Iterable<K> elements = index.get(table.getColumn(hasContainer.getKey()), hasContainer.getValue());
+            if (elements == null) {
+                // The index returns without releasing the table lock when the value is unknown
+                table.doBreak();
+                return Collections.emptyIterator();
+            }
+            // Exhausting the iterable releases the table lock
+            final List<T> list = new ArrayList<>();
+            for (K element : elements) {
+                list.add(wrapper.apply(element));
+            }
+            return list.iterator();
+        } finally {
+            store.readUnlock();
+        }
+    }
+
+    private <T extends Element> Iterator<T> filter(final Iterator<T> iterator) {
+        return this.hasContainers.isEmpty() ? iterator : IteratorUtils.filter(iterator, element -> HasContainer.testAll(element, this.hasContainers));
+    }
+
+    @Override
+    public String toString() {
+        if (this.hasContainers.isEmpty()) {
+            return super.toString();
+        } else {
+            return 0 == this.ids.length
+                    ? StringFactory.stepString(this, this.returnClass.getSimpleName().toLowerCase(), this.hasContainers)
+                    : StringFactory.stepString(this, this.returnClass.getSimpleName().toLowerCase(), Arrays.toString(this.ids), this.hasContainers);
+        }
+    }
+
+    @Override
+    public List<HasContainer> getHasContainers() {
+        return Collections.unmodifiableList(this.hasContainers);
+    }
+
+    @Override
+    public void addHasContainer(final HasContainer hasContainer) {
+        this.hasContainers.add(hasContainer);
+    }
+}
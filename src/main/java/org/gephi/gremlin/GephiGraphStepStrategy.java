@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.function.ToLongFunction;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.step.HasContainerHolder;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.CountGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.MaxGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.MeanGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.MinGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.PropertiesStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.SumGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.PropertyType;
+import org.gephi.graph.api.Column;
+
+/**
+ * Replaces every {@link GraphStep} with a {@link GephiGraphStep} and folds the
+ * <code>has()</code> steps that directly follow it into the new step. A
+ * <code>V().count()</code>, <code>E().count()</code> or
+ * <code>V().hasLabel(...).count()</code> is answered by a
+ * {@link GephiCountStep} from the store size or the label index, and the sum, min, max or mean
+ * of a numeric property of all the elements by a {@link GephiColumnReduceStep}.
+ * These two are not folded in profiled traversals.
+ */
+public final class GephiGraphStepStrategy extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy> implements TraversalStrategy.ProviderOptimizationStrategy {
+
+    private static final GephiGraphStepStrategy INSTANCE = new GephiGraphStepStrategy();
+
+    private GephiGraphStepStrategy() {
+    }
+
+    @Override
+    public void apply(final Traversal.Admin<?, ?> traversal) {
+        if (traversal.getEngine().isComputer()) {
+            return;
+        }
+
+        final boolean profiled = GephiTraversalHelper.isProfiled(traversal);
+        TraversalHelper.getStepsOfClass(GraphStep.class, traversal).forEach(originalGraphStep -> {
+            final GephiGraphStep<?, ?> gephiGraphStep = new GephiGraphStep<>(originalGraphStep);
+            TraversalHelper.replaceStep(originalGraphStep, (Step) gephiGraphStep, traversal);
+            Step<?, ?> currentStep = gephiGraphStep.getNextStep();
+            while (currentStep instanceof HasContainerHolder) {
+                ((HasContainerHolder) currentStep).getHasContainers().forEach(gephiGraphStep::addHasContainer);
+                currentStep.getLabels().forEach(gephiGraphStep::addLabel);
+                traversal.removeStep(currentStep);
+                currentStep = currentStep.getNextStep();
+            }
+
+            if (profiled) {
+                return;
+            }
+            final ToLongFunction<GephiGraph> counter = gephiGraphStep.getCounter();
+            if (counter != null && gephiGraphStep.isStartStep() && gephiGraphStep.getLabels().isEmpty() && currentStep instanceof CountGlobalStep) {
+                final GephiCountStep<?> countStep = new GephiCountStep<>(traversal, counter);
+                currentStep.getLabels().forEach(countStep::addLabel);
+                TraversalHelper.replaceStep((Step) gephiGraphStep, countStep, traversal);
+                traversal.removeStep(currentStep);
+            } else if (gephiGraphStep.isStartStep() && gephiGraphStep.getIds().length == 0 && gephiGraphStep.getHasContainers().isEmpty()
+                    && gephiGraphStep.getLabels().isEmpty() && currentStep instanceof PropertiesStep) {
+                foldColumnReduce(traversal, gephiGraphStep, (PropertiesStep<?>) currentStep);
+            }
+        });
+    }
+
+    private static void foldColumnReduce(final Traversal.Admin<?, ?> traversal, final GephiGraphStep<?, ?> gephiGraphStep, final PropertiesStep<?> propertiesStep) {
+        final Step<?, ?> reducingStep = propertiesStep.getNextStep();
+        final GephiColumnReduceStep.Reduction reduction;
+        if (reducingStep instanceof SumGlobalStep) {
+            reduction = GephiColumnReduceStep.Reduction.SUM;
+        } else if (reducingStep instanceof MinGlobalStep) {
+            reduction = GephiColumnReduceStep.Reduction.MIN;
+        } else if (reducingStep instanceof MaxGlobalStep) {
+            reduction = GephiColumnReduceStep.Reduction.MAX;
+        } else if (reducingStep instanceof MeanGlobalStep) {
+            reduction = GephiColumnReduceStep.Reduction.MEAN;
+        } else {
+            return;
+        }
+        if (propertiesStep.getReturnType() != PropertyType.VALUE || propertiesStep.getPropertyKeys().length != 1
+                || !propertiesStep.getLabels().isEmpty() || !traversal.getGraph().isPresent()) {
+            return;
+        }
+        // The bulk reads see the store only, not the writes buffered by a transaction
+        final GephiGraph graph = (GephiGraph) traversal.getGraph().get();
+        if (graph.features().graph().supportsTransactions()) {
+            return;
+        }
+        final Class<? extends Element> elementClass = (Class<? extends Element>) gephiGraphStep.getReturnClass();
+        final String key = propertiesStep.getPropertyKeys()[0];
+        final Column column = GephiColumnValues.getColumn(graph, elementClass, key);
+        if (column == null || !GephiColumnValues.isNumeric(column)) {
+            return;
+        }
+        final GephiColumnReduceStep<?> reduceStep = new GephiColumnReduceStep<>(traversal, elementClass, key, reduction);
+        reducingStep.getLabels().forEach(reduceStep::addLabel);
+        TraversalHelper.replaceStep((Step) gephiGraphStep, reduceStep, traversal);
+        traversal.removeStep(propertiesStep);
+        traversal.removeStep(reducingStep);
+    }
+
+    public static GephiGraphStepStrategy instance() {
+        return INSTANCE;
+    }
+}
@@ -13,10 +13,12 @@ import org.gephi.graph.api.Graph;
 
 public final class GephiGraphVariables implements org.apache.tinkerpop.gremlin.structure.Graph.Variables {
 
+    private final GephiGraph gephiGraph;
     private final Graph graph;
 
-    GephiGraphVariables(Graph graph) {
-        this.graph = graph;
+    GephiGraphVariables(GephiGraph gephiGraph) {
+        this.gephiGraph = gephiGraph;
+        this.graph = gephiGraph.getGraph();
     }
 
     @Override
@@ -31,19 +33,32 @@ public final class GephiGraphVariables implements org.apache.tinkerpop.gremlin.s
 
     @Override
     public void remove(final String key) {
-        graph.setAttribute(key, key);
+        setAttribute(key, key);
     }
 
     @Override
     public void set(final String key, final Object value) {
         GraphVariableHelper.validateVariable(key, value);
         try {
-            graph.setAttribute(key, value);
+            setAttribute(key, value);
         } catch (final IllegalArgumentException e) {
             throw org.apache.tinkerpop.gremlin.structure.Graph.Variables.Exceptions.dataTypeOfVariableValueNotSupported(value);
         }
     }
 
+    private void setAttribute(final String key, final Object value) {
+        gephiGraph.writeLock();
+        try {
+            graph.setAttribute(key, value);
+            final GephiWriteAheadLog log = gephiGraph.getWriteAheadLog();
+            if (log != null) {
+                log.setVariable(key, value);
+            }
+        } finally {
+            gephiGraph.writeUnlock();
+        }
+    }
+
     @Override
     public String toString() {
         return StringFactory.graphVariablesString(this);
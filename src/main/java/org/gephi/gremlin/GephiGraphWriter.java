@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONTokens;
+import org.apache.tinkerpop.shaded.jackson.core.JsonGenerator;
+import org.apache.tinkerpop.shaded.jackson.databind.ObjectMapper;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Element;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.Table;
+
+/**
+ * Writes a {@link GephiGraph} as GraphML or GraphSON straight from the node
+ * and edge stores, without wrapping the elements into vertices, edges and
+ * properties. The output is the same as the one of the TinkerPop writers, so
+ * it is read back with <code>io(IoCore.graphml())</code> or
+ * <code>io(IoCore.graphson())</code>.
+ * <p/>
+ * The graph is read-locked for the duration of the export, the elements are
+ * streamed one at a time and only the edges of the current vertex are held in
+ * memory.
+ */
+final class GephiGraphWriter {
+
+    // GraphML tokens, as written by the TinkerPop GraphMLWriter
+    private static final String GRAPHML = "graphml";
+    private static final String XMLNS = "xmlns";
+    private static final String GRAPHML_XMLNS = "http://graphml.graphdrawing.org/xmlns";
+    private static final String XML_SCHEMA_NAMESPACE_TAG = "xsi";
+    private static final String XML_SCHEMA_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final String XML_SCHEMA_LOCATION_ATTRIBUTE = "schemaLocation";
+    private static final String DEFAULT_GRAPHML_SCHEMA_LOCATION = "http://graphml.graphdrawing.org/xmlns/1.1/graphml.xsd";
+    private static final String KEY = "key";
+    private static final String FOR = "for";
+    private static final String ATTR_NAME = "attr.name";
+    private static final String ATTR_TYPE = "attr.type";
+    private static final String GRAPH = "graph";
+    private static final String EDGEDEFAULT = "edgedefault";
+    private static final String DIRECTED = "directed";
+    private static final String NODE = "node";
+    private static final String EDGE = "edge";
+    private static final String ID = "id";
+    private static final String SOURCE = "source";
+    private static final String TARGET = "target";
+    private static final String DATA = "data";
+    private static final String LABEL_V = "labelV";
+    private static final String LABEL_E = "labelE";
+    private static final String STRING = "string";
+    private static final String INT = "int";
+    private static final String LONG = "long";
+    private static final String FLOAT = "float";
+    private static final String DOUBLE = "double";
+    private static final String BOOLEAN = "boolean";
+
+    private static final Comparator<Edge> BY_TYPE = Comparator.comparingInt(Edge::getType);
+
+    private GephiGraphWriter() {
+    }
+
+    static void writeGraphML(final GephiGraph gephiGraph, final OutputStream outputStream) throws IOException {
+        final Graph graph = gephiGraph.getGraph();
+        graph.readLock();
+        try {
+            final Column[] nodeColumns = dataColumns(gephiGraph.getGraphModel().getNodeTable());
+            final Column[] edgeColumns = dataColumns(gephiGraph.getGraphModel().getEdgeTable());
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, "UTF-8");
+            writer.writeStartDocument();
+            writer.writeStartElement(GRAPHML);
+            writer.writeAttribute(XMLNS, GRAPHML_XMLNS);
+            writer.writeAttribute(XMLNS + ":" + XML_SCHEMA_NAMESPACE_TAG, XML_SCHEMA_NAMESPACE);
+            writer.writeAttribute(XML_SCHEMA_NAMESPACE_TAG + ":" + XML_SCHEMA_LOCATION_ATTRIBUTE,
+                    GRAPHML_XMLNS + " " + DEFAULT_GRAPHML_SCHEMA_LOCATION);
+
+            writeKey(writer, NODE, LABEL_V, STRING);
+            for (Column column : nodeColumns) {
+                writeKey(writer, NODE, GephiColumnCache.key(column), getGraphMLType(column.getTypeClass()));
+            }
+            writeKey(writer, EDGE, LABEL_E, STRING);
+            for (Column column : edgeColumns) {
+                writeKey(writer, EDGE, GephiColumnCache.key(column), getGraphMLType(column.getTypeClass()));
+            }
+
+            writer.writeStartElement(GRAPH);
+            writer.writeAttribute(ID, "G");
+            writer.writeAttribute(EDGEDEFAULT, DIRECTED);
+            for (Node node : graph.getNodes()) {
+                writer.writeStartElement(NODE);
+                writer.writeAttribute(ID, node.getId().toString());
+                writeData(writer, LABEL_V, node.getLabel());
+                for (Column column : nodeColumns) {
+                    writeData(writer, GephiColumnCache.key(column), node.getAttribute(column));
+                }
+                writer.writeEndElement();
+            }
+            for (Edge edge : graph.getEdges()) {
+                writer.writeStartElement(EDGE);
+                writer.writeAttribute(ID, edge.getId().toString());
+                writer.writeAttribute(SOURCE, edge.getSource().getId().toString());
+                writer.writeAttribute(TARGET, edge.getTarget().getId().toString());
+                writeData(writer, LABEL_E, edge.getLabel());
+                for (Column column : edgeColumns) {
+                    writeData(writer, GephiColumnCache.key(column), edge.getAttribute(column));
+                }
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        } finally {
+            graph.readUnlock();
+        }
+    }
+
+    /**
+     * Writes the graph in the GraphSON adjacency list format, one vertex with
+     * its edges per line.
+     */
+    static void writeGraphSON(final GephiGraph gephiGraph, final OutputStream outputStream) throws IOException {
+        final ObjectMapper mapper = gephiGraph.io(IoCore.graphson()).mapper().create().createMapper();
+        final Graph graph = gephiGraph.getGraph();
+        final DirectedGraph directedGraph = gephiGraph.getGraphModel().getDirectedGraph();
+        graph.readLock();
+        try {
+            final Table nodeTable = gephiGraph.getGraphModel().getNodeTable();
+            final Column[] nodeColumns = dataColumns(nodeTable);
+            final Column[][] metaColumns = new Column[nodeColumns.length][];
+            final String[][] metaKeys = new String[nodeColumns.length][];
+            for (int i = 0; i < nodeColumns.length; i++) {
+                final List<Column> columns = gephiGraph.getNodeColumns().getMetaColumnList(nodeColumns[i]);
+                metaColumns[i] = columns.toArray(new Column[columns.size()]);
+                metaKeys[i] = new String[metaColumns[i].length];
+                for (int j = 0; j < metaColumns[i].length; j++) {
+                    metaKeys[i][j] = GephiVertexProperty.metaKey(metaColumns[i][j]);
+                }
+            }
+            final Column[] edgeColumns = dataColumns(gephiGraph.getGraphModel().getEdgeTable());
+            final List<Edge> edges = new ArrayList<>();
+            final JsonGenerator generator = mapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (Node node : graph.getNodes()) {
+                generator.writeStartObject();
+                generator.writeObjectField(GraphSONTokens.ID, node.getId());
+                generator.writeStringField(GraphSONTokens.LABEL, node.getLabel());
+
+                edges.clear();
+                directedGraph.getOutEdges(node).forEach(edges::add);
+                writeEdges(generator, GraphSONTokens.OUT_E, GraphSONTokens.IN, edges, false, edgeColumns);
+                edges.clear();
+                directedGraph.getInEdges(node).forEach(edges::add);
+                writeEdges(generator, GraphSONTokens.IN_E, GraphSONTokens.OUT, edges, true, edgeColumns);
+
+                boolean empty = true;
+                for (int i = 0; i < nodeColumns.length; i++) {
+                    final Object value = node.getAttribute(nodeColumns[i]);
+                    if (value == null) {
+                        continue;
+                    }
+                    if (empty) {
+                        generator.writeObjectFieldStart(GraphSONTokens.PROPERTIES);
+                        empty = false;
+                    }
+                    generator.writeArrayFieldStart(GephiColumnCache.key(nodeColumns[i]));
+                    generator.writeStartObject();
+                    generator.writeObjectField(GraphSONTokens.ID, GephiVertexProperty.id(nodeColumns[i], node.getId()));
+                    generator.writeObjectField(GraphSONTokens.VALUE, value);
+                    boolean emptyMeta = true;
+                    for (int j = 0; j < metaColumns[i].length; j++) {
+                        final Object metaValue = node.getAttribute(metaColumns[i][j]);
+                        if (metaValue == null) {
+                            continue;
+                        }
+                        if (emptyMeta) {
+                            generator.writeObjectFieldStart(GraphSONTokens.PROPERTIES);
+                            emptyMeta = false;
+                        }
+                        generator.writeObjectField(metaKeys[i][j], metaValue);
+                    }
+                    if (!emptyMeta) {
+                        generator.writeEndObject();
+                    }
+                    generator.writeEndObject();
+                    generator.writeEndArray();
+                }
+                if (!empty) {
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        } finally {
+            graph.readUnlock();
+        }
+    }
+
+    private static void writeEdges(final JsonGenerator generator, final String field, final String otherVertex,
+            final List<Edge> edges, final boolean in, final Column[] edgeColumns) throws IOException {
+        if (edges.isEmpty()) {
+            return;
+        }
+        // The edges are grouped by label
+        edges.sort(BY_TYPE);
+        generator.writeObjectFieldStart(field);
+        int type = -1;
+        for (Edge edge : edges) {
+            if (edge.getType() != type || type == -1) {
+                if (type != -1) {
+                    generator.writeEndArray();
+                }
+                type = edge.getType();
+                generator.writeArrayFieldStart(edge.getLabel());
+            }
+            generator.writeStartObject();
+            generator.writeObjectField(GraphSONTokens.ID, edge.getId());
+            generator.writeObjectField(otherVertex, (in ? edge.getSource() : edge.getTarget()).getId());
+            writeProperties(generator, edge, edgeColumns);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeProperties(final JsonGenerator generator, final Element element, final Column[] columns) throws IOException {
+        boolean empty = true;
+        for (Column column : columns) {
+            final Object value = element.getAttribute(column);
+            if (value != null) {
+                if (empty) {
+                    generator.writeObjectFieldStart(GraphSONTokens.PROPERTIES);
+                    empty = false;
+                }
+                generator.writeObjectField(GephiColumnCache.key(column), value);
+            }
+        }
+        if (!empty) {
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeKey(final XMLStreamWriter writer, final String kind, final String key, final String type) throws XMLStreamException {
+        writer.writeStartElement(KEY);
+        writer.writeAttribute(ID, key);
+        writer.writeAttribute(FOR, kind);
+        writer.writeAttribute(ATTR_NAME, key);
+        writer.writeAttribute(ATTR_TYPE, type);
+        writer.writeEndElement();
+    }
+
+    private static void writeData(final XMLStreamWriter writer, final String key, final Object value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeStartElement(DATA);
+            writer.writeAttribute(KEY, key);
+            writer.writeCharacters(value.toString());
+            writer.writeEndElement();
+        }
+    }
+
+    private static String getGraphMLType(final Class<?> type) {
+        if (type.equals(String.class)) {
+            return STRING;
+        } else if (type.equals(Integer.class)) {
+            return INT;
+        } else if (type.equals(Long.class)) {
+            return LONG;
+        } else if (type.equals(Float.class)) {
+            return FLOAT;
+        } else if (type.equals(Double.class)) {
+            return DOUBLE;
+        } else if (type.equals(Boolean.class)) {
+            return BOOLEAN;
+        }
+        return STRING;
+    }
+
+    /**
+     * Returns the attribute columns of the table, the meta-property and
+     * store columns excluded.
+     */
+    private static Column[] dataColumns(final Table table) {
+        final List<Column> columns = new ArrayList<>();
+        for (Column column : table) {
+            if (!column.isProperty()) {
+                columns.add(column);
+            }
+        }
+        return columns.toArray(new Column[columns.size()]);
+    }
+}
@@ -26,9 +26,14 @@ import org.apache.tinkerpop.shaded.kryo.Serializer;
 import org.apache.tinkerpop.shaded.kryo.io.Input;
 import org.apache.tinkerpop.shaded.kryo.io.Output;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
-import org.gephi.graph.impl.utils.DataInputOutput;
 import static org.gephi.gremlin.GephiGraph.EMPTY_CONFIGURATION;
 
 /**
@@ -59,45 +64,70 @@ public final class GephiIoRegistry extends AbstractIoRegistry {
     }
 
     /**
-     * Provides a method to serialize an entire {@link TinkerGraph} into itself
+     * Provides a method to serialize an entire {@link GephiGraph} into itself
      * for Gryo. This is useful when shipping small graphs around through
      * Gremlin Server. Reuses the existing Kryo instance for serialization.
+     * <p/>
+     * The graph model is written with the graphstore serialization to a
+     * {@link GephiDataOutput} over the Kryo output. Without compression the
+     * bytes are the plain graphstore serialization, which is self-delimiting.
+     * When the graph has a codec (see
+     * {@link GephiGraph#GREMLIN_GEPHIGRAPH_COMPRESSION}) they go through a
+     * {@link GephiBlockChannel.Writer} instead and are in its block format: a
+     * header with the codec, the checksummed blocks and an end marker.
+     * Reading tells the two apart by the first byte, as the block format
+     * starts with 0xFF and the plain serialization never does. In both
+     * directions the model is streamed through the Kryo buffers rather than
+     * copied into an intermediate array.
+     * <p/>
+     * Graphs serialized before streaming was added were written as a length
+     * prefixed array and cannot be read back.
      */
     final static class GephiGraphGryoSerializer extends Serializer<GephiGraph> {
 
         @Override
         public void write(final Kryo kryo, final Output output, final GephiGraph graph) {
-            DataInputOutput dos = new DataInputOutput();
+            final Graph store = graph.getGraph();
+            store.readLock();
             try {
-
-                GraphModel.Serialization.write(dos, graph.getGraphModel());
+                final GephiSnapshotCodec codec = graph.getSnapshotCodec();
+                if (codec == GephiSnapshotCodec.NONE) {
+                    final GephiDataOutput dataOutput = new GephiDataOutput(Channels.newChannel(output));
+                    GraphModel.Serialization.write(dataOutput, graph.getGraphModel());
+                    dataOutput.flush();
+                } else {
+                    // Closing the blocks ends them but leaves the Kryo output open
+                    final GephiBlockChannel.Writer blocks = new GephiBlockChannel.Writer(Channels.newChannel(output), codec);
+                    final GephiDataOutput dataOutput = new GephiDataOutput(blocks);
+                    GraphModel.Serialization.write(dataOutput, graph.getGraphModel());
+                    dataOutput.flush();
+                    blocks.close();
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             } finally {
-
+                store.readUnlock();
             }
-
-            final byte[] bytes = dos.toByteArray();
-            output.writeInt(bytes.length);
-            output.write(bytes);
         }
 
         @Override
-        public GephiGraph read(final Kryo kryo, final Input input, final Class<GephiGraph> tinkerGraphClass) {
-            final int len = input.readInt();
-            final byte[] bytes = input.readBytes(len);
-
-            GraphModel graphModel;
-            DataInputOutput dos = new DataInputOutput(bytes);
+        public GephiGraph read(final Kryo kryo, final Input input, final Class<GephiGraph> gephiGraphClass) {
+            final GraphModel graphModel;
             try {
-
-                graphModel = GraphModel.Serialization.read(dos);
+                // The first byte is put back in front of the rest of the input
+                final byte first = input.readByte();
+                final InputStream stream = new SequenceInputStream(new ByteArrayInputStream(new byte[]{first}), input);
+                if ((first & 0xFF) == GephiBlockChannel.MAGIC >>> 24) {
+                    final GephiBlockChannel.Reader blocks = new GephiBlockChannel.Reader(Channels.newChannel(stream));
+                    graphModel = GraphModel.Serialization.read(new GephiDataInput(blocks));
+                    blocks.finish();
+                } else {
+                    // Unbuffered, so that nothing past the model is consumed
+                    graphModel = GraphModel.Serialization.read(new DataInputStream(stream));
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
-            } finally {
-
             }
-
             return new GephiGraph(EMPTY_CONFIGURATION, graphModel);
         }
     }
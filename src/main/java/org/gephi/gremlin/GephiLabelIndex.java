@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.gephi.graph.api.Node;
+
+/**
+ * Index of node store ids by vertex label.
+ * <p/>
+ * The graphstore does not index the node label column, so the vertices are
+ * registered here when added or removed through {@link GephiGraph}. The store
+ * ids of a label are split in chunks of 65536 consecutive ids, in the manner
+ * of roaring bitmaps: a chunk holds the sorted low 16 bits of its ids, two
+ * bytes each, until it has more than {@link #ARRAY_MAX} of them and switches
+ * to a bit set of 8 kB. A label then takes memory in proportion to its
+ * vertices rather than to the highest store id, and its store ids can still be
+ * read in increasing order a batch at a time, from the last store id read,
+ * without copying the whole set.
+ */
+final class GephiLabelIndex {
+
+    static final int ARRAY_MAX = 4096;
+
+    private final Map<String, StoreIds> nodes = new HashMap<>();
+
+    synchronized void add(Node node) {
+        StoreIds storeIds = nodes.get(node.getLabel());
+        if (storeIds == null) {
+            storeIds = new StoreIds();
+            nodes.put(node.getLabel(), storeIds);
+        }
+        storeIds.add(node.getStoreId());
+    }
+
+    synchronized void remove(String label, int storeId) {
+        StoreIds storeIds = nodes.get(label);
+        if (storeIds != null && storeIds.remove(storeId) && storeIds.size == 0) {
+            nodes.remove(label);
+        }
+    }
+
+    synchronized int count(String label) {
+        StoreIds storeIds = nodes.get(label);
+        return storeIds == null ? 0 : storeIds.size;
+    }
+
+    /**
+     * Copies into <code>batch</code> the next store ids of the nodes with the
+     * given label, in increasing order from <code>fromStoreId</code>.
+     *
+     * @return the number of store ids copied, less than the length of the
+     * batch once the last one was copied
+     */
+    synchronized int storeIds(String label, int fromStoreId, int[] batch) {
+        StoreIds storeIds = nodes.get(label);
+        if (storeIds == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int high = fromStoreId >>> 16; high < storeIds.chunks.length && count < batch.length; high++) {
+            Chunk chunk = storeIds.chunks[high];
+            if (chunk == null) {
+                continue;
+            }
+            int low = high == fromStoreId >>> 16 ? fromStoreId & 0xFFFF : 0;
+            for (low = chunk.next(low); low >= 0 && count < batch.length; low = low < 0xFFFF ? chunk.next(low + 1) : -1) {
+                batch[count++] = high << 16 | low;
+            }
+        }
+        return count;
+    }
+
+    private static final class StoreIds {
+
+        private Chunk[] chunks = new Chunk[0];
+        private int size;
+
+        void add(int storeId) {
+            int high = storeId >>> 16;
+            if (high >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, high + 1);
+            }
+            if (chunks[high] == null) {
+                chunks[high] = new Chunk();
+            }
+            if (chunks[high].add((char) storeId)) {
+                size++;
+            }
+        }
+
+        boolean remove(int storeId) {
+            int high = storeId >>> 16;
+            Chunk chunk = high < chunks.length ? chunks[high] : null;
+            if (chunk == null || !chunk.remove((char) storeId)) {
+                return false;
+            }
+            if (chunk.size == 0) {
+                chunks[high] = null;
+            }
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * Store ids sharing their high 16 bits, as a sorted array of the low bits
+     * or as a bit set once the array would exceed {@link #ARRAY_MAX} values.
+     */
+    private static final class Chunk {
+
+        private char[] values = new char[4];
+        private long[] bits;
+        private int size;
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                size++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (size == ARRAY_MAX) {
+                bits = new long[1024];
+                for (int i = 0; i < size; i++) {
+                    bits[values[i] >>> 6] |= 1L << values[i];
+                }
+                values = null;
+                bits[low >>> 6] |= 1L << low;
+                size++;
+                return true;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size + (size >> 1) + 1));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[low >>> 6] &= ~mask;
+                if (--size == ARRAY_MAX / 2) {
+                    values = new char[size];
+                    int count = 0;
+                    for (int value = next(0); value >= 0; value = value < 0xFFFF ? next(value + 1) : -1) {
+                        values[count++] = (char) value;
+                    }
+                    bits = null;
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Returns the lowest value greater than or equal to <code>from</code>,
+         * or -1.
+         */
+        int next(int from) {
+            if (bits == null) {
+                int index = Arrays.binarySearch(values, 0, size, (char) from);
+                if (index < 0) {
+                    index = -index - 1;
+                }
+                return index < size ? values[index] : -1;
+            }
+            int word = from >>> 6;
+            long current = bits[word] & (-1L << from);
+            while (current == 0) {
+                if (++word == bits.length) {
+                    return -1;
+                }
+                current = bits[word];
+            }
+            return word << 6 | Long.numberOfTrailingZeros(current);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.tinkerpop.gremlin.process.computer.KeyValue;
+import org.apache.tinkerpop.gremlin.process.computer.MapReduce;
+
+final class GephiMapEmitter<K, V> implements MapReduce.MapEmitter<K, V> {
+
+    Map<K, Queue<V>> reduceMap;
+    Queue<KeyValue<K, V>> mapQueue;
+    private final boolean doReduce;
+
+    GephiMapEmitter(final boolean doReduce) {
+        this.doReduce = doReduce;
+        if (this.doReduce) {
+            this.reduceMap = new ConcurrentHashMap<>();
+        } else {
+            this.mapQueue = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    @Override
+    public void emit(final K key, final V value) {
+        if (this.doReduce) {
+            this.reduceMap.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(value);
+        } else {
+            this.mapQueue.add(new KeyValue<>(key, value));
+        }
+    }
+
+    void complete(final MapReduce<K, V, ?, ?, ?> mapReduce) {
+        if (!mapReduce.getMapKeySort().isPresent()) {
+            return;
+        }
+        final Comparator<K> comparator = mapReduce.getMapKeySort().get();
+        if (!this.doReduce) {
+            final List<KeyValue<K, V>> list = new ArrayList<>(this.mapQueue);
+            Collections.sort(list, Comparator.comparing(KeyValue::getKey, comparator));
+            this.mapQueue.clear();
+            this.mapQueue.addAll(list);
+        } else {
+            final List<Map.Entry<K, Queue<V>>> list = new ArrayList<>(this.reduceMap.entrySet());
+            Collections.sort(list, Comparator.comparing(Map.Entry::getKey, comparator));
+            this.reduceMap = new LinkedHashMap<>();
+            list.forEach(entry -> this.reduceMap.put(entry.getKey(), entry.getValue()));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.process.computer.MapReduce;
+import org.apache.tinkerpop.gremlin.process.computer.Memory;
+import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.util.MemoryHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+/**
+ * {@link Memory} of a {@link GephiGraphComputer}. Writes made during a
+ * superstep are only visible to readers once the superstep completes.
+ */
+public final class GephiMemory implements Memory.Admin {
+
+    private final Set<String> memoryKeys = new HashSet<>();
+    private Map<String, Object> previousMap = new ConcurrentHashMap<>();
+    private Map<String, Object> currentMap = new ConcurrentHashMap<>();
+    private final AtomicInteger iteration = new AtomicInteger(0);
+    private final AtomicLong runtime = new AtomicLong(0L);
+
+    GephiMemory(final VertexProgram<?> vertexProgram, final Set<MapReduce> mapReducers) {
+        if (vertexProgram != null) {
+            for (final String key : vertexProgram.getMemoryComputeKeys()) {
+                MemoryHelper.validateKey(key);
+                this.memoryKeys.add(key);
+            }
+        }
+        for (final MapReduce mapReduce : mapReducers) {
+            this.memoryKeys.add(mapReduce.getMemoryKey());
+        }
+    }
+
+    @Override
+    public Set<String> keys() {
+        return this.previousMap.keySet();
+    }
+
+    @Override
+    public void incrIteration() {
+        this.iteration.getAndIncrement();
+    }
+
+    @Override
+    public void setIteration(final int iteration) {
+        this.iteration.set(iteration);
+    }
+
+    @Override
+    public int getIteration() {
+        return this.iteration.get();
+    }
+
+    @Override
+    public void setRuntime(final long runtime) {
+        this.runtime.set(runtime);
+    }
+
+    @Override
+    public long getRuntime() {
+        return this.runtime.get();
+    }
+
+    void complete() {
+        this.iteration.decrementAndGet();
+        this.previousMap = this.currentMap;
+    }
+
+    void completeSubRound() {
+        this.previousMap = new ConcurrentHashMap<>(this.currentMap);
+    }
+
+    @Override
+    public <R> R get(final String key) throws IllegalArgumentException {
+        final R r = (R) this.previousMap.get(key);
+        if (r == null) {
+            throw Memory.Exceptions.memoryDoesNotExist(key);
+        }
+        return r;
+    }
+
+    @Override
+    public void set(final String key, final Object value) {
+        checkKeyValue(key, value);
+        this.currentMap.put(key, value);
+    }
+
+    @Override
+    public void incr(final String key, final long delta) {
+        checkKeyValue(key, delta);
+        this.currentMap.compute(key, (k, v) -> v == null ? delta : delta + (Long) v);
+    }
+
+    @Override
+    public void and(final String key, final boolean bool) {
+        checkKeyValue(key, bool);
+        this.currentMap.compute(key, (k, v) -> v == null ? bool : bool && (Boolean) v);
+    }
+
+    @Override
+    public void or(final String key, final boolean bool) {
+        checkKeyValue(key, bool);
+        this.currentMap.compute(key, (k, v) -> v == null ? bool : bool || (Boolean) v);
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.memoryString(this);
+    }
+
+    private void checkKeyValue(final String key, final Object value) {
+        if (!this.memoryKeys.contains(key)) {
+            throw GraphComputer.Exceptions.providedKeyIsNotAMemoryComputeKey(key);
+        }
+        MemoryHelper.validateValue(value);
+    }
+}
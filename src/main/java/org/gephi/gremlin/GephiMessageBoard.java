@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import org.apache.tinkerpop.gremlin.process.computer.MessageCombiner;
+import org.apache.tinkerpop.gremlin.process.computer.MessageScope;
+import org.apache.tinkerpop.gremlin.process.computer.util.VertexProgramHelper;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.StartStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.wrapped.WrappedVertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.gephi.graph.api.Node;
+
+/**
+ * Messages of one {@link GephiGraphComputer} superstep, indexed by node store
+ * id.
+ * <p/>
+ * A message sent to a {@link MessageScope.Local} stays with its sender: the
+ * receiving vertex walks its incident edges in the reverse direction and picks
+ * up the messages of the vertices at the other end, so nothing is copied per
+ * edge and the sender slot is only ever written by the worker executing the
+ * sender. Messages sent to a {@link MessageScope.Global} are delivered to the
+ * slot of every target vertex with compare-and-set.
+ * <p/>
+ * A slot holds the single (or combined) message, or a {@link MessageQueue}
+ * when several messages were sent without a combiner.
+ */
+final class GephiMessageBoard<M> {
+
+    private static final BiFunction<?, Edge, ?> IDENTITY = MessageScope.Local.of(__::outE).getEdgeFunction();
+
+    private final GephiGraph graph;
+    private final MessageCombiner<M> combiner;
+    private final int size;
+    private Map<MessageScope, LocalMessages> sendLocal = new ConcurrentHashMap<>();
+    private volatile AtomicReferenceArray<Object> sendGlobal;
+    private Collection<LocalMessages> receiveLocal = Collections.emptyList();
+    private AtomicReferenceArray<Object> receiveGlobal;
+
+    GephiMessageBoard(GephiGraph graph, MessageCombiner<M> combiner) {
+        this.graph = graph;
+        this.combiner = combiner;
+        this.size = graph.getGraphModel().getMaxNodeStoreId();
+    }
+
+    /**
+     * Makes the messages sent during the superstep that just ended visible to
+     * the next one. Called between supersteps, when no worker runs.
+     */
+    void completeIteration() {
+        receiveLocal = new ArrayList<>(sendLocal.values());
+        receiveGlobal = sendGlobal;
+        sendLocal = new ConcurrentHashMap<>();
+        sendGlobal = null;
+    }
+
+    LocalMessages localMessages(MessageScope.Local<M> scope) {
+        return sendLocal.computeIfAbsent(scope, s -> new LocalMessages(scope));
+    }
+
+    void sendGlobal(Vertex vertex, M message) {
+        int storeId = storeId(vertex);
+        if (storeId < 0 || storeId >= size) {
+            return;
+        }
+        AtomicReferenceArray<Object> messages = globalMessages();
+        while (true) {
+            Object current = messages.get(storeId);
+            if (current instanceof MessageQueue) {
+                ((MessageQueue) current).add(message);
+                return;
+            }
+            Object merged = current == null ? message : combiner != null ? combiner.combine((M) current, message) : new MessageQueue(current, message);
+            if (messages.compareAndSet(storeId, current, merged)) {
+                return;
+            }
+        }
+    }
+
+    Iterator<M> receiveMessages(GephiVertex vertex) {
+        int storeId = vertex.element.getStoreId();
+        List<Iterator<Object>> slots = new ArrayList<>(receiveLocal.size() + 1);
+        if (receiveGlobal != null && storeId >= 0 && storeId < size) {
+            Object slot = receiveGlobal.get(storeId);
+            if (slot != null) {
+                slots.add(IteratorUtils.of(slot));
+            }
+        }
+        for (LocalMessages localMessages : receiveLocal) {
+            slots.add(localMessages.receive(vertex));
+        }
+        Iterator<M> messages = IteratorUtils.flatMap(IteratorUtils.concat(slots.toArray(new Iterator[slots.size()])),
+                slot -> slot instanceof MessageQueue ? (Iterator<M>) ((MessageQueue) slot).iterator() : IteratorUtils.of((M) slot));
+        if (combiner == null || !messages.hasNext()) {
+            return messages;
+        }
+        M combined = messages.next();
+        while (messages.hasNext()) {
+            combined = combiner.combine(combined, messages.next());
+        }
+        return IteratorUtils.of(combined);
+    }
+
+    private AtomicReferenceArray<Object> globalMessages() {
+        AtomicReferenceArray<Object> messages = sendGlobal;
+        if (messages == null) {
+            synchronized (this) {
+                if (sendGlobal == null) {
+                    sendGlobal = new AtomicReferenceArray<>(size);
+                }
+                messages = sendGlobal;
+            }
+        }
+        return messages;
+    }
+
+    private int storeId(Vertex vertex) {
+        while (vertex instanceof WrappedVertex) {
+            vertex = ((WrappedVertex<Vertex>) vertex).getBaseVertex();
+        }
+        if (vertex instanceof GephiVertex) {
+            return ((GephiVertex) vertex).element.getStoreId();
+        }
+        Node node = graph.getGraph().getNode(vertex.id());
+        return node != null ? node.getStoreId() : -1;
+    }
+
+    private Object get(Object[] messages, int storeId) {
+        return storeId >= 0 && storeId < messages.length ? messages[storeId] : null;
+    }
+
+    /**
+     * Messages sent to one local scope, indexed by the store id of the sender.
+     */
+    final class LocalMessages {
+
+        private final MessageScope.Local<M> scope;
+        private final Object[] messages = new Object[size];
+        private final boolean identity;
+        // Direction and labels the receiver walks, null labels when the
+        // incident traversal is not a single edge step
+        private final Direction direction;
+        private final String[] labels;
+
+        private LocalMessages(MessageScope.Local<M> scope) {
+            this.scope = scope;
+            this.identity = scope.getEdgeFunction() == IDENTITY;
+            Traversal.Admin<Vertex, Edge> incidentTraversal = scope.getIncidentTraversal().get().asAdmin();
+            List<Step> steps = incidentTraversal.getSteps();
+            if (steps.size() == 1 && steps.get(0) instanceof VertexStep && ((VertexStep) steps.get(0)).returnsEdge()) {
+                this.direction = ((VertexStep) steps.get(0)).getDirection().opposite();
+                this.labels = ((VertexStep) steps.get(0)).getEdgeLabels();
+            } else {
+                this.direction = TraversalHelper.getLastStepOfAssignableClass(VertexStep.class, incidentTraversal).get().getDirection();
+                this.labels = null;
+            }
+        }
+
+        void send(GephiVertex vertex, M message) {
+            int storeId = vertex.element.getStoreId();
+            if (storeId < 0 || storeId >= size) {
+                return;
+            }
+            Object current = messages[storeId];
+            if (current == null) {
+                messages[storeId] = message;
+            } else if (combiner != null) {
+                messages[storeId] = combiner.combine((M) current, message);
+            } else if (current instanceof MessageQueue) {
+                ((MessageQueue) current).add(message);
+            } else {
+                messages[storeId] = new MessageQueue(current, message);
+            }
+        }
+
+        private Iterator<Object> receive(GephiVertex vertex) {
+            if (labels != null) {
+                GephiGraph graph = vertex.graph;
+                return GephiAdjacencyIterator.of(vertex, direction, labels, (edge, out) -> {
+                    Object slot = get(messages, (out ? edge.getTarget() : edge.getSource()).getStoreId());
+                    return slot == null || identity ? slot : apply(slot, graph.edge(edge));
+                });
+            }
+            Traversal.Admin<Vertex, Edge> incidentTraversal = VertexProgramHelper.reverse(scope.getIncidentTraversal().get().asAdmin());
+            incidentTraversal.addStep(0, new StartStep<>(incidentTraversal, vertex));
+            return IteratorUtils.filter(IteratorUtils.map(incidentTraversal, edge -> {
+                Vertex other = direction == Direction.OUT ? edge.outVertex()
+                        : direction == Direction.IN ? edge.inVertex()
+                        : edge.outVertex().equals(vertex) ? edge.inVertex() : edge.outVertex();
+                Object slot = get(messages, storeId(other));
+                return slot == null || identity ? slot : apply(slot, edge);
+            }), slot -> slot != null);
+        }
+
+        private Object apply(Object slot, Edge edge) {
+            BiFunction<M, Edge, M> edgeFunction = scope.getEdgeFunction();
+            if (!(slot instanceof MessageQueue)) {
+                return edgeFunction.apply((M) slot, edge);
+            }
+            MessageQueue queue = new MessageQueue();
+            for (Object message : (MessageQueue) slot) {
+                queue.add(edgeFunction.apply((M) message, edge));
+            }
+            return queue;
+        }
+    }
+
+    private static final class MessageQueue extends ConcurrentLinkedQueue<Object> {
+
+        private MessageQueue(Object... messages) {
+            Collections.addAll(this, messages);
+        }
+    }
+}
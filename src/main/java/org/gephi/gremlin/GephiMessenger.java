@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.apache.tinkerpop.gremlin.process.computer.MessageScope;
+import org.apache.tinkerpop.gremlin.process.computer.Messenger;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * {@link Messenger} of one {@link GephiGraphComputer} worker, reused for every
+ * vertex of its partition during a superstep.
+ */
+final class GephiMessenger<M> implements Messenger<M> {
+
+    private final GephiMessageBoard<M> messageBoard;
+    // Local scopes hash their incident traversal, so look each instance up once
+    private final Map<MessageScope, GephiMessageBoard<M>.LocalMessages> localMessages = new IdentityHashMap<>();
+    private GephiVertex vertex;
+
+    GephiMessenger(GephiMessageBoard<M> messageBoard) {
+        this.messageBoard = messageBoard;
+    }
+
+    void setVertex(GephiVertex vertex) {
+        this.vertex = vertex;
+    }
+
+    @Override
+    public Iterator<M> receiveMessages() {
+        return messageBoard.receiveMessages(vertex);
+    }
+
+    @Override
+    public void sendMessage(MessageScope messageScope, M message) {
+        if (messageScope instanceof MessageScope.Local) {
+            localMessages.computeIfAbsent(messageScope, scope -> messageBoard.localMessages((MessageScope.Local<M>) scope)).send(vertex, message);
+        } else {
+            for (Vertex target : ((MessageScope.Global) messageScope).vertices()) {
+                messageBoard.sendGlobal(target, message);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.clustering.peerpressure.PeerPressureVertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.ranking.pagerank.PageRankVertexProgram;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.impl.EdgeImpl;
+import org.gephi.graph.impl.EdgeStore;
+import org.gephi.graph.impl.GraphStore;
+import org.gephi.graph.impl.NodeImpl;
+import org.gephi.graph.impl.NodeStore;
+
+/**
+ * Native execution of the standard vertex programs by the
+ * {@link GephiGraphComputer}.
+ * <p/>
+ * The directed graph is first copied into compressed in-adjacency arrays
+ * indexed by node store id, then every superstep is a parallel loop over
+ * primitive arrays, without messages or element wrappers. The final values
+ * are those of the message-passing execution (up to the summation order) and
+ * are stored in the {@link GephiGraphComputerView}, so the result graph and
+ * persist settings as well as the map-reduce jobs apply unchanged.
+ * <p/>
+ * Only programs using the default incident traversal (all outgoing edges) are
+ * executed natively.
+ */
+final class GephiNativePrograms {
+
+    private static final String PAGE_RANK_VERTEX_COUNT = "gremlin.pageRankVertexProgram.vertexCount";
+    private static final String PAGE_RANK_ALPHA = "gremlin.pageRankVertexProgram.alpha";
+    private static final String PAGE_RANK_TOTAL_ITERATIONS = "gremlin.pageRankVertexProgram.totalIterations";
+    private static final String PAGE_RANK_TRAVERSAL_SUPPLIER = "gremlin.pageRankVertexProgram.traversalSupplier";
+    private static final String PEER_PRESSURE_MAX_ITERATIONS = "gremlin.peerPressureVertexProgram.maxIterations";
+    private static final String PEER_PRESSURE_DISTRIBUTE_VOTE = "gremlin.peerPressureVertexProgram.distributeVote";
+    private static final String PEER_PRESSURE_TRAVERSAL_SUPPLIER = "gremlin.peerPressureVertexProgram.traversalSupplier";
+    private static final String PEER_PRESSURE_VOTE_TO_HALT = "gremlin.peerPressureVertexProgram.voteToHalt";
+
+    private final ForkJoinPool pool;
+    private final int workers;
+    private final int size;
+    private final Object[] ids;
+    private final int[] outDegree;
+    // Sources of the incoming edges of node i are inSources[inOffsets[i]..inOffsets[i + 1]]
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private GephiNativePrograms(GephiGraph graph, ForkJoinPool pool, int workers) {
+        this.pool = pool;
+        this.workers = workers;
+
+        Graph store = graph.getGraph();
+        store.readLock();
+        try {
+            NodeStore nodeStore = ((GraphStore) store).getNodeStore();
+            EdgeStore edgeStore = ((GraphStore) store).getEdgeStore();
+            size = graph.getGraphModel().getMaxNodeStoreId();
+            ids = new Object[size];
+            for (int i = 0; i < size; i++) {
+                NodeImpl node = nodeStore.get(i);
+                ids[i] = node != null ? node.getId() : null;
+            }
+
+            int maxEdgeStoreId = graph.getGraphModel().getMaxEdgeStoreId();
+            outDegree = new int[size];
+            inOffsets = new int[size + 1];
+            for (int i = 0; i < maxEdgeStoreId; i++) {
+                EdgeImpl edge = edgeStore.get(i);
+                if (edge != null) {
+                    outDegree[edge.getSource().getStoreId()]++;
+                    inOffsets[edge.getTarget().getStoreId() + 1]++;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                inOffsets[i + 1] += inOffsets[i];
+            }
+            inSources = new int[inOffsets[size]];
+            int[] cursors = Arrays.copyOf(inOffsets, size);
+            for (int i = 0; i < maxEdgeStoreId; i++) {
+                EdgeImpl edge = edgeStore.get(i);
+                if (edge != null) {
+                    inSources[cursors[edge.getTarget().getStoreId()]++] = edge.getSource().getStoreId();
+                }
+            }
+        } finally {
+            store.readUnlock();
+        }
+    }
+
+    /**
+     * Executes the program natively if it is one of the supported standard
+     * programs.
+     *
+     * @return <code>false</code> if the program must be executed by message
+     * passing
+     */
+    static boolean execute(GephiGraph graph, VertexProgram<?> vertexProgram, GephiGraphComputerView view, GephiMemory memory, ForkJoinPool pool, int workers) {
+        Configuration configuration = new BaseConfiguration();
+        vertexProgram.storeState(configuration);
+        if (vertexProgram.getClass() == PageRankVertexProgram.class && !configuration.containsKey(PAGE_RANK_TRAVERSAL_SUPPLIER)) {
+            new GephiNativePrograms(graph, pool, workers).pageRank(configuration, view, memory);
+            return true;
+        } else if (vertexProgram.getClass() == PeerPressureVertexProgram.class && !configuration.containsKey(PEER_PRESSURE_TRAVERSAL_SUPPLIER)) {
+            new GephiNativePrograms(graph, pool, workers).peerPressure(configuration, view, memory);
+            return true;
+        }
+        return false;
+    }
+
+    private void pageRank(Configuration configuration, GephiGraphComputerView view, GephiMemory memory) {
+        double vertexCount = configuration.getDouble(PAGE_RANK_VERTEX_COUNT, 1.0d);
+        double alpha = configuration.getDouble(PAGE_RANK_ALPHA, 0.85d);
+        int totalIterations = configuration.getInt(PAGE_RANK_TOTAL_ITERATIONS, 30);
+
+        // Superstep 0 counts the edges and superstep 1 sets the initial rank
+        if (totalIterations >= 1) {
+            double[] rank = new double[size];
+            double[] share = new double[size];
+            double[] next = new double[size];
+            Arrays.fill(rank, 1.0d / vertexCount);
+            for (int iteration = 2; iteration <= totalIterations; iteration++) {
+                final double[] currentRank = rank;
+                final double[] nextRank = next;
+                parallel((from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        share[i] = currentRank[i] / outDegree[i];
+                    }
+                });
+                parallel((from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        double sum = 0.0d;
+                        for (int j = inOffsets[i]; j < inOffsets[i + 1]; j++) {
+                            sum += share[inSources[j]];
+                        }
+                        nextRank[i] = (alpha * sum) + ((1.0d - alpha) / vertexCount);
+                    }
+                });
+                next = rank;
+                rank = nextRank;
+            }
+
+            Object[] pageRanks = view.getValues(PageRankVertexProgram.PAGE_RANK);
+            Object[] edgeCounts = view.getValues(PageRankVertexProgram.EDGE_COUNT);
+            for (int i = 0; i < size; i++) {
+                if (ids[i] != null) {
+                    pageRanks[i] = rank[i];
+                    edgeCounts[i] = (double) outDegree[i];
+                }
+            }
+        }
+        memory.setIteration(Math.max(totalIterations, 0) + 1);
+    }
+
+    private void peerPressure(Configuration configuration, GephiGraphComputerView view, GephiMemory memory) {
+        int maxIterations = configuration.getInt(PEER_PRESSURE_MAX_ITERATIONS, 30);
+        boolean distributeVote = configuration.getBoolean(PEER_PRESSURE_DISTRIBUTE_VOTE, false);
+        int lastIteration = distributeVote ? maxIterations + 1 : maxIterations;
+
+        // With distributed votes, superstep 0 counts the edges
+        int iteration = 0;
+        boolean voteToHalt = false;
+        if (distributeVote && iteration >= lastIteration) {
+            memory.set(PEER_PRESSURE_VOTE_TO_HALT, voteToHalt);
+            memory.setIteration(iteration + 1);
+            return;
+        } else if (distributeVote) {
+            iteration++;
+        }
+
+        double[] voteStrength = new double[size];
+        int[] cluster = new int[size];
+        int[] next = new int[size];
+        for (int i = 0; i < size; i++) {
+            voteStrength[i] = distributeVote ? 1.0d / outDegree[i] : 1.0d;
+            cluster[i] = i;
+        }
+        while (!voteToHalt && iteration < lastIteration) {
+            iteration++;
+            final int[] currentCluster = cluster;
+            final int[] nextCluster = next;
+            final boolean[] unchanged = new boolean[workers];
+            parallel((partition, from, to) -> {
+                Int2DoubleOpenHashMap votes = new Int2DoubleOpenHashMap();
+                boolean partitionUnchanged = true;
+                for (int i = from; i < to; i++) {
+                    if (ids[i] == null) {
+                        continue;
+                    }
+                    votes.clear();
+                    votes.put(currentCluster[i], voteStrength[i]);
+                    for (int j = inOffsets[i]; j < inOffsets[i + 1]; j++) {
+                        votes.addTo(currentCluster[inSources[j]], voteStrength[inSources[j]]);
+                    }
+                    int largest = largestCount(votes);
+                    nextCluster[i] = largest != -1 ? largest : i;
+                    partitionUnchanged &= nextCluster[i] == currentCluster[i];
+                }
+                unchanged[partition] = partitionUnchanged;
+            });
+            next = cluster;
+            cluster = nextCluster;
+            voteToHalt = true;
+            for (boolean partitionUnchanged : unchanged) {
+                voteToHalt &= partitionUnchanged;
+            }
+        }
+
+        Object[] clusters = view.getValues(PeerPressureVertexProgram.CLUSTER);
+        Object[] voteStrengths = view.getValues(PeerPressureVertexProgram.VOTE_STRENGTH);
+        for (int i = 0; i < size; i++) {
+            if (ids[i] != null) {
+                clusters[i] = ids[cluster[i]];
+                voteStrengths[i] = voteStrength[i];
+            }
+        }
+        memory.set(PEER_PRESSURE_VOTE_TO_HALT, voteToHalt);
+        memory.setIteration(iteration + 1);
+    }
+
+    // Same tie-breaking as PeerPressureVertexProgram: the smallest id string wins
+    private int largestCount(Int2DoubleMap votes) {
+        int largestKey = -1;
+        double largestValue = Double.MIN_VALUE;
+        for (Int2DoubleMap.Entry entry : votes.int2DoubleEntrySet()) {
+            if (entry.getDoubleValue() == largestValue) {
+                if (largestKey != -1 && ids[largestKey].toString().compareTo(ids[entry.getIntKey()].toString()) > 0) {
+                    largestKey = entry.getIntKey();
+                }
+            } else if (entry.getDoubleValue() > largestValue) {
+                largestKey = entry.getIntKey();
+                largestValue = entry.getDoubleValue();
+            }
+        }
+        return largestKey;
+    }
+
+    private void parallel(RangeTask task) {
+        parallel((partition, from, to) -> task.execute(from, to));
+    }
+
+    private void parallel(PartitionTask task) {
+        GephiGraphComputer.execute(pool, workers, partition -> task.execute(partition, GephiGraphComputer.from(size, partition, workers), GephiGraphComputer.from(size, partition + 1, workers)));
+    }
+
+    @FunctionalInterface
+    private interface RangeTask {
+
+        void execute(int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface PartitionTask {
+
+        void execute(int partition, int from, int to);
+    }
+}
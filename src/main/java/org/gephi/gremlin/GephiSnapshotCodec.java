@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.iq80.snappy.CorruptionException;
+import org.iq80.snappy.Snappy;
+
+/**
+ * Block codecs of the compressed {@link GephiGraph#GEPHI_FORMAT} snapshots,
+ * selected with {@link GephiGraph#GREMLIN_GEPHIGRAPH_COMPRESSION}. The id is
+ * written in the snapshot header so that any codec can be read back whatever
+ * the configuration.
+ */
+enum GephiSnapshotCodec {
+
+    NONE("none", 0) {
+        @Override
+        int maxCompressedLength(int length) {
+            return length;
+        }
+
+        @Override
+        int compress(byte[] src, int length, byte[] dst) {
+            System.arraycopy(src, 0, dst, 0, length);
+            return length;
+        }
+
+        @Override
+        void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+            if (length != rawLength) {
+                throw new IOException("Stored block length mismatch");
+            }
+            System.arraycopy(src, 0, dst, 0, length);
+        }
+    },
+    SNAPPY("snappy", 1) {
+        @Override
+        int maxCompressedLength(int length) {
+            return Snappy.maxCompressedLength(length);
+        }
+
+        @Override
+        int compress(byte[] src, int length, byte[] dst) {
+            return Snappy.compress(src, 0, length, dst, 0);
+        }
+
+        @Override
+        void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+            try {
+                if (Snappy.uncompress(src, 0, length, dst, 0) != rawLength) {
+                    throw new IOException("Uncompressed block length mismatch");
+                }
+            } catch (CorruptionException e) {
+                throw new IOException(e);
+            }
+        }
+    },
+    DEFLATE("deflate", 2) {
+        @Override
+        int maxCompressedLength(int length) {
+            // zlib bound with the stream header and trailer
+            return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 6;
+        }
+
+        @Override
+        int compress(byte[] src, int length, byte[] dst) {
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(src, 0, length);
+                deflater.finish();
+                int n = 0;
+                while (!deflater.finished()) {
+                    n += deflater.deflate(dst, n, dst.length - n);
+                }
+                return n;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(src, 0, length);
+                int n = 0;
+                while (n < rawLength && !inflater.finished()) {
+                    int read = inflater.inflate(dst, n, rawLength - n);
+                    if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    n += read;
+                }
+                if (n != rawLength) {
+                    throw new IOException("Uncompressed block length mismatch");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+    private final String name;
+    private final int id;
+
+    GephiSnapshotCodec(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the size of the buffer able to hold the compressed form of
+     * <code>length</code> bytes.
+     */
+    abstract int maxCompressedLength(int length);
+
+    /**
+     * Compresses the first <code>length</code> bytes of <code>src</code> to the
+     * start of <code>dst</code> and returns the compressed length.
+     */
+    abstract int compress(byte[] src, int length, byte[] dst);
+
+    /**
+     * Decompresses the first <code>length</code> bytes of <code>src</code>,
+     * which must expand to exactly <code>rawLength</code> bytes.
+     */
+    abstract void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException;
+
+    static GephiSnapshotCodec forName(String name) {
+        for (GephiSnapshotCodec codec : values()) {
+            if (codec.name.equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown compression codec '%s'", name));
+    }
+
+    static GephiSnapshotCodec forId(int id) throws IOException {
+        for (GephiSnapshotCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException(String.format("Unknown compression codec id %d", id));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.impl.EdgeStore;
+import org.gephi.graph.impl.EdgeImpl;
+import org.gephi.graph.impl.GraphStore;
+import org.gephi.graph.impl.NodeImpl;
+import org.gephi.graph.impl.NodeStore;
+
+/**
+ * Full scan of the node or edge store, or of a range of node store ids,
+ * walking store ids in increasing order.
+ * <p/>
+ * The scan is weakly consistent: every element present for the whole
+ * iteration is returned exactly once, elements removed before the cursor
+ * reaches them are skipped and elements added concurrently may or may not be
+ * returned depending on the store id they were given.
+ * <p/>
+ * The nodes of a label are walked the same way over the store ids kept by the
+ * {@link GephiLabelIndex}, read a batch at a time.
+ */
+final class GephiStoreIterator<T> extends GephiBatchIterator<T> {
+
+    private final IntSupplier maxStoreId;
+    private final IntFunction<T> lookup;
+    private int index;
+
+    private GephiStoreIterator(GephiGraph graph, IntSupplier maxStoreId, IntFunction<T> lookup) {
+        super(graph);
+        this.maxStoreId = maxStoreId;
+        this.lookup = lookup;
+    }
+
+    static Iterator<Vertex> vertices(GephiGraph graph) {
+        GraphModel graphModel = graph.getGraphModel();
+        NodeStore nodeStore = ((GraphStore) graph.getGraph()).getNodeStore();
+        return new GephiStoreIterator<>(graph, graphModel::getMaxNodeStoreId, id -> {
+            NodeImpl node = nodeStore.get(id);
+            return node != null ? graph.vertex(node) : null;
+        });
+    }
+
+    static Iterator<GephiVertex> vertices(GephiGraph graph, int fromStoreId, int toStoreId) {
+        GraphModel graphModel = graph.getGraphModel();
+        NodeStore nodeStore = ((GraphStore) graph.getGraph()).getNodeStore();
+        return new GephiStoreIterator<>(graph, () -> Math.min(toStoreId, graphModel.getMaxNodeStoreId()) - fromStoreId, i -> {
+            NodeImpl node = nodeStore.get(fromStoreId + i);
+            return node != null ? graph.vertex(node) : null;
+        });
+    }
+
+    static Iterator<Vertex> vertices(GephiGraph graph, String label) {
+        GraphModel graphModel = graph.getGraphModel();
+        NodeStore nodeStore = ((GraphStore) graph.getGraph()).getNodeStore();
+        GephiLabelIndex labelIndex = graph.getLabelIndex();
+        return new GephiBatchIterator<Vertex>(graph) {
+            private final int[] storeIds = new int[BATCH_SIZE];
+            private int fromStoreId;
+
+            @Override
+            protected boolean fill(List<Vertex> batch) {
+                int count = labelIndex.storeIds(label, fromStoreId, storeIds);
+                for (int i = 0; i < count; i++) {
+                    if (storeIds[i] < graphModel.getMaxNodeStoreId()) {
+                        NodeImpl node = nodeStore.get(storeIds[i]);
+                        if (node != null && label.equals(node.getLabel())) {
+                            batch.add(graph.vertex(node));
+                        }
+                    }
+                }
+                if (count > 0) {
+                    fromStoreId = storeIds[count - 1] + 1;
+                }
+                return count == storeIds.length;
+            }
+        };
+    }
+
+    static Iterator<Edge> edges(GephiGraph graph) {
+        GraphModel graphModel = graph.getGraphModel();
+        EdgeStore edgeStore = ((GraphStore) graph.getGraph()).getEdgeStore();
+        return new GephiStoreIterator<>(graph, graphModel::getMaxEdgeStoreId, id -> {
+            EdgeImpl edge = edgeStore.get(id);
+            return edge != null ? graph.edge(edge) : null;
+        });
+    }
+
+    @Override
+    protected boolean fill(List<T> batch) {
+        int max = maxStoreId.getAsInt();
+        while (index < max && batch.size() < BATCH_SIZE) {
+            T element = lookup.apply(index++);
+            if (element != null) {
+                batch.add(element);
+            }
+        }
+        return index < max;
+    }
+}
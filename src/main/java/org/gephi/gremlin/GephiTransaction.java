@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.structure.util.AbstractThreadLocalTransaction;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Element;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+
+import static org.apache.tinkerpop.gremlin.structure.Graph.Exceptions.edgeWithIdAlreadyExists;
+import static org.apache.tinkerpop.gremlin.structure.Graph.Exceptions.vertexWithIdAlreadyExists;
+
+/**
+ * Transaction buffering the mutations of each thread until commit.
+ * <p/>
+ * New vertices and edges are created detached from the store and carry their
+ * own properties, while changes to existing elements are recorded. On commit
+ * the buffer is checked and replayed as one batch under a single write lock,
+ * so other threads see either none or all of it, and rollback just drops the
+ * buffer. The writing thread reads through its buffer: property values,
+ * element lookups, full scans, counts and adjacency include its new elements
+ * and changes and skip the elements it removed. While changes are pending,
+ * the index, label index and store count shortcuts of the traversal steps
+ * fall back to scanning the graph.
+ * <p/>
+ * Property keys are not transactional: a column created for a new key stays
+ * after a rollback.
+ */
+final class GephiTransaction extends AbstractThreadLocalTransaction {
+
+    private final GephiGraph graph;
+    private final ThreadLocal<Buffer> buffers = new ThreadLocal<>();
+
+    GephiTransaction(final GephiGraph graph) {
+        super(graph);
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the buffer of the calling thread, opening the transaction as per
+     * the read-write behavior.
+     */
+    Buffer getBuffer() {
+        readWrite();
+        return buffers.get();
+    }
+
+    /**
+     * Returns the buffer of the calling thread when it holds changes, without
+     * opening a transaction.
+     */
+    Buffer getPendingChanges() {
+        final Buffer buffer = buffers.get();
+        return buffer == null || buffer.operations.isEmpty() ? null : buffer;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return buffers.get() != null;
+    }
+
+    @Override
+    protected void doOpen() {
+        buffers.set(new Buffer(graph.getGraphModel()));
+    }
+
+    @Override
+    protected void doCommit() throws TransactionException {
+        final Buffer buffer = buffers.get();
+        buffers.remove();
+        if (buffer.operations.isEmpty()) {
+            return;
+        }
+        final Graph store = graph.getGraph();
+        final GephiWriteAheadLog log = graph.getWriteAheadLog();
+        graph.writeLock();
+        try {
+            buffer.validate(store);
+            for (Operation operation : buffer.operations) {
+                if (operation.apply(graph, store) && log != null) {
+                    operation.log(log);
+                }
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+    }
+
+    @Override
+    protected void doRollback() throws TransactionException {
+        buffers.remove();
+    }
+
+    static final class Buffer {
+
+        private final GraphModel graphModel;
+        private final List<Operation> operations = new ArrayList<>();
+        private final Set<Element> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Element> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<Node> addedNodes = new ArrayList<>();
+        private final List<Edge> addedEdges = new ArrayList<>();
+        private final Map<Object, Node> addedNodeIds = new HashMap<>();
+        private final Map<Object, Edge> addedEdgeIds = new HashMap<>();
+        private final Map<Element, Map<Column, Object>> attributes = new IdentityHashMap<>();
+        private Node scratchNode;
+        private Edge scratchEdge;
+
+        private Buffer(final GraphModel graphModel) {
+            this.graphModel = graphModel;
+        }
+
+        /**
+         * Returns whether the element was created in this transaction, in
+         * which case it is still private to the thread and can be changed in
+         * place.
+         */
+        boolean isAdded(final Element element) {
+            return added.contains(element);
+        }
+
+        /**
+         * Returns whether the element exists as seen by the thread: added in
+         * this transaction or in the store, not removed in this transaction
+         * and, for an edge, with both endpoints alive.
+         */
+        boolean isAlive(final Element element) {
+            if (removed.contains(element) || (element.getStoreId() == -1 && !added.contains(element))) {
+                return false;
+            }
+            if (element instanceof Edge) {
+                final Edge edge = (Edge) element;
+                return isAlive(edge.getSource()) && isAlive(edge.getTarget());
+            }
+            return true;
+        }
+
+        /**
+         * Returns the node of the id as seen by the thread.
+         */
+        Node getNode(final Graph store, final Object id) {
+            final Node node = addedNodeIds.get(id);
+            if (node != null) {
+                return node;
+            }
+            final Node stored = store.getNode(id);
+            return stored != null && isAlive(stored) ? stored : null;
+        }
+
+        /**
+         * Returns the edge of the id as seen by the thread.
+         */
+        Edge getEdge(final Graph store, final Object id) {
+            final Edge edge = addedEdgeIds.get(id);
+            if (edge != null && isAlive(edge)) {
+                return edge;
+            }
+            final Edge stored = store.getEdge(id);
+            return stored != null && isAlive(stored) ? stored : null;
+        }
+
+        /**
+         * Returns the nodes added in this transaction and still alive, in
+         * insertion order.
+         */
+        List<Node> getAddedNodes() {
+            final List<Node> nodes = new ArrayList<>(addedNodes.size());
+            for (Node node : addedNodes) {
+                if (isAlive(node)) {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        }
+
+        /**
+         * Returns the edges added in this transaction and still alive, in
+         * insertion order.
+         */
+        List<Edge> getAddedEdges() {
+            final List<Edge> edges = new ArrayList<>(addedEdges.size());
+            for (Edge edge : addedEdges) {
+                if (isAlive(edge)) {
+                    edges.add(edge);
+                }
+            }
+            return edges;
+        }
+
+        /**
+         * Returns the attribute as seen by the thread, the element holding it
+         * unless it was changed in this transaction.
+         */
+        Object getAttribute(final Element element, final Column column) {
+            final Map<Column, Object> values = attributes.get(element);
+            if (values != null && values.containsKey(column)) {
+                return values.get(column);
+            }
+            return element.getAttribute(column);
+        }
+
+        void addNode(final Node node) {
+            added.add(node);
+            addedNodes.add(node);
+            addedNodeIds.put(node.getId(), node);
+            operations.add(new Operation(Operation.ADD_NODE, node, null, null));
+        }
+
+        void addEdge(final Edge edge) {
+            added.add(edge);
+            addedEdges.add(edge);
+            addedEdgeIds.put(edge.getId(), edge);
+            operations.add(new Operation(Operation.ADD_EDGE, edge, null, null));
+        }
+
+        void removeNode(final Node node) {
+            removed.add(node);
+            addedNodeIds.remove(node.getId(), node);
+            operations.add(new Operation(Operation.REMOVE_NODE, node, null, null));
+        }
+
+        void removeEdge(final Edge edge) {
+            removed.add(edge);
+            addedEdgeIds.remove(edge.getId(), edge);
+            operations.add(new Operation(Operation.REMOVE_EDGE, edge, null, null));
+        }
+
+        void setAttribute(final Element element, final Column column, final Object value) {
+            if (isAdded(element)) {
+                element.setAttribute(column, value);
+            } else {
+                // Type errors are raised now rather than half way through the commit
+                getScratch(element).setAttribute(column, value);
+                attributes.computeIfAbsent(element, e -> new HashMap<>()).put(column, value);
+                operations.add(new Operation(Operation.SET_ATTRIBUTE, element, column, value));
+            }
+        }
+
+        void removeAttribute(final Element element, final Column column) {
+            if (isAdded(element)) {
+                element.removeAttribute(column);
+            } else {
+                attributes.computeIfAbsent(element, e -> new HashMap<>()).put(column, null);
+                operations.add(new Operation(Operation.REMOVE_ATTRIBUTE, element, column, null));
+            }
+        }
+
+        private Element getScratch(final Element element) {
+            if (scratchNode == null) {
+                scratchNode = graphModel.factory().newNode();
+                scratchEdge = graphModel.factory().newEdge(scratchNode, scratchNode, 0, true);
+            }
+            return element instanceof Node ? scratchNode : scratchEdge;
+        }
+
+        /**
+         * Checks the ids of the new elements and the endpoints of the new
+         * edges against the store and the earlier operations, so that the
+         * replay cannot fail half way.
+         */
+        private void validate(final Graph store) {
+            final Map<Object, Boolean> nodeIds = new HashMap<>();
+            final Map<Object, Boolean> edgeIds = new HashMap<>();
+            final Set<Element> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            final Set<Element> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Operation operation : operations) {
+                switch (operation.type) {
+                    case Operation.ADD_NODE: {
+                        final Object id = operation.element.getId();
+                        if (nodeIds.getOrDefault(id, store.getNode(id) != null)) {
+                            throw vertexWithIdAlreadyExists(id);
+                        }
+                        nodeIds.put(id, true);
+                        inserted.add(operation.element);
+                        break;
+                    }
+                    case Operation.ADD_EDGE: {
+                        final Edge edge = (Edge) operation.element;
+                        for (Node node : new Node[]{edge.getSource(), edge.getTarget()}) {
+                            final boolean alive = inserted.contains(node) || (node.getStoreId() != -1 && !removed.contains(node));
+                            if (!alive) {
+                                throw new IllegalStateException(String.format("Vertex with id %s was removed.", node.getId()));
+                            }
+                        }
+                        final Object id = edge.getId();
+                        if (edgeIds.getOrDefault(id, store.getEdge(id) != null)) {
+                            throw edgeWithIdAlreadyExists(id);
+                        }
+                        edgeIds.put(id, true);
+                        inserted.add(edge);
+                        break;
+                    }
+                    case Operation.REMOVE_NODE:
+                        nodeIds.put(operation.element.getId(), false);
+                        removed.add(operation.element);
+                        inserted.remove(operation.element);
+                        break;
+                    case Operation.REMOVE_EDGE:
+                        edgeIds.put(operation.element.getId(), false);
+                        removed.add(operation.element);
+                        inserted.remove(operation.element);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    private static final class Operation {
+
+        private static final int ADD_NODE = 0;
+        private static final int ADD_EDGE = 1;
+        private static final int REMOVE_NODE = 2;
+        private static final int REMOVE_EDGE = 3;
+        private static final int SET_ATTRIBUTE = 4;
+        private static final int REMOVE_ATTRIBUTE = 5;
+
+        private final int type;
+        private final Element element;
+        private final Column column;
+        private final Object value;
+
+        private Operation(final int type, final Element element, final Column column, final Object value) {
+            this.type = type;
+            this.element = element;
+            this.column = column;
+            this.value = value;
+        }
+
+        /**
+         * Applies the operation and returns whether it changed the store.
+         */
+        private boolean apply(final GephiGraph graph, final Graph store) {
+            switch (type) {
+                case ADD_NODE:
+                    if (store.addNode((Node) element)) {
+                        graph.getLabelIndex().add((Node) element);
+                        return true;
+                    }
+                    return false;
+                case ADD_EDGE:
+                    return store.addEdge((Edge) element);
+                case REMOVE_NODE:
+                    if (element.getStoreId() != -1) {
+                        final String label = element.getLabel();
+                        final int storeId = element.getStoreId();
+                        graph.getElementCache().removeVertex(store, (Node) element);
+                        if (store.removeNode((Node) element)) {
+                            graph.getLabelIndex().remove(label, storeId);
+                            return true;
+                        }
+                    }
+                    return false;
+                case REMOVE_EDGE:
+                    if (element.getStoreId() != -1) {
+                        final int storeId = element.getStoreId();
+                        if (store.removeEdge((Edge) element)) {
+                            graph.getElementCache().removeEdge(storeId);
+                            return true;
+                        }
+                    }
+                    return false;
+                case SET_ATTRIBUTE:
+                    if (element.getStoreId() != -1) {
+                        element.setAttribute(column, value);
+                        return true;
+                    }
+                    return false;
+                case REMOVE_ATTRIBUTE:
+                    if (element.getStoreId() != -1) {
+                        element.removeAttribute(column);
+                        return true;
+                    }
+                    return false;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+
+        private void log(final GephiWriteAheadLog log) {
+            switch (type) {
+                case ADD_NODE:
+                    log.addNode((Node) element);
+                    break;
+                case ADD_EDGE:
+                    log.addEdge((Edge) element);
+                    break;
+                case REMOVE_NODE:
+                    log.removeNode((Node) element);
+                    break;
+                case REMOVE_EDGE:
+                    log.removeEdge((Edge) element);
+                    break;
+                case SET_ATTRIBUTE:
+                    log.setAttribute(element, column, value);
+                    break;
+                case REMOVE_ATTRIBUTE:
+                    log.removeAttribute(element, column);
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.ProfileStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+
+/**
+ * Checks shared by the traversal strategies of {@link GephiGraph}.
+ */
+final class GephiTraversalHelper {
+
+    private GephiTraversalHelper() {
+    }
+
+    /**
+     * Returns whether the traversal, or the traversal it is a child of, is
+     * profiled. Steps are then not merged so that each one gets its metrics.
+     */
+    static boolean isProfiled(final Traversal.Admin<?, ?> traversal) {
+        return TraversalHelper.hasStepOfClass(ProfileStep.class, TraversalHelper.getRootTraversal(traversal));
+    }
+}
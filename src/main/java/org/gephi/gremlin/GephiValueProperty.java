@@ -18,20 +18,25 @@
  */
 package org.gephi.gremlin;
 
-import java.util.Map;
 import java.util.NoSuchElementException;
-import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 import org.gephi.graph.api.Column;
 
+/**
+ * Meta-property of a {@link GephiVertexProperty}, stored in its own column of
+ * the vertex.
+ */
 public final class GephiValueProperty<V> implements Property<V> {
 
-    protected final GephiElement element;
+    protected final GephiVertexProperty<?> vertexProperty;
     protected final Column column;
     protected final String key;
 
-    public GephiValueProperty(final GephiElement element, final Column column, String key) {
-        this.element = element;
+    public GephiValueProperty(final GephiVertexProperty<?> vertexProperty, final Column column, String key) {
+        this.vertexProperty = vertexProperty;
         this.column = column;
         this.key = key;
     }
@@ -43,21 +48,36 @@ public final class GephiValueProperty<V> implements Property<V> {
 
     @Override
     public V value() throws NoSuchElementException {
-        return (V) ((Map) element.element.getAttribute(column)).get(key);
+        return (V) vertexProperty.vertex.getAttribute(column);
     }
 
     @Override
     public boolean isPresent() {
-        return ((Map) element.element.getAttribute(column)).get(key) != null;
+        return value() != null;
     }
 
     @Override
-    public Element element() {
-        return element;
+    public VertexProperty<?> element() {
+        return vertexProperty;
     }
 
     @Override
     public void remove() {
-        ((Map) element.element.getAttribute(column)).remove(key);
+        vertexProperty.vertex.removeAttribute(column);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        return ElementHelper.areEqual(this, object);
+    }
+
+    @Override
+    public int hashCode() {
+        return ElementHelper.hashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return StringFactory.propertyString(this);
     }
 }
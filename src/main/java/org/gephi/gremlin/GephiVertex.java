@@ -24,15 +24,15 @@ import org.gephi.graph.api.Edge;
 import java.util.*;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
 import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 import org.gephi.graph.api.Column;
-import org.gephi.graph.api.DirectedGraph;
-import org.gephi.graph.api.Origin;
 import org.gephi.graph.api.Table;
+import org.gephi.graph.impl.NodeImpl;
 
 public class GephiVertex extends GephiElement<Node> implements Vertex {
 
@@ -46,8 +46,8 @@ public class GephiVertex extends GephiElement<Node> implements Vertex {
     }
 
     @Override
-    protected boolean isValid() {
-        return element.getStoreId() != -1;
+    GephiColumnCache getColumns() {
+        return graph.getNodeColumns();
     }
 
     @Override
@@ -65,86 +65,142 @@ public class GephiVertex extends GephiElement<Node> implements Vertex {
             throw org.apache.tinkerpop.gremlin.structure.Edge.Exceptions.userSuppliedIdsOfThisTypeNotSupported();
         }
 
-        if (idValue != null && graph.getGraph().getEdge(idValue) != null) {
-            throw Graph.Exceptions.edgeWithIdAlreadyExists(idValue);
-        }
-
         Node target = ((GephiVertex) vertex).element;
-        int type = graph.getGraphModel().addEdgeType(label);
-
-        Edge edge;
-        if (idValue == null) {
-            edge = graph.getGraphModel().factory().newEdge(element, target, type, true);
-        } else {
-            edge = graph.getGraphModel().factory().newEdge(idValue, element, target, type, 1.0, true);
-        }
-        edge.setLabel(label);
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
+        if (buffer != null) {
+            if (idValue != null && buffer.getEdge(graph.getGraph(), idValue) != null) {
+                throw Graph.Exceptions.edgeWithIdAlreadyExists(idValue);
+            }
+            int type = graph.getGraphModel().addEdgeType(label);
+            Edge edge = idValue == null
+                    ? graph.getGraphModel().factory().newEdge(element, target, type, true)
+                    : graph.getGraphModel().factory().newEdge(idValue, element, target, type, 1.0, true);
+            edge.setLabel(label);
+            buffer.addEdge(edge);
 
-        GephiEdge gephiEdge = new GephiEdge(edge, graph);
-        if (graph.getGraph().addEdge(edge)) {
+            GephiEdge gephiEdge = new GephiEdge(edge, graph);
             ElementHelper.attachProperties(gephiEdge, keyValues);
+            return gephiEdge;
         }
 
-        return gephiEdge;
-    }
+        org.gephi.graph.api.Graph store = graph.getGraph();
+        graph.writeLock();
+        try {
+            if (idValue != null && store.getEdge(idValue) != null) {
+                throw Graph.Exceptions.edgeWithIdAlreadyExists(idValue);
+            }
+            int type = graph.getGraphModel().addEdgeType(label);
 
-    @Override
-    public Iterator<org.apache.tinkerpop.gremlin.structure.Edge> edges(Direction direction, String... labels) {
-        List<Iterator<org.apache.tinkerpop.gremlin.structure.Edge>> itrs = new ArrayList<>();
-
-        DirectedGraph directedGraph = (DirectedGraph) graph.getGraph();
-        if (labels.length > 0) {
-            for (String label : labels) {
-                int type = graph.getGraphModel().getEdgeType(label);
-                if (type != -1) {
-                    switch (direction) {
-                        case IN:
-                            itrs.add(IteratorUtils.map(directedGraph.getInEdges(element, type).iterator(), edge -> new GephiEdge(edge, graph)));
-                            break;
-                        case OUT:
-                            itrs.add(IteratorUtils.map(directedGraph.getOutEdges(element, type).iterator(), edge -> new GephiEdge(edge, graph)));
-                            break;
-                        case BOTH:
-                            itrs.add(IteratorUtils.map(directedGraph.getEdges(element, type).iterator(), edge -> new GephiEdge(edge, graph)));
-                            break;
-                    }
+            Edge edge;
+            if (idValue == null) {
+                edge = graph.getGraphModel().factory().newEdge(element, target, type, true);
+            } else {
+                edge = graph.getGraphModel().factory().newEdge(idValue, element, target, type, 1.0, true);
+            }
+            edge.setLabel(label);
 
+            if (store.addEdge(edge)) {
+                GephiWriteAheadLog log = graph.getWriteAheadLog();
+                if (log != null) {
+                    log.addEdge(edge);
                 }
+                GephiEdge gephiEdge = graph.edge(edge);
+                ElementHelper.attachProperties(gephiEdge, keyValues);
+                return gephiEdge;
             }
-        } else {
-            switch (direction) {
-                case IN:
-                    itrs.add(IteratorUtils.map(directedGraph.getInEdges(element).iterator(), edge -> new GephiEdge(edge, graph)));
-                    break;
-                case OUT:
-                    itrs.add(IteratorUtils.map(directedGraph.getOutEdges(element).iterator(), edge -> new GephiEdge(edge, graph)));
-                    break;
-                case BOTH:
-                    itrs.add(IteratorUtils.map(directedGraph.getEdges(element).iterator(), edge -> new GephiEdge(edge, graph)));
-                    break;
-            }
+
+            return new GephiEdge(edge, graph);
+        } finally {
+            graph.writeUnlock();
         }
-        return IteratorUtils.list(IteratorUtils.concat(itrs.toArray(new Iterator[0]))).iterator();
+    }
+
+    @Override
+    public Iterator<org.apache.tinkerpop.gremlin.structure.Edge> edges(Direction direction, String... labels) {
+        return GephiAdjacencyIterator.edges(this, direction, labels);
     }
 
     @Override
     public Iterator<Vertex> vertices(Direction direction, String... labels) {
-        return IteratorUtils.map(edges(direction, labels), edge -> new GephiVertex(graph.getGraph().getOpposite(element, ((GephiEdge) edge).element), graph));
+        return GephiAdjacencyIterator.vertices(this, direction, labels);
+    }
+
+    /**
+     * Returns the edges between this vertex and another one, outgoing from
+     * this vertex for {@link Direction#OUT}, as <code>outE(labels)</code>
+     * filtered on <code>inV()</code> would. The edges are looked up in the
+     * graphstore edge dictionary, without walking the adjacency.
+     */
+    public Iterator<org.apache.tinkerpop.gremlin.structure.Edge> edges(Direction direction, Vertex other, String... labels) {
+        Node node = getNode(other);
+        if (node == null) {
+            return Collections.emptyIterator();
+        }
+        return GephiAdjacencyIterator.<org.apache.tinkerpop.gremlin.structure.Edge>between(this, (NodeImpl) node, direction, labels, (edge, out) -> graph.edge(edge)).iterator();
+    }
+
+    /**
+     * Returns whether {@link #edges(Direction, Vertex, String...)} returns an
+     * edge, in constant time per label.
+     */
+    public boolean hasEdge(Direction direction, Vertex other, String... labels) {
+        Node node = getNode(other);
+        return node != null && GephiAdjacencyIterator.exists(this, (NodeImpl) node, direction, labels);
+    }
+
+    private Node getNode(Vertex vertex) {
+        if (vertex instanceof GephiVertex && ((GephiVertex) vertex).graph == graph) {
+            return ((GephiVertex) vertex).element;
+        }
+        return graph.lookupNode(vertex.id());
+    }
+
+    /**
+     * Returns the number of edges {@link #edges(Direction, String...)} returns,
+     * read from the graphstore degrees when no label is given.
+     */
+    public long degree(Direction direction, String... labels) {
+        return GephiAdjacencyIterator.count(this, direction, labels);
     }
 
     @Override
     public void remove() {
-        graph.getGraph().removeNode(element);
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
+        if (buffer != null) {
+            buffer.removeNode(element);
+            return;
+        }
+        org.gephi.graph.api.Graph store = graph.getGraph();
+        graph.writeLock();
+        try {
+            String label = element.getLabel();
+            int storeId = element.getStoreId();
+            if (storeId != -1) {
+                graph.getElementCache().removeVertex(store, element);
+            }
+            if (store.removeNode(element)) {
+                graph.getLabelIndex().remove(label, storeId);
+                GephiWriteAheadLog log = graph.getWriteAheadLog();
+                if (log != null) {
+                    log.removeNode(element);
+                }
+            }
+        } finally {
+            graph.writeUnlock();
+        }
     }
 
     @Override
     public <V> VertexProperty<V> property(String key) {
-        Table table = getTable();
-        Column column = table.getColumn(key);
+        GephiGraphComputerView view = graph.getGraphComputerView();
+        if (view != null && view.isComputeKey(key)) {
+            return view.getProperty(this, key);
+        }
+        Column column = getColumns().getColumn(key);
         if (column == null) {
             return VertexProperty.empty();
         } else {
-            Object r = element.getAttribute(column);
+            Object r = getAttribute(column);
             if (r != null) {
                 return new GephiVertexProperty(this, column);
 
@@ -164,13 +220,29 @@ public class GephiVertex extends GephiElement<Node> implements Vertex {
             throw VertexProperty.Exceptions.userSuppliedIdsNotSupported();
         }
 
-        Table table = getTable();
-        Column col = table.getColumn(key);
-        if (col == null) {
-            col = table.addColumn(key, null, value.getClass(), Origin.DATA, null, true);
-            table.addColumn(key + GephiVertexProperty.PROPERTY_SUFFIX, null, Map.class, Origin.PROPERTY, null, false);
+        GephiGraphComputerView view = graph.getGraphComputerView();
+        if (view != null && view.isComputeKey(key)) {
+            return view.addProperty(this, key, value);
+        }
+
+        Column col;
+        final GephiTransaction.Buffer buffer = graph.getTransactionBuffer();
+        GephiWriteAheadLog log = graph.getWriteAheadLog();
+        graph.writeLock();
+        try {
+            col = getColumns().addColumn(key, value.getClass());
+            if (buffer == null) {
+                element.setAttribute(col, value);
+                if (log != null) {
+                    log.setAttribute(element, col, value);
+                }
+            }
+        } finally {
+            graph.writeUnlock();
+        }
+        if (buffer != null) {
+            buffer.setAttribute(element, col, value);
         }
-        element.setAttribute(col, value);
 
         GephiVertexProperty vertexProperty = new GephiVertexProperty(this, col);
         ElementHelper.attachProperties(vertexProperty, keyValues);
@@ -180,10 +252,47 @@ public class GephiVertex extends GephiElement<Node> implements Vertex {
 
     @Override
     public <V> Iterator<VertexProperty<V>> properties(String... propertyKeys) {
-        Table table = getTable();
+        GephiGraphComputerView view = graph.getGraphComputerView();
+        if (view == null) {
+            return columnProperties(propertyKeys);
+        }
+        List<VertexProperty<V>> props = new ArrayList<>();
+        Iterator<VertexProperty<V>> columnProperties = columnProperties(propertyKeys);
+        while (columnProperties.hasNext()) {
+            VertexProperty<V> property = columnProperties.next();
+            if (!view.isComputeKey(property.key())) {
+                props.add(property);
+            }
+        }
+        props.addAll(view.getProperties(this, propertyKeys));
+        return props.iterator();
+    }
+
+    @Override
+    public Set<String> keys() {
+        GephiGraphComputerView view = graph.getGraphComputerView();
+        if (view == null) {
+            return super.keys();
+        }
+        Set<String> keys = new HashSet<>(super.keys());
+        keys.addAll(view.keys(this));
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public <V> V value(String key) throws NoSuchElementException {
+        GephiGraphComputerView view = graph.getGraphComputerView();
+        if (view != null && view.isComputeKey(key)) {
+            return view.<V>getProperty(this, key).orElseThrow(() -> Property.Exceptions.propertyDoesNotExist(this, key));
+        }
+        return super.value(key);
+    }
+
+    private <V> Iterator<VertexProperty<V>> columnProperties(String... propertyKeys) {
+        final GephiColumnCache columns = getColumns();
         if (propertyKeys.length == 1) {
-            Column column = table.getColumn(propertyKeys[0]);
-            if (column != null && !column.isProperty() && element.getAttribute(column) != null) {
+            Column column = columns.getColumn(propertyKeys[0]);
+            if (column != null && !column.isProperty() && getAttribute(column) != null) {
                 final VertexProperty<V> property = new GephiVertexProperty(this, column);
                 return IteratorUtils.of(property);
             } else {
@@ -191,19 +300,26 @@ public class GephiVertex extends GephiElement<Node> implements Vertex {
             }
         } else {
             List<VertexProperty<V>> props = new ArrayList<>();
-            if (propertyKeys.length > 0) {
-                for (String s : propertyKeys) {
-                    Column column = table.getColumn(s);
-                    if (column != null && !column.isProperty() && element.getAttribute(column) != null) {
-                        props.add(new GephiVertexProperty<>(this, column));
+            final GephiTransaction.Buffer buffer = graph.getPendingChanges();
+            org.gephi.graph.api.Graph store = graph.getGraph();
+            store.readLock();
+            try {
+                if (propertyKeys.length > 0) {
+                    for (String s : propertyKeys) {
+                        Column column = columns.getColumn(s);
+                        if (column != null && !column.isProperty() && getAttribute(buffer, column) != null) {
+                            props.add(new GephiVertexProperty<>(this, column));
+                        }
                     }
-                }
-            } else {
-                for (Column col : table) {
-                    if (!col.isProperty() && element.getAttribute(col) != null) {
-                        props.add(new GephiVertexProperty<>(this, col));
+                } else {
+                    for (Column col : columns.getColumns()) {
+                        if (!col.isProperty() && getAttribute(buffer, col) != null) {
+                            props.add(new GephiVertexProperty<>(this, col));
+                        }
                     }
                 }
+            } finally {
+                store.readUnlock();
             }
             return props.iterator();
         }
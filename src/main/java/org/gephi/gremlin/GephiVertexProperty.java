@@ -18,10 +18,11 @@
  */
 package org.gephi.gremlin;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import org.apache.tinkerpop.gremlin.structure.Element;
@@ -33,17 +34,23 @@ import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
 import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 import org.gephi.graph.api.Column;
 
+/**
+ * Vertex property backed by a node column. Its meta-properties are stored in
+ * hidden node columns, one per meta-property key, created the first time the
+ * key is set on a property of that key and typed by the first value. Vertices
+ * without meta-properties only have an empty slot in these columns. The
+ * meta-property columns are resolved through the {@link GephiColumnCache} of
+ * the nodes.
+ */
 public class GephiVertexProperty<V> implements VertexProperty<V> {
 
-    protected static final String PROPERTY_SUFFIX = "_properties";
+    protected static final String PROPERTY_SEPARATOR = "_properties.";
     protected final GephiVertex vertex;
     protected final Column column;
-    protected final Column propertyCol;
 
     public GephiVertexProperty(final GephiVertex vertex, final Column column) {
         this.vertex = vertex;
         this.column = column;
-        this.propertyCol = column.getTable().getColumn(column.getId() + PROPERTY_SUFFIX);
     }
 
     @Override
@@ -53,34 +60,92 @@ public class GephiVertexProperty<V> implements VertexProperty<V> {
 
     @Override
     public Object id() {
-        return (long) (column.hashCode() + this.vertex.id().hashCode());
+        return id(column, vertex.id());
+    }
+
+    static long id(final Column column, final Object vertexId) {
+        return (long) (column.hashCode() + vertexId.hashCode());
+    }
+
+    /**
+     * Returns the id of the column holding the meta-property of the key on the
+     * properties of the column.
+     */
+    static String metaColumnId(final Column column, final String key) {
+        return column.getId() + PROPERTY_SEPARATOR + key;
+    }
+
+    /**
+     * Returns the key of a meta-property column.
+     */
+    static String metaKey(final Column metaColumn) {
+        final String id = metaColumn.getTitle();
+        return id.substring(id.indexOf(PROPERTY_SEPARATOR) + PROPERTY_SEPARATOR.length());
     }
 
     @Override
     public String key() {
-        return column.getId();
+        return GephiColumnCache.key(column);
     }
 
     @Override
     public V value() throws NoSuchElementException {
-        return (V) vertex.element.getAttribute(column);
+        return (V) vertex.getAttribute(column);
     }
 
     @Override
     public boolean isPresent() {
-        return vertex.element.getAttribute(column) != null;
+        return vertex.getAttribute(column) != null;
     }
 
     @Override
     public void remove() {
-        vertex.element.removeAttribute(column);
-        vertex.element.removeAttribute(propertyCol);
+        final List<Column> metaColumns = vertex.graph.getNodeColumns().getMetaColumnList(column);
+        final GephiTransaction.Buffer buffer = vertex.graph.getTransactionBuffer();
+        if (buffer != null) {
+            buffer.removeAttribute(vertex.element, column);
+            for (Column metaColumn : metaColumns) {
+                buffer.removeAttribute(vertex.element, metaColumn);
+            }
+            return;
+        }
+        vertex.graph.writeLock();
+        try {
+            final GephiWriteAheadLog log = vertex.graph.getWriteAheadLog();
+            vertex.element.removeAttribute(column);
+            if (log != null) {
+                log.removeAttribute(vertex.element, column);
+            }
+            for (Column metaColumn : metaColumns) {
+                if (vertex.element.removeAttribute(metaColumn) != null && log != null) {
+                    log.removeAttribute(vertex.element, metaColumn);
+                }
+            }
+        } finally {
+            vertex.graph.writeUnlock();
+        }
     }
 
     @Override
     public Set<String> keys() {
-        Map properties = (Map) vertex.element.getAttribute(propertyCol);
-        return null == properties ? Collections.emptySet() : properties.keySet();
+        final List<Column> metaColumns = vertex.graph.getNodeColumns().getMetaColumnList(column);
+        if (metaColumns.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final Set<String> keys = new HashSet<>();
+        final GephiTransaction.Buffer buffer = vertex.graph.getPendingChanges();
+        final org.gephi.graph.api.Graph store = vertex.graph.getGraph();
+        store.readLock();
+        try {
+            for (Column metaColumn : metaColumns) {
+                if (vertex.getAttribute(buffer, metaColumn) != null) {
+                    keys.add(metaKey(metaColumn));
+                }
+            }
+        } finally {
+            store.readUnlock();
+        }
+        return keys;
     }
 
     @Override
@@ -99,8 +164,36 @@ public class GephiVertexProperty<V> implements VertexProperty<V> {
     }
 
     @Override
-    public <U> Iterator<Property<U>> properties(String... strings) {
-        return Collections.EMPTY_LIST.iterator();
+    public <U> Iterator<Property<U>> properties(String... propertyKeys) {
+        final List<Column> metaColumns;
+        if (propertyKeys.length == 0) {
+            metaColumns = vertex.graph.getNodeColumns().getMetaColumnList(column);
+        } else {
+            metaColumns = new ArrayList<>(propertyKeys.length);
+            for (String key : propertyKeys) {
+                final Column metaColumn = vertex.graph.getNodeColumns().getMetaColumn(column, key);
+                if (metaColumn != null) {
+                    metaColumns.add(metaColumn);
+                }
+            }
+        }
+        if (metaColumns.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        final List<Property<U>> properties = new ArrayList<>(metaColumns.size());
+        final GephiTransaction.Buffer buffer = vertex.graph.getPendingChanges();
+        final org.gephi.graph.api.Graph store = vertex.graph.getGraph();
+        store.readLock();
+        try {
+            for (Column metaColumn : metaColumns) {
+                if (vertex.getAttribute(buffer, metaColumn) != null) {
+                    properties.add(new GephiValueProperty<>(this, metaColumn, metaKey(metaColumn)));
+                }
+            }
+        } finally {
+            store.readUnlock();
+        }
+        return properties.iterator();
     }
 
     @Override
@@ -110,25 +203,24 @@ public class GephiVertexProperty<V> implements VertexProperty<V> {
 
     @Override
     public <U> Property<U> property(final String key) {
-        Map properties = (Map) vertex.element.getAttribute(propertyCol);
-        if (properties == null) {
-            return Property.empty();
-        }
-        Object val = properties.get(key);
-        if (val != null) {
-            return new GephiValueProperty(vertex, propertyCol, key);
+        final Column metaColumn = vertex.graph.getNodeColumns().getMetaColumn(column, key);
+        if (metaColumn != null && vertex.getAttribute(metaColumn) != null) {
+            return new GephiValueProperty(this, metaColumn, key);
         }
         return Property.empty();
     }
 
     @Override
     public <V> Property<V> property(String key, V value) {
-        Map properties = (Map) vertex.element.getAttribute(propertyCol);
-        if (properties == null) {
-            properties = new HashMap();
+        ElementHelper.validateProperty(key, value);
+        final Column metaColumn;
+        vertex.graph.writeLock();
+        try {
+            metaColumn = vertex.graph.getNodeColumns().addMetaColumn(column, key, value.getClass());
+        } finally {
+            vertex.graph.writeUnlock();
         }
-        properties.put(key, value);
-        vertex.element.setAttribute(propertyCol, properties);
-        return new GephiValueProperty(vertex, propertyCol, key);
+        vertex.setAttribute(metaColumn, value);
+        return new GephiValueProperty(this, metaColumn, key);
     }
 }
@@ -0,0 +1,593 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.gephi.graph.api.Column;
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Element;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.GraphModel;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.Origin;
+import org.gephi.graph.api.Table;
+import org.gephi.graph.impl.GraphStoreConfiguration;
+import org.gephi.graph.impl.Serialization;
+import org.gephi.graph.impl.utils.DataInputOutput;
+
+/**
+ * Append-only log of the mutations applied to a {@link GephiGraph} since its
+ * last snapshot.
+ * <p/>
+ * Records are appended to a memory buffer while the graph write lock is held,
+ * so the log order is the order in which the changes were applied. They reach
+ * the file on {@link #sync()}: the first caller writes and fsyncs everything
+ * appended so far while the other callers wait for it, so concurrent writers
+ * share one fsync. With a sync interval, a background thread syncs instead and
+ * writers do not wait.
+ * <p/>
+ * Each record is framed with its length and CRC32. On open the log is
+ * replayed on top of the snapshot and cut at the first incomplete or corrupt
+ * record. Replay is idempotent, so a log also covering part of the snapshot
+ * gives the same graph.
+ */
+final class GephiWriteAheadLog {
+
+    static final String SUFFIX = ".wal";
+    private static final int MAGIC = 0x47574c01;
+    private static final int HEADER_SIZE = 4;
+
+    private static final byte ADD_COLUMN = 1;
+    private static final byte ADD_NODE = 2;
+    private static final byte ADD_EDGE = 3;
+    private static final byte REMOVE_NODE = 4;
+    private static final byte REMOVE_EDGE = 5;
+    private static final byte SET_ATTRIBUTE = 6;
+    private static final byte REMOVE_ATTRIBUTE = 7;
+    private static final byte SET_VARIABLE = 8;
+
+    private final File file;
+    private FileChannel channel;
+    private final long syncInterval;
+    private final ScheduledExecutorService syncService;
+    private final Values values = new Values();
+    private final DataInputOutput record = new DataInputOutput();
+    private final CRC32 crc = new CRC32();
+    private DataInputOutput pending = new DataInputOutput();
+    private DataInputOutput spare = new DataInputOutput();
+    private long appended;
+    private long durable;
+    private long size;
+    private boolean syncing;
+    private IOException failure;
+
+    private GephiWriteAheadLog(File file, FileChannel channel, long syncInterval) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.size = channel.position();
+        this.syncInterval = syncInterval;
+        if (syncInterval > 0) {
+            syncService = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "GephiWriteAheadLog-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncService.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        } else {
+            syncService = null;
+        }
+    }
+
+    /**
+     * Replays the log at <code>file</code>, if any, into the graph and opens
+     * it for appending.
+     *
+     * @param syncInterval milliseconds between background fsyncs, or 0 to sync
+     * on every write
+     */
+    static GephiWriteAheadLog open(GephiGraph graph, File file, long syncInterval) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = 0;
+            if (channel.size() >= HEADER_SIZE) {
+                end = replay(graph, channel);
+            }
+            if (end == 0) {
+                channel.truncate(0);
+                writeHeader(channel);
+                end = HEADER_SIZE;
+            } else if (end < channel.size()) {
+                channel.truncate(end);
+            }
+            channel.position(end);
+            return new GephiWriteAheadLog(file, channel, syncInterval);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Makes the records appended so far durable when the log syncs on every
+     * write, otherwise returns immediately.
+     */
+    void commit() {
+        if (syncInterval == 0) {
+            sync();
+        }
+    }
+
+    /**
+     * Writes and fsyncs the records appended so far, or waits for the sync in
+     * progress to cover them.
+     */
+    void sync() {
+        final long target;
+        final DataInputOutput batch;
+        synchronized (this) {
+            while (syncing && durable < appended) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Could not write the log at " + file, failure);
+            }
+            if (durable >= appended) {
+                return;
+            }
+            syncing = true;
+            target = appended;
+            batch = pending;
+            pending = spare;
+        }
+        IOException error = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.getBuf(), 0, batch.getPos());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            syncing = false;
+            spare = batch.reset();
+            if (error == null) {
+                durable = target;
+            } else {
+                failure = error;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw new UncheckedIOException("Could not write the log at " + file, error);
+        }
+    }
+
+    /**
+     * Returns the end of the log, to drop what precedes it with
+     * {@link #truncate(long)} once a snapshot covers it.
+     */
+    synchronized long mark() {
+        return size;
+    }
+
+    /**
+     * Drops the records before <code>mark</code>. The records that follow are
+     * copied to a new log that atomically replaces the current one.
+     */
+    void truncate(long mark) throws IOException {
+        sync();
+        synchronized (this) {
+            while (syncing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            syncing = true;
+        }
+        try {
+            final File tmp = new File(file.getPath() + ".tmp");
+            final FileChannel truncated = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeHeader(truncated);
+                truncated.position(HEADER_SIZE);
+                long position = mark;
+                final long end = channel.size();
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, truncated);
+                }
+                truncated.force(false);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                truncated.close();
+                throw e;
+            }
+            truncated.position(truncated.size());
+            channel.close();
+            channel = truncated;
+            synchronized (this) {
+                size -= mark - HEADER_SIZE;
+            }
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Syncs and closes the log.
+     */
+    void close() throws IOException {
+        if (syncService != null) {
+            syncService.shutdownNow();
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    synchronized void addColumn(Table table, Column column) {
+        try {
+            DataOutput out = begin(ADD_COLUMN);
+            out.writeBoolean(Node.class.equals(table.getElementClass()));
+            out.writeUTF(GephiColumnCache.key(column));
+            out.writeUTF(column.getTypeClass().getName());
+            out.writeUTF(column.getOrigin().name());
+            out.writeBoolean(column.isIndexed());
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void addNode(Node node) {
+        try {
+            DataOutput out = begin(ADD_NODE);
+            values.write(out, node.getId());
+            values.write(out, node.getLabel());
+            writeAttributes(out, node);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void addEdge(Edge edge) {
+        try {
+            DataOutput out = begin(ADD_EDGE);
+            values.write(out, edge.getId());
+            values.write(out, edge.getLabel());
+            values.write(out, edge.getSource().getId());
+            values.write(out, edge.getTarget().getId());
+            writeAttributes(out, edge);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void removeNode(Node node) {
+        try {
+            writeElement(REMOVE_NODE, node);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void removeEdge(Edge edge) {
+        try {
+            writeElement(REMOVE_EDGE, edge);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void setAttribute(Element element, Column column, Object value) {
+        try {
+            DataOutput out = writeElement(SET_ATTRIBUTE, element);
+            out.writeUTF(column.getId());
+            values.write(out, value);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void removeAttribute(Element element, Column column) {
+        try {
+            DataOutput out = writeElement(REMOVE_ATTRIBUTE, element);
+            out.writeUTF(column.getId());
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void setVariable(String key, Object value) {
+        try {
+            DataOutput out = begin(SET_VARIABLE);
+            out.writeUTF(key);
+            values.write(out, value);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DataOutput begin(byte type) throws IOException {
+        record.reset();
+        record.writeByte(type);
+        return record;
+    }
+
+    private DataOutput writeElement(byte type, Element element) throws IOException {
+        DataOutput out = begin(type);
+        out.writeBoolean(element instanceof Node);
+        values.write(out, element.getId());
+        return out;
+    }
+
+    private void writeAttributes(DataOutput out, Element element) throws IOException {
+        final Table table = element.getTable();
+        int count = 0;
+        for (Column column : table) {
+            if (isAttribute(column) && element.getAttribute(column) != null) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (Column column : table) {
+            if (isAttribute(column)) {
+                Object value = element.getAttribute(column);
+                if (value != null) {
+                    out.writeUTF(column.getId());
+                    values.write(out, value);
+                }
+            }
+        }
+    }
+
+    private void end() throws IOException {
+        crc.reset();
+        crc.update(record.getBuf(), 0, record.getPos());
+        pending.writeInt(record.getPos());
+        pending.writeInt((int) crc.getValue());
+        pending.write(record.getBuf(), 0, record.getPos());
+        size += 8 + record.getPos();
+        appended++;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+        channel.force(false);
+    }
+
+    private static boolean isAttribute(Column column) {
+        // The id, label and timeset are stored with the element itself
+        return column.getIndex() > GraphStoreConfiguration.ELEMENT_TIMESET_INDEX;
+    }
+
+    /**
+     * Applies the records of the log to the graph.
+     *
+     * @return the position after the last valid record, or 0 when the file is
+     * not a log
+     */
+    private static long replay(GephiGraph graph, FileChannel channel) throws IOException {
+        channel.position(0);
+        final GephiDataInput in = new GephiDataInput(channel);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a graph log");
+        }
+        final Values values = new Values();
+        final CRC32 crc = new CRC32();
+        final DataInputOutput record = new DataInputOutput();
+        long position = HEADER_SIZE;
+        byte[] bytes = new byte[256];
+        while (true) {
+            final int length;
+            final int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || position + 8 + length > channel.size()) {
+                    break;
+                }
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                in.readFully(bytes, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            record.reset(bytes);
+            apply(graph, values, record);
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private static void apply(GephiGraph gephiGraph, Values values, DataInput in) throws IOException {
+        final GraphModel model = gephiGraph.getGraphModel();
+        final Graph graph = gephiGraph.getGraph();
+        final byte type = in.readByte();
+        switch (type) {
+            case ADD_COLUMN: {
+                final Table table = in.readBoolean() ? model.getNodeTable() : model.getEdgeTable();
+                final String id = in.readUTF();
+                final String typeClass = in.readUTF();
+                final Origin origin = Origin.valueOf(in.readUTF());
+                final boolean indexed = in.readBoolean();
+                if (!table.hasColumn(id)) {
+                    try {
+                        table.addColumn(id, null, Class.forName(typeClass), origin, null, indexed);
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                    (table == model.getNodeTable() ? gephiGraph.getNodeColumns() : gephiGraph.getEdgeColumns()).invalidate();
+                }
+                break;
+            }
+            case ADD_NODE: {
+                final Object id = values.read(in);
+                final String label = (String) values.read(in);
+                Node node = graph.getNode(id);
+                if (node == null) {
+                    node = model.factory().newNode(id);
+                    node.setLabel(label);
+                    readAttributes(in, values, node);
+                    graph.addNode(node);
+                    gephiGraph.getLabelIndex().add(node);
+                } else {
+                    readAttributes(in, values, node);
+                }
+                break;
+            }
+            case ADD_EDGE: {
+                final Object id = values.read(in);
+                final String label = (String) values.read(in);
+                final Node source = graph.getNode(values.read(in));
+                final Node target = graph.getNode(values.read(in));
+                Edge edge = graph.getEdge(id);
+                if (edge == null && source != null && target != null) {
+                    edge = model.factory().newEdge(id, source, target, model.addEdgeType(label), 1.0, true);
+                    edge.setLabel(label);
+                    readAttributes(in, values, edge);
+                    graph.addEdge(edge);
+                } else if (edge != null) {
+                    readAttributes(in, values, edge);
+                }
+                break;
+            }
+            case REMOVE_NODE: {
+                final Node node = (Node) readElement(in, values, graph);
+                if (node != null) {
+                    final String label = node.getLabel();
+                    final int storeId = node.getStoreId();
+                    graph.removeNode(node);
+                    gephiGraph.getLabelIndex().remove(label, storeId);
+                }
+                break;
+            }
+            case REMOVE_EDGE: {
+                final Edge edge = (Edge) readElement(in, values, graph);
+                if (edge != null) {
+                    graph.removeEdge(edge);
+                }
+                break;
+            }
+            case SET_ATTRIBUTE: {
+                final Element element = readElement(in, values, graph);
+                final String key = in.readUTF();
+                final Object value = values.read(in);
+                if (element != null && element.getTable().hasColumn(key)) {
+                    element.setAttribute(key, value);
+                }
+                break;
+            }
+            case REMOVE_ATTRIBUTE: {
+                final Element element = readElement(in, values, graph);
+                final String key = in.readUTF();
+                if (element != null && element.getTable().hasColumn(key)) {
+                    element.removeAttribute(key);
+                }
+                break;
+            }
+            case SET_VARIABLE:
+                graph.setAttribute(in.readUTF(), values.read(in));
+                break;
+            default:
+                throw new IOException("Unknown log record " + type);
+        }
+    }
+
+    private static Element readElement(DataInput in, Values values, Graph graph) throws IOException {
+        final boolean node = in.readBoolean();
+        final Object id = values.read(in);
+        return node ? graph.getNode(id) : graph.getEdge(id);
+    }
+
+    private static void readAttributes(DataInput in, Values values, Element element) throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final String key = in.readUTF();
+            final Object value = values.read(in);
+            if (element.getTable().hasColumn(key)) {
+                element.setAttribute(key, value);
+            }
+        }
+    }
+
+    /**
+     * Encodes attribute values and ids with the graphstore serialization,
+     * which covers every column type including the meta-property maps.
+     */
+    private static final class Values extends Serialization {
+
+        void write(DataOutput out, Object value) throws IOException {
+            serialize(out, value);
+        }
+
+        Object read(DataInput in) throws IOException {
+            try {
+                return deserialize(in);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
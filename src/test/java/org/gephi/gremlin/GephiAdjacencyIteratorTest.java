@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.gephi.graph.api.DirectedGraph;
+import org.gephi.graph.api.Node;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GephiAdjacencyIteratorTest {
+
+    private GephiGraph graph;
+    private GraphTraversalSource g;
+
+    @Before
+    public void setup() {
+        graph = GephiGraph.open();
+        g = graph.traversal();
+    }
+
+    @Test
+    public void shouldReturnTheEdgesOfTheGraphstore() {
+        Vertex marko = graph.addVertex(T.id, "marko");
+        Vertex vadas = graph.addVertex(T.id, "vadas");
+        Vertex lop = graph.addVertex(T.id, "lop");
+        marko.addEdge("knows", vadas, T.id, "e1");
+        marko.addEdge("knows", marko, T.id, "e2");
+        marko.addEdge("created", lop, T.id, "e3");
+        vadas.addEdge("knows", marko, T.id, "e4");
+        marko.addEdge("likes", marko, T.id, "e5");
+        lop.addEdge("likes", marko, T.id, "e6");
+        vadas.addEdge("created", lop, T.id, "e7");
+        marko.addEdge("knows", vadas, T.id, "e8");
+
+        String[][] labelSets = {{}, {"knows"}, {"likes", "knows"}, {"created", "missing"}, {"missing"}};
+        for (Direction direction : Direction.values()) {
+            for (String[] labels : labelSets) {
+                List<Edge> expected = baseline((GephiVertex) marko, direction, labels);
+                assertEquals(ids(expected.iterator()), ids(marko.edges(direction, labels)));
+                List<String> opposites = new ArrayList<>();
+                for (Edge edge : expected) {
+                    Node opposite = graph.getGraph().getOpposite(((GephiVertex) marko).element, ((GephiEdge) edge).element);
+                    opposites.add((String) opposite.getId());
+                }
+                Collections.sort(opposites);
+                assertEquals(opposites, ids(marko.vertices(direction, labels)));
+            }
+        }
+        assertEquals(7L, (long) g.V("marko").bothE().count().next());
+        assertEquals(2L, (long) g.V("marko").bothE("likes").count().next());
+    }
+
+    @Test
+    public void shouldSkipEdgesRemovedDuringIteration() {
+        int size = 3 * GephiBatchIterator.BATCH_SIZE;
+        Vertex hub = graph.addVertex(T.id, "hub");
+        for (int i = 0; i < size; i++) {
+            hub.addEdge(i % 2 == 0 ? "knows" : "likes", graph.addVertex(T.id, "v" + i), T.id, "e" + i);
+        }
+
+        // Remove each edge as it is returned, and another one ahead of it
+        Set<Object> removed = new HashSet<>();
+        Iterator<Edge> itr = hub.edges(Direction.OUT);
+        while (itr.hasNext()) {
+            Edge edge = itr.next();
+            assertTrue(removed.add(edge.id()));
+            edge.remove();
+            int ahead = Integer.parseInt(((String) edge.id()).substring(1)) - 5;
+            if (ahead >= 0 && removed.add("e" + ahead)) {
+                graph.edges("e" + ahead).next().remove();
+            }
+        }
+        assertEquals(size, removed.size());
+        assertFalse(hub.edges(Direction.BOTH).hasNext());
+
+        for (int i = 0; i < size; i++) {
+            graph.vertices("v" + i).next().addEdge("knows", hub);
+        }
+        g.V("hub").inE().drop().iterate();
+        assertEquals(0L, (long) g.E().count().next());
+
+        // Neighbors removed ahead of the cursor are not returned either
+        for (int i = 0; i < size; i++) {
+            hub.addEdge("knows", graph.vertices("v" + i).next());
+        }
+        removed.clear();
+        Iterator<Vertex> neighbors = hub.vertices(Direction.OUT);
+        while (neighbors.hasNext()) {
+            Vertex neighbor = neighbors.next();
+            assertTrue(removed.add(neighbor.id()));
+            neighbor.remove();
+            int ahead = Integer.parseInt(((String) neighbor.id()).substring(1)) - 5;
+            if (ahead >= 0 && removed.add("v" + ahead)) {
+                graph.vertices("v" + ahead).next().remove();
+            }
+        }
+        assertEquals(size, removed.size());
+        assertEquals(1L, (long) g.V().count().next());
+    }
+
+    private List<Edge> baseline(GephiVertex vertex, Direction direction, String[] labels) {
+        DirectedGraph store = (DirectedGraph) graph.getGraph();
+        List<org.gephi.graph.api.Edge> edges = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        if (labels.length == 0) {
+            types.add(null);
+        }
+        for (String label : labels) {
+            int type = graph.getGraphModel().getEdgeType(label);
+            if (type != -1) {
+                types.add(type);
+            }
+        }
+        for (Integer type : types) {
+            switch (direction) {
+                case IN:
+                    edges.addAll((type == null ? store.getInEdges(vertex.element) : store.getInEdges(vertex.element, type)).toCollection());
+                    break;
+                case OUT:
+                    edges.addAll((type == null ? store.getOutEdges(vertex.element) : store.getOutEdges(vertex.element, type)).toCollection());
+                    break;
+                default:
+                    edges.addAll((type == null ? store.getEdges(vertex.element) : store.getEdges(vertex.element, type)).toCollection());
+                    break;
+            }
+        }
+        List<Edge> list = new ArrayList<>();
+        for (org.gephi.graph.api.Edge edge : edges) {
+            list.add(graph.edge(edge));
+        }
+        return list;
+    }
+
+    private static List<String> ids(Iterator<? extends org.apache.tinkerpop.gremlin.structure.Element> itr) {
+        List<String> ids = new ArrayList<>();
+        itr.forEachRemaining(element -> ids.add((String) element.id()));
+        Collections.sort(ids);
+        return ids;
+    }
+}
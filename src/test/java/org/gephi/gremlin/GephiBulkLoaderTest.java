@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GephiBulkLoaderTest {
+
+    @Test
+    public void shouldLoadVerticesAndEdgesInBatches() {
+        GephiGraph graph = GephiGraph.open();
+        List<Long> flushed = new ArrayList<>();
+        try (GephiBulkLoader loader = graph.bulkLoader().batchSize(10).onFlush(l -> flushed.add(l.getVertexCount() + l.getEdgeCount())).create()) {
+            Vertex first = loader.addVertex(T.id, "v0", T.label, "person", "name", "v0", "age", 0);
+            for (int i = 1; i < 25; i++) {
+                loader.addVertex(T.id, "v" + i, T.label, "person", "name", "v" + i, "age", i);
+                loader.addEdge("v" + (i - 1), "knows", "v" + i, "weight", (double) i);
+            }
+            loader.addEdge(first, "likes", "v24");
+        }
+
+        GraphTraversalSource g = graph.traversal();
+        assertEquals(25L, (long) g.V().count().next());
+        assertEquals(25L, (long) g.V().hasLabel("person").count().next());
+        assertEquals(25L, (long) g.E().count().next());
+        assertEquals(12, (int) g.V("v12").values("age").next());
+        assertEquals("v13", g.V("v12").out("knows").values("name").next());
+        assertEquals(12.0, g.V("v11").outE("knows").values("weight").next());
+        assertEquals("v24", g.V("v0").out("likes").values("name").next());
+        assertTrue(g.V("v3").properties("name").hasNext());
+        assertEquals(50L, (long) flushed.get(flushed.size() - 1));
+    }
+
+    @Test
+    public void shouldReturnSharedWrappersOnceFlushed() {
+        GephiGraph graph = GephiGraph.open();
+        try (GephiBulkLoader loader = graph.bulkLoader().batchSize(1).create()) {
+            Vertex marko = loader.addVertex(T.id, "marko", T.label, "person");
+            Vertex vadas = loader.addVertex(T.id, "vadas", T.label, "person");
+            Edge knows = loader.addEdge(marko, "knows", vadas);
+            assertSame(marko, graph.vertices("marko").next());
+            assertSame(knows, marko.edges(Direction.OUT).next());
+            assertEquals(2L, (long) graph.traversal().V().hasLabel("person").count().next());
+        }
+    }
+
+    @Test
+    public void shouldRejectDuplicateIds() {
+        GephiGraph graph = GephiGraph.open();
+        graph.addVertex(T.id, "a");
+        GephiBulkLoader loader = graph.bulkLoader().create();
+        try {
+            loader.addVertex(T.id, "a");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        loader.addVertex(T.id, "b");
+        try {
+            loader.addVertex(T.id, "b");
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        loader.close();
+        assertEquals(2L, (long) graph.traversal().V().count().next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateIdsOnFlushWithoutChecks() {
+        GephiGraph graph = GephiGraph.open();
+        graph.addVertex(T.id, "a");
+        try (GephiBulkLoader loader = graph.bulkLoader().checkIds(false).create()) {
+            loader.addVertex(T.id, "a");
+        }
+    }
+
+    @Test
+    public void shouldDiscardFailedBatch() {
+        GephiGraph graph = GephiGraph.open();
+        graph.addVertex(T.id, "a");
+        GephiBulkLoader loader = graph.bulkLoader().checkIds(false).create();
+        loader.addVertex(T.id, "b", T.label, "person");
+        loader.addVertex(T.id, "c", T.label, "person");
+        loader.addEdge("b", "knows", "c");
+        loader.addVertex(T.id, "a", T.label, "person");
+        try {
+            loader.flush();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        GraphTraversalSource g = graph.traversal();
+        assertEquals(1L, (long) g.V().count().next());
+        assertEquals(0L, (long) g.V().hasLabel("person").count().next());
+        assertEquals(0L, (long) g.E().count().next());
+
+        loader.addVertex(T.id, "b", T.label, "person");
+        loader.close();
+        assertEquals(2L, (long) g.V().count().next());
+        assertEquals(1L, (long) g.V().hasLabel("person").count().next());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectOpenTransaction() {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_TRANSACTIONS, true);
+        GephiGraph graph = GephiGraph.open(configuration);
+        graph.addVertex(T.id, "a");
+        graph.bulkLoader().create();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.gephi.graph.api.Column;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GephiColumnCacheTest {
+
+    @Test
+    public void shouldResolveColumnsUntilOneIsAdded() {
+        GephiGraph graph = GephiGraph.open();
+        GephiColumnCache columns = graph.getNodeColumns();
+        Vertex marko = graph.addVertex("name", "marko");
+        Column name = columns.getColumn("name");
+        assertSame(graph.getGraphModel().getNodeTable().getColumn("name"), name);
+        assertSame(name, columns.getColumn("name"));
+        assertSame(name, columns.getColumn("NAME"));
+
+        // A missing key is cached until the column is added
+        assertNull(columns.getColumn("age"));
+        assertFalse(marko.property("age").isPresent());
+        marko.property("age", 29);
+        assertEquals(29, (int) marko.value("age"));
+        assertSame(graph.getGraphModel().getNodeTable().getColumn("age"), columns.getColumn("age"));
+        assertTrue(marko.keys().contains("age"));
+        assertNull(graph.getEdgeColumns().getColumn("age"));
+    }
+
+    @Test
+    public void shouldResolveMetaColumnsOfEachColumn() {
+        GephiGraph graph = GephiGraph.open();
+        GephiColumnCache columns = graph.getNodeColumns();
+        Vertex marko = graph.addVertex("name", "marko", "location", "santa fe");
+        Column location = columns.getColumn("location");
+        assertTrue(columns.getMetaColumnList(location).isEmpty());
+        assertNull(columns.getMetaColumn(location, "startTime"));
+
+        VertexProperty<String> property = marko.property("location");
+        property.property("startTime", 2005);
+        Column startTime = columns.getMetaColumn(location, "startTime");
+        assertSame(graph.getGraphModel().getNodeTable().getColumn(GephiVertexProperty.metaColumnId(location, "startTime")), startTime);
+        assertSame(startTime, columns.getMetaColumn(location, "STARTTIME"));
+        assertEquals(1, columns.getMetaColumnList(location).size());
+        assertTrue(columns.getMetaColumnList(columns.getColumn("name")).isEmpty());
+        assertEquals(2005, (int) marko.property("location").value("startTime"));
+    }
+}
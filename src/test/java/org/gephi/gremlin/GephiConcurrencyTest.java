@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GephiConcurrencyTest {
+
+    private static final int VERTICES = 2000;
+    private static final int EDGES = 10000;
+
+    private GephiGraph graph;
+
+    @Before
+    public void setup() {
+        graph = GephiGraph.open();
+        Random random = new Random(7);
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < VERTICES; i++) {
+            vertices.add(graph.addVertex(T.id, "v" + i, "name", "v" + i, "age", i % 100));
+        }
+        for (int i = 0; i < EDGES; i++) {
+            vertices.get(random.nextInt(VERTICES)).addEdge("knows", vertices.get(random.nextInt(VERTICES)), "weight", random.nextDouble());
+        }
+    }
+
+    @Test
+    public void shouldReadAndWriteConcurrently() throws Exception {
+        final int writers = 4;
+        final int readers = 4;
+        final int writes = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            futures.add(executor.submit(() -> {
+                GraphTraversalSource g = graph.traversal();
+                for (int i = 0; i < writes; i++) {
+                    Vertex vertex = graph.addVertex(T.id, "w" + writer + "_" + i, "name", "w" + i, "key" + i, i);
+                    vertex.addEdge("created", g.V("v" + (i % VERTICES)).next(), "since", i);
+                    g.V("v" + ((writer * writes + i) % VERTICES)).next().property("visited", true);
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            futures.add(executor.submit(() -> {
+                GraphTraversalSource g = graph.traversal();
+                for (int i = 0; i < 50; i++) {
+                    assertTrue(g.V().count().next() >= VERTICES);
+                    assertTrue(g.V().out("knows").values("name").count().next() >= EDGES);
+                    assertEquals(VERTICES / 100, (long) g.V().has("age", i % 100).count().next());
+                    g.V().limit(100).valueMap().toList();
+                    assertEquals(2, IteratorUtils.count(graph.vertices("v" + i, "v" + (i + 1))));
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        GraphTraversalSource g = graph.traversal();
+        assertEquals(VERTICES + writers * writes, (long) g.V().count().next());
+        assertEquals(EDGES + writers * writes, (long) g.E().count().next());
+        assertEquals(writers * writes, (long) g.E().hasLabel("created").count().next());
+        assertEquals(Math.min(VERTICES, writers * writes), (long) g.V().has("visited", true).count().next());
+    }
+
+    @Test
+    public void shouldScaleReadsWithThreads() throws Exception {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final int traversals = 200;
+        for (int threads = 1; threads <= Math.max(2, cores); threads *= 2) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    GraphTraversalSource g = graph.traversal();
+                    long sum = 0;
+                    for (int i = 0; i < traversals; i++) {
+                        sum += g.V("v" + i).out().out().values("age").count().next();
+                    }
+                    return sum;
+                });
+            }
+            long start = System.nanoTime();
+            List<Long> sums = new ArrayList<>();
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                sums.add(future.get());
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+
+            assertTrue(sums.stream().allMatch(sums.get(0)::equals));
+            System.out.println(String.format("%d reader thread(s) on %d core(s): %.0f traversals/s",
+                    threads, cores, threads * traversals * 1e9 / elapsed));
+        }
+    }
+}
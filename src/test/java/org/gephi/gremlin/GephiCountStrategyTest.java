@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.function.Function;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GephiCountStrategyTest {
+
+    private GephiGraph graph;
+    private GraphTraversalSource g;
+
+    @Before
+    public void setup() {
+        graph = GephiGraph.open();
+        g = graph.traversal();
+        Vertex marko = graph.addVertex(T.id, "marko");
+        Vertex vadas = graph.addVertex(T.id, "vadas");
+        Vertex josh = graph.addVertex(T.id, "josh");
+        Vertex lop = graph.addVertex(T.id, "lop", T.label, "software");
+        marko.addEdge("knows", vadas);
+        marko.addEdge("knows", josh);
+        marko.addEdge("knows", josh);
+        marko.addEdge("knows", marko);
+        marko.addEdge("created", lop);
+        josh.addEdge("created", lop);
+        josh.addEdge("knows", marko);
+        lop.addEdge("uses", lop);
+    }
+
+    @Test
+    public void shouldCountDegreesAsTheEdgesReturned() {
+        for (Vertex vertex : IteratorUtils.list(graph.vertices())) {
+            for (Direction direction : Direction.values()) {
+                for (String[] labels : new String[][]{{}, {"knows"}, {"created", "knows"}, {"knows", "knows"}, {"missing"}}) {
+                    assertEquals(IteratorUtils.count(vertex.edges(direction, labels)), ((GephiVertex) vertex).degree(direction, labels));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldCountIncidentEdgesFromDegrees() {
+        // A labelled vertex step is not rewritten, giving the reference results
+        assertCounted(t -> t.outE().as("a").count(), t -> t.outE().count());
+        assertCounted(t -> t.in().as("a").count(), t -> t.in().count());
+        assertCounted(t -> t.bothE().as("a").count(), t -> t.bothE().count());
+        assertCounted(t -> t.both("knows").as("a").count(), t -> t.both("knows").count());
+        assertCounted(t -> t.inE("created", "uses").as("a").count(), t -> t.inE("created", "uses").count());
+        assertCounted(t -> t.both().barrier().outE().as("a").count(), t -> t.both().barrier().outE().count());
+        assertCounted(t -> t.both().outE().as("a").limit(5).count(), t -> t.both().outE().limit(5).count());
+        assertCounted(t -> t.where(__.outE().as("a").count().is(P.gt(2))).id(), t -> t.where(__.outE().count().is(P.gt(2))).id());
+        assertCounted(t -> t.where(__.both().as("a").count().is(0)).id(), t -> t.where(__.both().count().is(0)).id());
+
+        Traversal.Admin<?, ?> traversal = g.V("marko").both("knows").count().asAdmin();
+        traversal.applyStrategies();
+        assertEquals(2, traversal.getSteps().size());
+        assertTrue(traversal.getEndStep() instanceof GephiDegreeCountStep);
+        assertEquals(5L, traversal.next());
+
+        traversal = g.V().where(__.outE().count().is(P.gt(100))).asAdmin();
+        traversal.applyStrategies();
+        assertTrue(traversal.toString().contains("GephiDegreeCountStep(OUT,101)"));
+
+        g.V("marko").next().remove();
+        assertEquals(0L, (long) g.V("josh").in("knows").count().next());
+    }
+
+    @Test
+    public void shouldNotRewriteProfiledTraversals() {
+        Traversal.Admin<?, ?> traversal = g.V("marko").both("knows").count().profile().asAdmin();
+        traversal.applyStrategies();
+        assertFalse(traversal.toString().contains("GephiDegreeCountStep"));
+    }
+
+    @Test
+    public void shouldCountVerticesAndEdgesFromStore() {
+        Traversal.Admin<?, ?> traversal = g.V().count().asAdmin();
+        traversal.applyStrategies();
+        assertTrue(traversal.getStartStep() instanceof GephiCountStep);
+        assertEquals(4L, traversal.next());
+        assertEquals(8L, (long) g.E().count().next());
+        g.V("josh").next().remove();
+        assertEquals(3L, (long) g.V().count().next());
+        assertEquals(4L, (long) g.E().count().next());
+    }
+
+    private void assertCounted(Function<GraphTraversal<Vertex, Vertex>, GraphTraversal<?, ?>> expected, Function<GraphTraversal<Vertex, Vertex>, GraphTraversal<?, ?>> actual) {
+        assertEquals(expected.apply(g.V()).toList(), actual.apply(g.V()).toList());
+        assertEquals(expected.apply(g.V("marko")).toList(), actual.apply(g.V("marko")).toList());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GephiEdgeLookupStrategyTest {
+
+    private static final String[][] LABELS = {{}, {"knows"}, {"created", "knows"}, {"missing"}};
+
+    private GephiGraph graph;
+    private GraphTraversalSource g;
+
+    @Before
+    public void setup() {
+        graph = GephiGraph.open();
+        g = graph.traversal();
+        Vertex marko = graph.addVertex(T.id, "marko");
+        Vertex vadas = graph.addVertex(T.id, "vadas");
+        Vertex josh = graph.addVertex(T.id, "josh");
+        Vertex lop = graph.addVertex(T.id, "lop", T.label, "software");
+        marko.addEdge("knows", vadas);
+        marko.addEdge("knows", josh);
+        marko.addEdge("knows", josh);
+        marko.addEdge("knows", marko);
+        marko.addEdge("created", lop);
+        josh.addEdge("created", lop);
+        josh.addEdge("knows", marko);
+        lop.addEdge("uses", lop);
+    }
+
+    @Test
+    public void shouldFindEdgesBetweenVertices() {
+        for (Vertex vertex : IteratorUtils.list(graph.vertices())) {
+            for (Vertex other : IteratorUtils.list(graph.vertices())) {
+                for (Direction direction : Direction.values()) {
+                    for (String[] labels : LABELS) {
+                        List<Edge> expected = IteratorUtils.list(IteratorUtils.filter(vertex.edges(direction, labels),
+                                edge -> (edge.outVertex().equals(vertex) ? edge.inVertex() : edge.outVertex()).equals(other)));
+                        List<Edge> actual = IteratorUtils.list(((GephiVertex) vertex).edges(direction, other, labels));
+                        assertEquals(sorted(expected), sorted(actual));
+                        assertEquals(!expected.isEmpty(), ((GephiVertex) vertex).hasEdge(direction, other, labels));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldLookUpEdgesBetweenVertices() {
+        for (String id : new String[]{"marko", "josh", "lop", "missing"}) {
+            // A labelled vertex step is not rewritten, giving the reference results
+            assertLookedUp(t -> t.outE("knows").as("a").where(__.inV().hasId(id)), t -> t.outE("knows").where(__.inV().hasId(id)));
+            assertLookedUp(t -> t.inE().as("a").where(__.outV().hasId(id)), t -> t.inE().where(__.outV().hasId(id)));
+            assertLookedUp(t -> t.bothE().as("a").where(__.otherV().hasId(id)), t -> t.bothE().where(__.otherV().hasId(id)));
+            assertLookedUp(t -> t.outE("created", "uses").as("a").where(__.otherV().hasId(id)), t -> t.outE("created", "uses").where(__.otherV().hasId(id)));
+            assertLookedUp(t -> t.out().as("a").hasId(id), t -> t.out().hasId(id));
+            assertLookedUp(t -> t.in("knows").as("a").hasId(id), t -> t.in("knows").hasId(id));
+            assertLookedUp(t -> t.both().as("a").hasId(id), t -> t.both().hasId(id));
+            assertLookedUp(t -> t.where(__.out().as("a").hasId(id)).id(), t -> t.where(__.out().hasId(id)).id());
+        }
+
+        Traversal.Admin<?, ?> traversal = g.V("marko").outE("knows").where(__.inV().hasId("josh")).asAdmin();
+        traversal.applyStrategies();
+        assertEquals(2, traversal.getSteps().size());
+        assertTrue(traversal.getEndStep() instanceof GephiEdgeLookupStep);
+        assertEquals(2, IteratorUtils.count(traversal));
+
+        // Not the vertex at the other end of the edges
+        traversal = g.V("marko").outE().where(__.outV().hasId("marko")).asAdmin();
+        traversal.applyStrategies();
+        assertFalse(traversal.toString().contains("GephiEdgeLookupStep"));
+        assertEquals(5, IteratorUtils.count(traversal));
+
+        g.V("josh").next().remove();
+        assertFalse(g.V("marko").out().hasId("josh").hasNext());
+    }
+
+    private void assertLookedUp(Function<GraphTraversal<Vertex, Vertex>, GraphTraversal<?, ?>> expected, Function<GraphTraversal<Vertex, Vertex>, GraphTraversal<?, ?>> actual) {
+        assertEquals(sorted(expected.apply(g.V()).toList()), sorted(actual.apply(g.V()).toList()));
+        assertEquals(sorted(expected.apply(g.V("marko")).toList()), sorted(actual.apply(g.V("marko")).toList()));
+    }
+
+    private static List<String> sorted(List<?> list) {
+        List<String> strings = list.stream().map(Object::toString).collect(Collectors.toList());
+        Collections.sort(strings);
+        return strings;
+    }
+}
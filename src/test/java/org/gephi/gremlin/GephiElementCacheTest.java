@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GephiElementCacheTest {
+
+    @Test
+    public void shouldShareWrappersOfStoredElements() {
+        GephiGraph graph = GephiGraph.open();
+        GraphTraversalSource g = graph.traversal();
+        Vertex marko = graph.addVertex(T.id, "marko", "name", "marko");
+        Vertex vadas = graph.addVertex(T.id, "vadas", "name", "vadas");
+        Edge knows = marko.addEdge("knows", vadas);
+
+        assertSame(marko, g.V("marko").next());
+        assertSame(marko, graph.vertices().next());
+        assertSame(vadas, marko.vertices(Direction.OUT).next());
+        assertSame(vadas, knows.inVertex());
+        assertSame(knows, marko.edges(Direction.OUT).next());
+        assertSame(knows, g.E().next());
+        assertSame(marko, g.V().has("name", "marko").next());
+    }
+
+    @Test
+    public void shouldWrapElementsReusingStoreIds() {
+        GephiGraph graph = GephiGraph.open();
+        Vertex marko = graph.addVertex(T.id, "marko");
+        Vertex vadas = graph.addVertex(T.id, "vadas");
+        Edge knows = marko.addEdge("knows", vadas);
+        int storeId = ((GephiVertex) vadas).element.getStoreId();
+        vadas.remove();
+        assertFalse(marko.edges(Direction.BOTH).hasNext());
+
+        Vertex josh = graph.addVertex(T.id, "josh");
+        assertEquals(storeId, ((GephiVertex) josh).element.getStoreId());
+        assertNotSame(vadas, josh);
+        assertEquals("josh", graph.vertices("josh").next().id());
+        assertSame(josh, graph.vertices("josh").next());
+
+        Edge created = marko.addEdge("created", josh);
+        assertNotSame(knows, created);
+        assertSame(created, graph.edges().next());
+    }
+
+    @Test
+    public void shouldBoundRetainedWrappers() {
+        GephiGraph graph = GephiGraph.open();
+        GephiBulkLoader loader = graph.bulkLoader().create();
+        Vertex previous = loader.addVertex(T.id, "v0");
+        for (int i = 1; i < 3 * GephiElementCache.CAPACITY; i++) {
+            Vertex vertex = loader.addVertex(T.id, "v" + i);
+            loader.addEdge(previous, "next", vertex);
+            previous = vertex;
+        }
+        loader.close();
+
+        assertEquals(3 * GephiElementCache.CAPACITY, IteratorUtils.count(graph.vertices()));
+        assertEquals(3 * GephiElementCache.CAPACITY - 1, IteratorUtils.count(graph.edges()));
+        assertTrue(graph.getElementCache().size() <= 2 * GephiElementCache.CAPACITY);
+        assertSame(graph.vertices("v1").next(), graph.vertices("v1").next());
+    }
+}
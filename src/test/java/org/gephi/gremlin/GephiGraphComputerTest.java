@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.tinkerpop.gremlin.process.computer.ComputerResult;
+import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.clustering.peerpressure.PeerPressureVertexProgram;
+import org.apache.tinkerpop.gremlin.process.computer.ranking.pagerank.PageRankVertexProgram;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GephiGraphComputerTest {
+
+    @Test
+    public void shouldExecutePageRankOnEveryWorkerCount() throws Exception {
+        for (int workers = 1; workers <= 3; workers++) {
+            GephiGraph graph = GephiGraph.open();
+            Vertex a = graph.addVertex("name", "a");
+            Vertex b = graph.addVertex("name", "b");
+            Vertex c = graph.addVertex("name", "c");
+            a.addEdge("knows", b);
+            b.addEdge("knows", c);
+            c.addEdge("knows", a);
+
+            ComputerResult result = graph.compute().workers(workers).program(PageRankVertexProgram.build().create(graph)).submit().get();
+            result.graph().vertices().forEachRemaining(vertex -> assertEquals(1.0, vertex.<Double>value(PageRankVertexProgram.PAGE_RANK), 0.0001));
+            assertEquals(Collections.singleton("name"), graph.vertices().next().keys());
+            assertNull(graph.getGraphComputerView());
+        }
+    }
+
+    @Test
+    public void shouldExecutePeerPressure() throws Exception {
+        GephiGraph graph = GephiGraph.open();
+        for (int i = 0; i < 2; i++) {
+            Vertex a = graph.addVertex();
+            Vertex b = graph.addVertex();
+            Vertex c = graph.addVertex();
+            a.addEdge("knows", b);
+            b.addEdge("knows", c);
+            c.addEdge("knows", a);
+        }
+
+        ComputerResult result = graph.compute().workers(2).program(PeerPressureVertexProgram.build().create(graph)).submit().get();
+        Set<Object> clusters = new HashSet<>();
+        result.graph().vertices().forEachRemaining(vertex -> clusters.add(vertex.value(PeerPressureVertexProgram.CLUSTER)));
+        assertEquals(2, clusters.size());
+    }
+
+    @Test
+    public void shouldExecuteNativeProgramsLikeMessagePassing() throws Exception {
+        GephiGraph graph = GephiGraph.open();
+        Random random = new Random(42);
+        List<Vertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            vertices.add(graph.addVertex());
+        }
+        for (int i = 0; i < 600; i++) {
+            vertices.get(random.nextInt(vertices.size())).addEdge("knows", vertices.get(random.nextInt(vertices.size())));
+        }
+
+        assertSameResults(graph, () -> PageRankVertexProgram.build().create(graph), PageRankVertexProgram.PAGE_RANK, PageRankVertexProgram.EDGE_COUNT);
+        assertSameResults(graph, () -> PageRankVertexProgram.build().alpha(0.7).iterations(5).vertexCount(200).create(graph), PageRankVertexProgram.PAGE_RANK);
+        assertSameResults(graph, () -> PeerPressureVertexProgram.build().create(graph), PeerPressureVertexProgram.CLUSTER, PeerPressureVertexProgram.VOTE_STRENGTH);
+        assertSameResults(graph, () -> PeerPressureVertexProgram.build().distributeVote(true).create(graph), PeerPressureVertexProgram.CLUSTER, PeerPressureVertexProgram.VOTE_STRENGTH);
+    }
+
+    private static void assertSameResults(GephiGraph graph, Supplier<VertexProgram> program, String... keys) throws Exception {
+        ComputerResult nativeResult = graph.compute().workers(3).program(program.get()).submit().get();
+        ComputerResult result = graph.compute().configure(GephiGraphComputer.GREMLIN_GEPHIGRAPH_COMPUTER_NATIVE_PROGRAMS, false).program(program.get()).submit().get();
+        assertEquals(result.memory().getIteration(), nativeResult.memory().getIteration());
+        assertEquals(result.memory().asMap(), nativeResult.memory().asMap());
+        result.graph().vertices().forEachRemaining(vertex -> {
+            Vertex nativeVertex = nativeResult.graph().vertices(vertex.id()).next();
+            for (String key : keys) {
+                Object value = vertex.value(key);
+                if (value instanceof Double) {
+                    assertEquals((Double) value, nativeVertex.<Double>value(key), 0.000001);
+                } else {
+                    assertEquals(value, nativeVertex.value(key));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void shouldTraverseOnComputer() {
+        GephiGraph graph = GephiGraph.open();
+        Vertex marko = graph.addVertex("name", "marko");
+        marko.addEdge("knows", graph.addVertex("name", "vadas"));
+        marko.addEdge("knows", graph.addVertex("name", "josh"));
+
+        List<Object> names = graph.traversal(GraphTraversalSource.computer()).V().out("knows").values("name").order().toList();
+        assertEquals(2, names.size());
+        assertEquals("josh", names.get(0));
+        assertEquals("vadas", names.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectLessThanOneWorker() {
+        GephiGraph.open().compute().workers(0);
+    }
+}
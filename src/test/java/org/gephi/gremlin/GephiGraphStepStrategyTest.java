@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GephiGraphStepStrategyTest {
+
+    private GephiGraph graph;
+    private GraphTraversalSource g;
+
+    @Before
+    public void setup() {
+        graph = GephiGraph.open();
+        g = graph.traversal();
+        Vertex marko = graph.addVertex("name", "marko", "age", 29);
+        Vertex vadas = graph.addVertex("name", "vadas", "age", 27);
+        graph.addVertex("name", "josh", "age", 32);
+        graph.addVertex(T.label, "software", "name", "lop");
+        marko.addEdge("knows", vadas, "since", "2010");
+    }
+
+    @Test
+    public void shouldFoldHasIntoGraphStep() {
+        Traversal.Admin<?, ?> traversal = g.V().has("name", "marko").has("age", 29).asAdmin();
+        traversal.applyStrategies();
+        assertEquals(1, traversal.getSteps().size());
+        GephiGraphStep<?, ?> step = (GephiGraphStep<?, ?>) traversal.getStartStep();
+        assertEquals(2, step.getHasContainers().size());
+    }
+
+    @Test
+    public void shouldLookupVerticesAndEdgesFromIndex() {
+        assertEquals("marko", g.V().has("name", "marko").values("name").next());
+        assertEquals(0L, (long) g.V().has("name", "marko").has("age", 30).count().next());
+        assertEquals(1L, (long) g.E().has("since", "2010").count().next());
+    }
+
+    @Test
+    public void shouldFilterValuesOfAnotherNumberType() {
+        assertEquals("josh", g.V().has("age", 32L).values("name").next());
+    }
+
+    @Test
+    public void shouldReleaseTableLockOnUnknownValue() throws InterruptedException {
+        assertEquals(0L, (long) g.V().has("name", "peter").count().next());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> graph.addVertex("name", "peter"));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1L, (long) g.V().has("name", "peter").count().next());
+    }
+
+    @Test
+    public void shouldLookupVerticesFromLabelIndex() {
+        assertEquals("lop", g.V().hasLabel("software").values("name").next());
+        assertEquals(3L, (long) g.V().hasLabel("vertex").has("age").count().next());
+        assertEquals(4L, (long) g.V().hasLabel("vertex", "software").toList().size());
+        assertEquals(0L, (long) g.V().hasLabel("person").count().next());
+    }
+
+    @Test
+    public void shouldWalkLabelIndexInBatches() {
+        for (int i = 0; i < 3 * GephiBatchIterator.BATCH_SIZE; i++) {
+            graph.addVertex(T.label, i % 2 == 0 ? "person" : "vertex", "index", i);
+        }
+        assertEquals("marko", g.V().hasLabel("vertex").limit(1).values("name").next());
+
+        // A vertex removed ahead of the cursor is skipped, the others are returned once in order
+        int expected = 0;
+        Iterator<Vertex> itr = g.V().hasLabel("person");
+        while (itr.hasNext()) {
+            assertEquals(expected, (int) itr.next().value("index"));
+            if (expected == GephiBatchIterator.BATCH_SIZE) {
+                g.V().has("index", 2 * GephiBatchIterator.BATCH_SIZE).next().remove();
+            }
+            expected += expected + 2 == 2 * GephiBatchIterator.BATCH_SIZE ? 4 : 2;
+        }
+        assertEquals(3 * GephiBatchIterator.BATCH_SIZE, expected);
+        assertEquals(3 * GephiBatchIterator.BATCH_SIZE / 2 - 1, (long) g.V().hasLabel("person").count().next());
+    }
+
+    @Test
+    public void shouldIndexSparseAndDenseLabelsAcrossChunks() {
+        GephiGraph large = GephiGraph.open();
+        GephiBulkLoader loader = large.bulkLoader().create();
+        int size = 3 * 65536;
+        for (int i = 0; i < size; i++) {
+            loader.addVertex(T.id, "v" + i, T.label, i % 1000 == 0 ? "sparse" : i < 70000 ? "dense" : "vertex", "index", i);
+        }
+        loader.close();
+        GraphTraversalSource lg = large.traversal();
+        assertEquals(size / 1000 + 1, (long) lg.V().hasLabel("sparse").count().next());
+        assertEquals(70000 - 70, (long) lg.V().hasLabel("dense").count().next());
+        assertEquals(70000 - 70, IteratorUtils.count(GephiStoreIterator.vertices(large, "dense")));
+
+        // Removing most of a dense chunk turns it back into a sorted array
+        for (int i = 0; i < 65536; i++) {
+            if (i % 1000 != 0 && i % 40 != 1) {
+                large.vertices("v" + i).next().remove();
+            }
+        }
+        List<Object> dense = lg.V().hasLabel("dense").values("index").toList();
+        assertEquals(1639 + 4460, dense.size());
+        assertEquals(1, dense.get(0));
+        assertEquals(65521, dense.get(1638));
+        assertEquals(65536, dense.get(1639));
+        assertEquals(size / 1000 + 1, IteratorUtils.count(GephiStoreIterator.vertices(large, "sparse")));
+    }
+
+    @Test
+    public void shouldCountVerticesFromLabelIndex() {
+        Traversal.Admin<?, ?> traversal = g.V().hasLabel("vertex", "software").count().asAdmin();
+        traversal.applyStrategies();
+        assertTrue(traversal.getStartStep() instanceof GephiCountStep);
+        assertEquals(4L, traversal.next());
+
+        g.V().hasLabel("software").next().remove();
+        assertEquals(0L, (long) g.V().hasLabel("software").count().next());
+        assertEquals(3L, (long) g.V().hasLabel("vertex").count().next());
+    }
+
+    @Test
+    public void shouldNotFoldProfiledCounts() {
+        Traversal.Admin<?, ?> traversal = g.V().count().profile().asAdmin();
+        traversal.applyStrategies();
+        assertTrue(traversal.getStartStep() instanceof GephiGraphStep);
+        assertFalse(traversal.toString().contains("GephiCountStep"));
+
+        traversal = g.V().values("age").sum().profile().asAdmin();
+        traversal.applyStrategies();
+        assertFalse(traversal.toString().contains("GephiColumnReduceStep"));
+    }
+
+    @Test
+    public void shouldReduceNumericColumns() {
+        Vertex marko = g.V().has("name", "marko").next();
+        Vertex josh = g.V().has("name", "josh").next();
+        josh.property("weight", 72.5d);
+        marko.property("weight", 80d);
+        josh.property("visits", 3000000000L);
+        marko.property("visits", 2L);
+        marko.property("score", 1.5f);
+        josh.property("score", 0.25f);
+        josh.addEdge("created", g.V().has("name", "lop").next(), "year", 2009, "weight", 0.4d);
+
+        // A labelled graph step is not folded, giving the reference results
+        for (String key : new String[]{"age", "weight", "visits", "score", "year", "missing"}) {
+            assertReduced(g.V().as("a").values(key).sum().toList(), g.V().values(key).sum().asAdmin());
+            assertReduced(g.V().as("a").values(key).min().toList(), g.V().values(key).min().asAdmin());
+            assertReduced(g.V().as("a").values(key).max().toList(), g.V().values(key).max().asAdmin());
+            assertReduced(g.V().as("a").values(key).mean().toList(), g.V().values(key).mean().asAdmin());
+            assertReduced(g.E().as("a").values(key).sum().toList(), g.E().values(key).sum().asAdmin());
+            assertReduced(g.E().as("a").values(key).mean().toList(), g.E().values(key).mean().asAdmin());
+        }
+
+        g.V().properties("visits").drop().iterate();
+        assertReduced(g.V().as("a").values("visits").sum().toList(), g.V().values("visits").sum().asAdmin());
+        assertReduced(g.V().as("a").values("visits").max().toList(), g.V().values("visits").max().asAdmin());
+        assertReduced(g.V().as("a").values("visits").mean().toList(), g.V().values("visits").mean().asAdmin());
+
+        Traversal.Admin<?, ?> traversal = g.V().values("age").sum().asAdmin();
+        traversal.applyStrategies();
+        assertTrue(traversal.getStartStep() instanceof GephiColumnReduceStep);
+        assertEquals(1, traversal.getSteps().size());
+
+        traversal = g.V().values("name").max().asAdmin();
+        traversal.applyStrategies();
+        assertTrue(traversal.getStartStep() instanceof GephiGraphStep);
+    }
+
+    @Test
+    public void shouldReadColumnsIntoPrimitiveArrays() {
+        long[] ages = graph.readLongs(Vertex.class, "age");
+        Arrays.sort(ages);
+        assertArrayEquals(new long[]{27, 29, 32}, ages);
+        g.E().next().property("weight", 0.5d);
+        assertArrayEquals(new double[]{0.5}, graph.readDoubles(Edge.class, "weight"), 0);
+        assertEquals(0, graph.readDoubles(Vertex.class, "missing").length);
+
+        GephiVertex marko = (GephiVertex) g.V().has("name", "marko").next();
+        assertEquals(29, marko.getInt("age"));
+        assertEquals(29L, marko.getLong("age"));
+        assertEquals(29d, marko.getDouble("age"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonNumericPrimitiveReads() {
+        ((GephiVertex) g.V().has("name", "marko").next()).getDouble("name");
+    }
+
+    private static void assertReduced(List<?> expected, Traversal.Admin<?, ?> traversal) {
+        List<?> actual = traversal.toList();
+        assertEquals(expected, actual);
+        if (!expected.isEmpty()) {
+            assertEquals(expected.get(0).getClass(), actual.get(0).getClass());
+        }
+    }
+}
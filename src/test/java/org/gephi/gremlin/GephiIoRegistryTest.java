@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.io.IoCore;
+import org.apache.tinkerpop.shaded.kryo.Kryo;
+import org.apache.tinkerpop.shaded.kryo.io.Input;
+import org.apache.tinkerpop.shaded.kryo.io.Output;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class GephiIoRegistryTest {
+
+    @Test
+    public void shouldStreamGraphThroughGryo() {
+        byte[] bytes = shouldStreamGraphThroughGryo(GephiGraph.open());
+
+        // Without compression the plain graphstore serialization follows the Kryo reference marker
+        assertNotEquals(GephiBlockChannel.MAGIC, ByteBuffer.wrap(bytes).getInt(1));
+    }
+
+    @Test
+    public void shouldStreamCompressedGraphThroughGryo() {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_COMPRESSION, "snappy");
+        byte[] bytes = shouldStreamGraphThroughGryo(GephiGraph.open(configuration));
+        assertEquals(GephiBlockChannel.MAGIC, ByteBuffer.wrap(bytes).getInt(1));
+    }
+
+    private byte[] shouldStreamGraphThroughGryo(GephiGraph graph) {
+        Vertex marko = graph.addVertex(T.id, "marko", "name", "marko");
+        for (int i = 0; i < 20000; i++) {
+            marko.addEdge("knows", graph.addVertex("index", i));
+        }
+        Kryo kryo = graph.io(IoCore.gryo()).mapper().create().createMapper();
+
+        // Buffers much smaller than the graph
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Output output = new Output(bytes, 1024);
+        kryo.writeObject(output, graph);
+        kryo.writeObject(output, "after");
+        output.close();
+
+        Input input = new Input(new ByteArrayInputStream(bytes.toByteArray()), 1024);
+        GephiGraph read = kryo.readObject(input, GephiGraph.class);
+        assertEquals("after", kryo.readObject(input, String.class));
+        assertEquals(20001L, (long) read.traversal().V().count().next());
+        assertEquals(20000L, (long) read.traversal().V("marko").out("knows").count().next());
+        assertEquals("marko", read.traversal().V("marko").values("name").next());
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GephiPersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Configuration configuration(File file, String format) {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_GRAPH_LOCATION, file.getAbsolutePath());
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_GRAPH_FORMAT, format);
+        return configuration;
+    }
+
+    private Configuration logConfiguration(File file) {
+        Configuration configuration = configuration(file, GephiGraph.GEPHI_FORMAT);
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_WAL, true);
+        return configuration;
+    }
+
+    @Test
+    public void shouldPersistInNativeFormat() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        GephiGraph graph = GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT));
+        StringBuilder name = new StringBuilder("\u00e9\u4e2d");
+        for (int i = 0; i < 100000; i++) {
+            name.append('x');
+        }
+        Vertex marko = graph.addVertex(T.id, "marko", T.label, "person", "name", "marko", "age", 29);
+        Vertex lop = graph.addVertex(T.id, "lop", T.label, "software", "name", name.substring(0, 20000));
+        marko.addEdge("created", lop, "weight", 0.4);
+        for (int i = 0; i < 5000; i++) {
+            graph.addVertex("index", i).addEdge("knows", marko);
+        }
+        graph.variables().set("owner", "gephi");
+        graph.close();
+        assertTrue(file.length() > 0);
+
+        GephiGraph reopened = GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT));
+        GraphTraversalSource g = reopened.traversal();
+        assertEquals(5002L, (long) g.V().count().next());
+        assertEquals(5001L, (long) g.E().count().next());
+        assertEquals(29, (int) g.V("marko").values("age").next());
+        assertEquals(name.substring(0, 20000), g.V("lop").values("name").next());
+        assertEquals(0.4, g.V("marko").outE("created").values("weight").next());
+        assertEquals(5000L, (long) g.V("marko").in("knows").count().next());
+        assertEquals(1L, (long) g.V().hasLabel("software").count().next());
+        assertEquals("gephi", reopened.variables().get("owner").get());
+
+        reopened.addVertex(T.id, "josh");
+        reopened.close();
+        assertEquals(5003L, (long) GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT)).traversal().V().count().next());
+    }
+
+    @Test
+    public void shouldPersistCompressedSnapshots() throws Exception {
+        File plain = new File(folder.getRoot(), "plain.gephi");
+        writeSnapshotGraph(configuration(plain, GephiGraph.GEPHI_FORMAT));
+        for (String codec : new String[]{"snappy", "deflate"}) {
+            File file = new File(folder.getRoot(), codec + ".gephi");
+            Configuration configuration = configuration(file, GephiGraph.GEPHI_FORMAT);
+            configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_COMPRESSION, codec);
+            writeSnapshotGraph(configuration);
+            assertTrue(codec, file.length() * 2 < plain.length());
+
+            // The codec is read from the snapshot, not from the configuration
+            GraphTraversalSource g = GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT)).traversal();
+            assertEquals(10001L, (long) g.V().count().next());
+            assertEquals(10000L, (long) g.V("hub").in("knows").count().next());
+            assertEquals(1L, (long) g.V().has("index", 9999).count().next());
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(raf.length() / 2);
+                int b = raf.read();
+                raf.seek(raf.length() / 2);
+                raf.write(b ^ 0xFF);
+            }
+            try {
+                GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT));
+                fail("Corrupted block read with " + codec);
+            } catch (RuntimeException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void shouldRejectOversizedBlocks() throws Exception {
+        File file = new File(folder.getRoot(), "oversized.gephi");
+        Configuration configuration = configuration(file, GephiGraph.GEPHI_FORMAT);
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_COMPRESSION, "snappy");
+        writeSnapshotGraph(configuration);
+
+        // A corrupted header must not make the reader allocate up to 2 GB
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(5);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+        try {
+            GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT));
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+        }
+    }
+
+    private void writeSnapshotGraph(Configuration configuration) {
+        GephiGraph graph = GephiGraph.open(configuration);
+        Vertex hub = graph.addVertex(T.id, "hub", T.label, "person");
+        for (int i = 0; i < 10000; i++) {
+            graph.addVertex(T.label, "person", "index", i, "country", "France").addEdge("knows", hub);
+        }
+        graph.close();
+    }
+
+    @Test
+    public void shouldReplayLogWithoutClose() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        GephiGraph graph = GephiGraph.open(logConfiguration(file));
+        Vertex marko = graph.addVertex(T.id, "marko", T.label, "person", "name", "marko", "age", 29);
+        Vertex vadas = graph.addVertex("name", "vadas");
+        Vertex peter = graph.addVertex("name", "peter");
+        marko.addEdge("knows", vadas, "weight", 0.5);
+        marko.addEdge("knows", peter).remove();
+        marko.property("age", 30);
+        marko.property("name").property("source", "import");
+        vadas.property("name").remove();
+        peter.remove();
+        graph.variables().set("owner", "gephi");
+        try (GephiBulkLoader loader = graph.bulkLoader().create()) {
+            loader.addEdge(loader.addVertex(T.id, "lop", "lang", "java"), "created", "marko");
+        }
+
+        // Simulates a crash, the snapshot is never written
+        GephiGraph reopened = GephiGraph.open(logConfiguration(file));
+        assertFalse(file.exists());
+        GraphTraversalSource g = reopened.traversal();
+        assertEquals(3L, (long) g.V().count().next());
+        assertEquals(2L, (long) g.E().count().next());
+        assertEquals(30, (int) g.V("marko").values("age").next());
+        assertEquals("import", g.V("marko").next().property("name").value("source"));
+        assertFalse(g.V(vadas.id()).has("name").hasNext());
+        assertEquals(0.5, g.V("marko").outE("knows").values("weight").next());
+        assertEquals("java", g.V("marko").in("created").values("lang").next());
+        assertEquals(1L, (long) g.V().hasLabel("person").count().next());
+        assertEquals("gephi", reopened.variables().get("owner").get());
+
+        // Automatic ids continue after the replayed ones
+        assertNotEquals(vadas.id(), reopened.addVertex().id());
+        assertNotEquals(peter.id(), reopened.addVertex().id());
+        reopened.close();
+        assertEquals(5L, (long) GephiGraph.open(logConfiguration(file)).traversal().V().count().next());
+    }
+
+    @Test
+    public void shouldIgnoreIncompleteLogRecord() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        GephiGraph graph = GephiGraph.open(logConfiguration(file));
+        graph.addVertex(T.id, "marko");
+        graph.addVertex(T.id, "vadas");
+
+        // Simulates a crash, closing would snapshot the graph and empty the log
+        File log = new File(file.getAbsolutePath() + GephiWriteAheadLog.SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        GephiGraph reopened = GephiGraph.open(logConfiguration(file));
+        assertEquals(1L, (long) reopened.traversal().V().count().next());
+        reopened.addVertex(T.id, "josh");
+        reopened.close();
+
+        GraphTraversalSource g = GephiGraph.open(logConfiguration(file)).traversal();
+        assertEquals(2L, (long) g.V().count().next());
+        assertTrue(g.V("josh").hasNext());
+    }
+
+    @Test
+    public void shouldCheckpointAndTruncateLog() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        File log = new File(file.getAbsolutePath() + GephiWriteAheadLog.SUFFIX);
+        Configuration configuration = logConfiguration(file);
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_CHECKPOINT_INTERVAL, 3600000L);
+        GephiGraph graph = GephiGraph.open(configuration);
+        for (int i = 0; i < 100; i++) {
+            graph.addVertex("index", i);
+        }
+        long length = log.length();
+        graph.getCheckpointer().checkpoint();
+        assertTrue(file.exists());
+        assertTrue(log.length() < length);
+        graph.addVertex(T.id, "marko").property("index", 100);
+
+        GephiGraph reopened = GephiGraph.open(configuration);
+        assertEquals(101L, (long) reopened.traversal().V().count().next());
+        assertEquals(100, (int) reopened.traversal().V("marko").values("index").next());
+        reopened.close();
+    }
+
+    @Test
+    public void shouldCheckpointOnClose() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        Configuration configuration = configuration(file, GephiGraph.GEPHI_FORMAT);
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_CHECKPOINT_INTERVAL, 3600000L);
+        GephiGraph graph = GephiGraph.open(configuration);
+        graph.addVertex(T.id, "marko", "age", 29);
+        graph.getCheckpointer().checkpoint();
+        graph.addVertex(T.id, "vadas");
+        graph.close();
+        assertFalse(new File(file.getAbsolutePath() + ".tmp").exists());
+
+        GephiGraph reopened = GephiGraph.open(configuration);
+        assertEquals(2L, (long) reopened.traversal().V().count().next());
+        assertEquals(29, (int) reopened.traversal().V("marko").values("age").next());
+        reopened.addVertex(T.id, "josh");
+        reopened.close();
+        assertEquals(3L, (long) GephiGraph.open(configuration).traversal().V().count().next());
+    }
+
+    @Test
+    public void shouldSnapshotLogOnClose() throws Exception {
+        for (String format : new String[]{"graphml", "graphson", "gryo"}) {
+            File file = new File(folder.getRoot(), "graph." + format);
+            File log = new File(file.getAbsolutePath() + GephiWriteAheadLog.SUFFIX);
+            Configuration configuration = configuration(file, format);
+            configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_WAL, true);
+            GephiGraph graph = GephiGraph.open(configuration);
+            graph.addVertex(T.id, "marko", "age", 29).addEdge("knows", graph.addVertex(T.id, "vadas"));
+            long length = log.length();
+            graph.close();
+            assertTrue(format, file.exists());
+            assertTrue(format, log.length() < length);
+            assertFalse(format, new File(file.getAbsolutePath() + ".tmp").exists());
+
+            // The snapshot alone holds the graph
+            assertTrue(log.delete());
+            GraphTraversalSource g = GephiGraph.open(configuration(file, format)).traversal();
+            assertEquals(format, 2L, (long) g.V().count().next());
+            assertEquals(format, 29, (int) g.V("marko").values("age").next());
+            assertEquals(format, 1L, (long) g.V("marko").out("knows").count().next());
+        }
+    }
+
+    @Test
+    public void shouldCheckpointAfterChanges() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        Configuration configuration = configuration(file, GephiGraph.GEPHI_FORMAT);
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_CHECKPOINT_CHANGES, 10L);
+        GephiGraph graph = GephiGraph.open(configuration);
+        for (int i = 0; i < 10; i++) {
+            graph.addVertex("index", i);
+        }
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!file.exists() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(file.exists());
+        assertEquals(10L, (long) GephiGraph.open(configuration(file, GephiGraph.GEPHI_FORMAT)).traversal().V().count().next());
+        graph.close();
+    }
+
+    @Test
+    public void shouldStreamGraphMLAndGraphSON() throws Exception {
+        for (String format : new String[]{"graphml", "graphson"}) {
+            File file = new File(folder.getRoot(), "graph." + format);
+            GephiGraph graph = GephiGraph.open(configuration(file, format));
+            Vertex marko = graph.addVertex(T.id, "marko", T.label, "person", "name", "marko", "age", 29);
+            marko.property("name").property("source", "import");
+            Vertex vadas = graph.addVertex(T.id, "vadas", "name", "v<&\"");
+            marko.addEdge("knows", vadas, "weight", 0.5, "close", true);
+            marko.addEdge("created", vadas);
+            vadas.addEdge("self", vadas);
+            graph.close();
+
+            GraphTraversalSource g = GephiGraph.open(configuration(file, format)).traversal();
+            assertEquals(2L, (long) g.V().count().next());
+            assertEquals(3L, (long) g.E().count().next());
+            assertEquals("person", g.V("marko").label().next());
+            assertEquals(29, (int) g.V("marko").values("age").next());
+            assertEquals("v<&\"", g.V("vadas").values("name").next());
+            assertEquals(0.5, g.V("marko").outE("knows").values("weight").next());
+            assertEquals(true, g.V("marko").outE("knows").values("close").next());
+            assertEquals(1L, (long) g.V("vadas").out("self").count().next());
+            if (format.equals("graphson")) {
+                assertEquals("import", g.V("marko").next().property("name").value("source"));
+            }
+        }
+    }
+
+    @Test
+    public void shouldImportGraphSONInParallel() throws Exception {
+        GephiGraph graph = GephiGraph.open();
+        int count = 3 * GephiGraphSONImporter.CHUNK_SIZE;
+        try (GephiBulkLoader loader = graph.bulkLoader().create()) {
+            for (int i = 0; i < count; i++) {
+                loader.addVertex(T.id, "v" + i, "index", i);
+            }
+            for (int i = 0; i < count; i++) {
+                // Edges to vertices on earlier and later lines
+                loader.addEdge("v" + i, "next", "v" + (i + 1) % count, "weight", (double) i);
+                loader.addEdge("v" + i, "previous", "v" + (i + count - 1) % count);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GephiGraphWriter.writeGraphSON(graph, out);
+        out.write("{\"id\":1,\"label\":\"numeric\",\"outE\":{\"to\":[{\"id\":2,\"inV\":\"v0\"}]}}\n".getBytes("UTF-8"));
+
+        Configuration configuration = new BaseConfiguration();
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_IMPORT_THREADS, 4);
+        GephiGraph imported = GephiGraph.open(configuration);
+        GephiGraphSONImporter importer = imported.graphSONImporter();
+        importer.readGraph(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(count + 1, importer.getVertexCount());
+        assertEquals(2 * count + 1, importer.getEdgeCount());
+
+        GraphTraversalSource g = imported.traversal();
+        assertEquals(10, (int) g.V("v10").values("index").next());
+        assertEquals("v11", g.V("v10").out("next").id().next());
+        assertEquals(10.0, g.V("v10").outE("next").values("weight").next());
+        assertEquals("v" + (count - 1), g.V("v0").out("previous").id().next());
+        assertEquals(1L, (long) g.V().hasLabel("numeric").out("to").hasId("v0").count().next());
+    }
+
+    @Test
+    public void shouldRejectDuplicateEdgeIdsOnImport() throws Exception {
+        String lines = "{\"id\":\"a\",\"outE\":{\"knows\":[{\"id\":\"e\",\"inV\":\"a\"}]}}\n"
+                + "{\"id\":\"b\",\"outE\":{\"knows\":[{\"id\":\"e\",\"inV\":\"a\"}]}}\n";
+        GephiGraph graph = GephiGraph.open();
+        try {
+            graph.graphSONImporter().readGraph(new ByteArrayInputStream(lines.getBytes("UTF-8")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(Graph.Exceptions.edgeWithIdAlreadyExists("e").getMessage(), e.getMessage());
+        }
+        // The batch holding the duplicate is checked before it is inserted
+        assertEquals(0L, (long) graph.traversal().E().count().next());
+    }
+
+    @Test
+    public void shouldReadLinesUpToEachTerminator() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < GephiDataOutput.BUFFER_SIZE; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+        byte[] bytes = ("a\nb\r\nc\rd\n\n\r" + longLine + "\r\u00e9").getBytes("ISO-8859-1");
+        GephiDataInput input = new GephiDataInput(Channels.newChannel(new ByteArrayInputStream(bytes)));
+        for (String line : new String[]{"a", "b", "c", "d", "", "", longLine.toString(), "\u00e9", null}) {
+            assertEquals(line, input.readLine());
+        }
+    }
+}
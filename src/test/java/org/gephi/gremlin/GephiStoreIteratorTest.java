@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GephiStoreIteratorTest {
+
+    private static final int SIZE = 3 * GephiBatchIterator.BATCH_SIZE;
+
+    private GephiGraph graph;
+    private GraphTraversalSource g;
+
+    @Before
+    public void setup() {
+        graph = GephiGraph.open();
+        g = graph.traversal();
+        Vertex previous = graph.addVertex(T.id, id(0));
+        for (int i = 1; i <= SIZE; i++) {
+            Vertex vertex = graph.addVertex(T.id, id(i));
+            previous.addEdge("next", vertex, T.id, id(i));
+            previous = vertex;
+        }
+    }
+
+    @Test
+    public void shouldEmitBeforeScanningTheStore() {
+        Iterator<Edge> itr = g.E().limit(10);
+        assertEquals(id(1), itr.next().id());
+
+        // No lock is left held between two results, so the thread can still write
+        graph.vertices(id(0)).next().addEdge("next", graph.vertices(id(SIZE)).next(), T.id, id(SIZE + 1));
+        int count = 1;
+        while (itr.hasNext()) {
+            assertEquals(id(++count), itr.next().id());
+        }
+        assertEquals(10, count);
+
+        // The store is read a batch at a time: an edge added after the first result is returned
+        Iterator<Edge> edges = graph.edges();
+        edges.next();
+        graph.vertices(id(0)).next().addEdge("next", graph.vertices(id(SIZE)).next(), T.id, id(SIZE + 2));
+        count = 1;
+        while (edges.hasNext()) {
+            edges.next();
+            count++;
+        }
+        assertEquals(SIZE + 2, count);
+    }
+
+    @Test
+    public void shouldSkipVerticesRemovedDuringIteration() {
+        Set<Object> removed = new HashSet<>();
+        List<Object> returned = new ArrayList<>();
+        Iterator<Vertex> itr = g.V();
+        while (itr.hasNext()) {
+            Vertex vertex = itr.next();
+            assertFalse(removed.contains(vertex.id()));
+            returned.add(vertex.id());
+            int id = Integer.parseInt((String) vertex.id());
+            // Remove the current vertex and one ahead, in the same or a later batch
+            for (int other : new int[]{id, id + 7, id + GephiBatchIterator.BATCH_SIZE + 1}) {
+                if (other <= SIZE && removed.add(id(other))) {
+                    graph.vertices(id(other)).next().remove();
+                }
+            }
+        }
+        Set<Object> all = new HashSet<>(returned);
+        all.addAll(removed);
+        assertEquals(SIZE + 1, all.size());
+        assertTrue(returned.size() < SIZE + 1);
+        assertFalse(g.V().hasNext());
+        assertFalse(g.E().hasNext());
+    }
+
+    @Test
+    public void shouldSkipEdgesRemovedDuringIteration() {
+        Set<Object> removed = new HashSet<>();
+        int returned = 0;
+        Iterator<Edge> itr = g.E();
+        while (itr.hasNext()) {
+            Edge edge = itr.next();
+            assertTrue(removed.add(edge.id()));
+            returned++;
+            edge.remove();
+            int ahead = Integer.parseInt((String) edge.id()) + 3;
+            if (ahead <= SIZE && removed.add(id(ahead))) {
+                graph.edges(id(ahead)).next().remove();
+            }
+        }
+        assertEquals(SIZE, removed.size());
+        assertTrue(returned < SIZE);
+        assertFalse(g.E().hasNext());
+        assertEquals(SIZE + 1, (long) g.V().count().next());
+    }
+
+    private static String id(int i) {
+        return String.valueOf(i);
+    }
+}
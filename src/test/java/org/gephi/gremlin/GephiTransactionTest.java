@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GephiTransactionTest {
+
+    private GephiGraph graph;
+    private GraphTraversalSource g;
+    private ExecutorService reader;
+
+    @Before
+    public void setup() {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_TRANSACTIONS, true);
+        graph = GephiGraph.open(configuration);
+        g = graph.traversal();
+        reader = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        reader.shutdown();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotSupportTransactionsByDefault() {
+        GephiGraph.open().tx();
+    }
+
+    @Test
+    public void shouldApplyBufferedWritesOnCommit() throws Exception {
+        assertTrue(graph.features().graph().supportsTransactions());
+        Vertex marko = graph.addVertex(T.id, "marko", T.label, "person", "name", "marko");
+        Vertex vadas = graph.addVertex(T.id, "vadas", "name", "vadas");
+        Edge edge = marko.addEdge("knows", vadas, "since", 2010);
+        marko.property("age", 29).property("source", "test");
+        assertTrue(graph.tx().isOpen());
+        assertEquals(29, (int) marko.value("age"));
+        assertEquals(2010, (int) edge.value("since"));
+        assertEquals(0L, (long) read(() -> g.V().count().next()));
+
+        graph.tx().commit();
+        assertFalse(graph.tx().isOpen());
+        assertEquals(2L, (long) read(() -> g.V().count().next()));
+        assertEquals(1L, (long) read(() -> g.V().hasLabel("person").count().next()));
+        assertEquals("vadas", read(() -> g.V("marko").out("knows").values("name").next()));
+        assertEquals("test", read(() -> g.V("marko").next().property("age").value("source")));
+    }
+
+    @Test
+    public void shouldBufferChangesToCommittedElements() throws Exception {
+        Vertex marko = graph.addVertex(T.id, "marko", "name", "marko", "age", 29);
+        Vertex vadas = graph.addVertex(T.id, "vadas", "name", "vadas");
+        marko.addEdge("knows", vadas);
+        graph.tx().commit();
+
+        marko.property("age", 30);
+        vadas.remove();
+        assertEquals(29, (int) read(() -> g.V("marko").values("age").next()));
+        assertEquals(1L, (long) read(() -> g.E().count().next()));
+        graph.tx().commit();
+
+        assertEquals(30, (int) read(() -> g.V("marko").values("age").next()));
+        assertEquals(0L, (long) read(() -> g.E().count().next()));
+        assertEquals(1L, (long) read(() -> g.V().count().next()));
+    }
+
+    @Test
+    public void shouldReadOwnWrites() throws Exception {
+        Vertex marko = graph.addVertex(T.id, "marko", T.label, "person", "name", "marko", "age", 29);
+        Vertex vadas = graph.addVertex(T.id, "vadas", T.label, "person", "name", "vadas");
+        Vertex lop = graph.addVertex(T.id, "lop", T.label, "software", "name", "lop");
+        marko.addEdge("knows", vadas, T.id, "e1");
+        marko.addEdge("created", lop);
+        graph.tx().commit();
+
+        marko.property("age", 30);
+        marko.property("name", "marko2");
+        vadas.remove();
+        Vertex josh = graph.addVertex(T.id, "josh", T.label, "person", "name", "josh");
+        marko.addEdge("knows", josh, T.id, "e2");
+        josh.addEdge("created", lop);
+        lop.property("name").remove();
+
+        assertEquals(30, (int) marko.value("age"));
+        assertFalse(lop.keys().contains("name"));
+        assertFalse(g.V("lop").values("name").hasNext());
+        assertEquals(30, (int) g.V("marko").values("age").next());
+        assertFalse(g.V("vadas").hasNext());
+        assertTrue(g.V("josh").hasNext());
+        assertEquals(3L, (long) g.V().count().next());
+        assertEquals(2L, (long) g.V().hasLabel("person").count().next());
+        assertEquals(1L, (long) g.V().has("name", "marko2").count().next());
+        assertFalse(g.V().has("name", "marko").hasNext());
+        assertEquals(3L, (long) g.E().count().next());
+        assertFalse(g.E("e1").hasNext());
+        assertTrue(g.E("e2").hasNext());
+        assertEquals("josh", g.V("marko").out("knows").values("name").next());
+        assertEquals(2L, (long) g.V("marko").outE().count().next());
+        assertEquals(2L, ((GephiVertex) marko).degree(Direction.OUT));
+        assertEquals(2L, (long) g.V("lop").in("created").count().next());
+        assertTrue(((GephiVertex) marko).hasEdge(Direction.OUT, josh, "knows"));
+        assertFalse(((GephiVertex) marko).hasEdge(Direction.OUT, vadas));
+        assertEquals(1L, (long) g.V("marko").outE("knows").where(__.inV().hasId("josh")).count().next());
+
+        // Other threads keep seeing the committed graph
+        assertEquals(3L, (long) read(() -> g.V().count().next()));
+        assertEquals(29, (int) read(() -> g.V("marko").values("age").next()));
+        graph.tx().commit();
+        assertEquals(3L, (long) read(() -> g.V().count().next()));
+        assertEquals("josh", read(() -> g.V("marko").out("knows").values("name").next()));
+    }
+
+    @Test
+    public void shouldDiscardWritesOnRollback() throws Exception {
+        Vertex marko = graph.addVertex(T.id, "marko", "age", 29);
+        graph.tx().commit();
+
+        graph.addVertex(T.id, "vadas");
+        marko.property("age", 30);
+        marko.property("name", "marko");
+        marko.property("age").property("source", "test");
+        graph.tx().rollback();
+        assertFalse(graph.tx().isOpen());
+
+        assertEquals(1L, (long) g.V().count().next());
+        assertEquals(29, (int) g.V("marko").values("age").next());
+        assertFalse(g.V("marko").properties("name").hasNext());
+        assertFalse(g.V("marko").next().property("age").property("source").isPresent());
+    }
+
+    @Test
+    public void shouldRejectConflictingCommitAsAWhole() throws Exception {
+        graph.addVertex(T.id, "a");
+        graph.addVertex(T.id, "b");
+
+        read(() -> {
+            graph.addVertex(T.id, "b");
+            graph.tx().commit();
+            return null;
+        });
+
+        try {
+            graph.tx().commit();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        assertFalse(graph.tx().isOpen());
+        assertEquals(1L, (long) g.V().count().next());
+        assertFalse(g.V("a").hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWrongTypeWhenBuffered() {
+        Vertex marko = graph.addVertex(T.id, "marko", "age", 29);
+        graph.tx().commit();
+        marko.property("age", "thirty");
+    }
+
+    private <R> R read(Callable<R> callable) throws Exception {
+        return reader.submit(callable).get();
+    }
+}
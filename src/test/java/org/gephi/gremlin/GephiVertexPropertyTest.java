@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.gephi.gremlin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.gephi.graph.api.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GephiVertexPropertyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldStoreMetaPropertiesInColumnsPerKey() {
+        GephiGraph graph = GephiGraph.open();
+        Table table = graph.getGraphModel().getNodeTable();
+        int columns = table.countColumns();
+        Vertex marko = graph.addVertex(T.id, "marko", "name", "marko", "location", "santa fe");
+        Vertex josh = graph.addVertex(T.id, "josh", "location", "ithaca");
+        // No column for meta-properties until one is set
+        assertEquals(columns + 2, table.countColumns());
+
+        VertexProperty<String> location = marko.property("location");
+        location.property("startTime", 2005);
+        location.property("endTime", 2010);
+        assertEquals(columns + 4, table.countColumns());
+        location.property("startTime", 2004);
+        assertEquals(columns + 4, table.countColumns());
+
+        assertEquals(2004, (int) location.value("startTime"));
+        assertEquals(new HashSet<>(Arrays.asList("startTime", "endTime")), location.keys());
+        assertEquals(2, IteratorUtils.count(location.properties()));
+        assertEquals(2010, location.properties("endTime").next().value());
+        assertFalse(location.property("missing").isPresent());
+        assertTrue(josh.property("location").keys().isEmpty());
+        assertFalse(josh.property("location").properties().hasNext());
+        assertFalse(josh.property("location").property("startTime").isPresent());
+        assertTrue(marko.property("name").keys().isEmpty());
+
+        location.property("endTime").remove();
+        assertEquals(new HashSet<>(Arrays.asList("startTime")), marko.property("location").keys());
+        marko.property("location").remove();
+        marko.property("location", "brussels");
+        assertTrue(marko.property("location").keys().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("name", "location")), marko.keys());
+    }
+
+    @Test
+    public void shouldKeepKeyCase() {
+        GephiGraph graph = GephiGraph.open();
+        Vertex marko = graph.addVertex(T.id, "marko", "firstName", "marko");
+        marko.property("firstName").property("startTime", 2005);
+        assertEquals(new HashSet<>(Arrays.asList("firstName")), marko.keys());
+        assertEquals("firstName", marko.properties().next().key());
+        // Keys are still matched regardless of case
+        assertEquals("marko", marko.value("firstname"));
+
+        VertexProperty<String> firstName = marko.property("firstName");
+        assertEquals(new HashSet<>(Arrays.asList("startTime")), firstName.keys());
+    }
+
+    @Test
+    public void shouldOwnMetaPropertiesByTheVertexProperty() {
+        GephiGraph graph = GephiGraph.open();
+        Vertex marko = graph.addVertex(T.id, "marko", "name", "marko");
+        VertexProperty<String> name = marko.property("name");
+        name.property("startTime", 2005);
+        assertEquals(name, name.property("startTime").element());
+        assertEquals(name, name.properties().next().element());
+
+        graph.traversal().V("marko").properties("name").properties("startTime").drop().iterate();
+        assertFalse(name.property("startTime").isPresent());
+    }
+
+    @Test
+    public void shouldPersistMetaProperties() throws Exception {
+        File file = new File(folder.getRoot(), "graph.gephi");
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_GRAPH_LOCATION, file.getAbsolutePath());
+        configuration.setProperty(GephiGraph.GREMLIN_GEPHIGRAPH_GRAPH_FORMAT, GephiGraph.GEPHI_FORMAT);
+        GephiGraph graph = GephiGraph.open(configuration);
+        graph.addVertex(T.id, "marko").property("location", "santa fe", "startTime", 2005, "endTime", 2010);
+        graph.addVertex(T.id, "josh", "location", "ithaca");
+        graph.close();
+
+        GephiGraph reopened = GephiGraph.open(configuration);
+        assertEquals(2005, (int) reopened.traversal().V("marko").properties("location").values("startTime").next());
+        assertEquals(0L, (long) reopened.traversal().V("josh").properties("location").properties().count().next());
+
+        ByteArrayOutputStream graphSON = new ByteArrayOutputStream();
+        GephiGraphWriter.writeGraphSON(reopened, graphSON);
+        GephiGraph imported = GephiGraph.open();
+        imported.graphSONImporter().readGraph(new ByteArrayInputStream(graphSON.toByteArray()));
+        VertexProperty<String> location = imported.vertices("marko").next().property("location");
+        assertEquals(new HashSet<>(Arrays.asList("startTime", "endTime")), location.keys());
+        assertEquals(2010, (int) location.value("endTime"));
+        assertTrue(imported.vertices("josh").next().property("location").keys().isEmpty());
+    }
+}